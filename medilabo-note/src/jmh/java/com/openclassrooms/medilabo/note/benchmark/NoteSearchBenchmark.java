@@ -0,0 +1,134 @@
+package com.openclassrooms.medilabo.note.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.openclassrooms.medilabo.note.model.Note;
+import com.openclassrooms.medilabo.note.service.NoteSearchIndex;
+import com.openclassrooms.medilabo.note.service.TriggerWordMatcher;
+
+/**
+ * Recherche plein texte d'une page de 20 notes parmi NOTES notes
+ * synthétiques : index inversé en mémoire contre parcours MongoDB par $regex
+ * (seul moyen de chercher dans le texte sans index).
+ *
+ * Les requêtes portent sur un mot fréquent (cholestérol, dans une note sur
+ * quatre), un mot rare (anticorps, une note sur mille) et une conjonction.
+ *
+ * Le cas mongoRegex nécessite un serveur MongoDB (-Dmongo.uri,
+ * mongodb://localhost:27017 par défaut). La collection est créée dans la base
+ * medilaboBenchmark au premier lancement puis réutilisée.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class NoteSearchBenchmark {
+
+	private static final int NOTES = 500_000;
+
+	private static final int PAGE_SIZE = 20;
+
+	private static final List<String> FILLER = List.of("patient", "déclare", "se", "sentir", "bien", "poids",
+			"stable", "tension", "normale", "à", "revoir", "dans", "trois", "mois", "taille", "vertiges", "légers");
+
+	@Param({ "cholestérol", "anticorps", "vertiges cholestérol" })
+	private String query;
+
+	private NoteSearchIndex index;
+
+	private MongoClient client;
+
+	private MongoCollection<Document> notes;
+
+	@Setup
+	public void setUp() {
+		index = new NoteSearchIndex();
+		index.build(IntStream.range(0, NOTES).mapToObj(i -> {
+			Note note = new Note();
+			note.setId(String.valueOf(i));
+			note.setNote(content(i));
+			return note;
+		}));
+
+		client = MongoClients.create(System.getProperty("mongo.uri", "mongodb://localhost:27017"));
+		notes = client.getDatabase("medilaboBenchmark").getCollection("notes_search");
+		if (notes.estimatedDocumentCount() != NOTES) {
+			notes.drop();
+			List<Document> batch = new ArrayList<>(10_000);
+			for (int i = 0; i < NOTES; i++) {
+				batch.add(new Document("patientId", String.valueOf(i % 20_000)).append("note", content(i)));
+				if (batch.size() == 10_000) {
+					notes.insertMany(batch);
+					batch.clear();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Texte déterministe de la i-ème note.
+	 */
+	private static String content(int i) {
+		Random random = new Random(i);
+		StringBuilder content = new StringBuilder();
+		for (int w = 0; w < 12; w++) {
+			content.append(FILLER.get(random.nextInt(FILLER.size()))).append(' ');
+		}
+		if (i % 4 == 0) {
+			content.append("Cholestérol élevé. ");
+		}
+		if (i % 1000 == 0) {
+			content.append("Présence d'anticorps.");
+		}
+		return content.toString();
+	}
+
+	@TearDown
+	public void tearDown() {
+		client.close();
+	}
+
+	@Benchmark
+	public NoteSearchIndex.Hits invertedIndex() {
+		return index.search(query, 0, PAGE_SIZE);
+	}
+
+	@Benchmark
+	public List<Document> mongoRegex() {
+		List<Bson> filters = new ArrayList<>();
+		for (String word : query.split(" ")) {
+			filters.add(Filters.regex("note", TriggerWordMatcher.toRegex(word), "i"));
+		}
+		List<Document> page = new ArrayList<>(PAGE_SIZE);
+		notes.find(Filters.and(filters)).projection(Projections.include("_id")).limit(PAGE_SIZE).into(page);
+		// total, comme le renvoie la recherche
+		notes.countDocuments(Filters.and(filters));
+		return page;
+	}
+}
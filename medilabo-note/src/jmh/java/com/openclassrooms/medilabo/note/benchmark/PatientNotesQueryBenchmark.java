@@ -0,0 +1,103 @@
+package com.openclassrooms.medilabo.note.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import com.openclassrooms.medilabo.note.repository.NoteIndexes;
+
+/**
+ * Recherche des notes d'un patient, triées par date, dans une collection
+ * synthétique de NOTES notes, avec et sans l'index (patientId, date).
+ *
+ * Nécessite un serveur MongoDB (-Dmongo.uri, mongodb://localhost:27017 par
+ * défaut). Les collections sont créées dans la base medilaboBenchmark au
+ * premier lancement puis réutilisées.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PatientNotesQueryBenchmark {
+
+	private static final int NOTES = 1_000_000;
+
+	private static final int PATIENTS = 20_000;
+
+	@Param({ "false", "true" })
+	private boolean indexed;
+
+	private MongoClient client;
+
+	private MongoCollection<Document> notes;
+
+	private final Random random = new Random(42);
+
+	@Setup
+	public void setUp() {
+		client = MongoClients.create(System.getProperty("mongo.uri", "mongodb://localhost:27017"));
+		notes = client.getDatabase("medilaboBenchmark").getCollection(indexed ? "notes_indexed" : "notes");
+		if (notes.estimatedDocumentCount() != NOTES) {
+			notes.drop();
+			seed();
+		}
+		if (indexed) {
+			notes.createIndex(Indexes.ascending("patientId", "date"),
+					new IndexOptions().name(NoteIndexes.PATIENT_DATE_INDEX));
+		}
+	}
+
+	private void seed() {
+		Random seed = new Random(7);
+		List<Document> batch = new ArrayList<>(10_000);
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < NOTES; i++) {
+			batch.add(new Document("patientId", String.valueOf(seed.nextInt(PATIENTS)))
+					.append("patientName", "Patient " + i % PATIENTS)
+					.append("note", "Poids stable, cholestérol à surveiller, note " + i)
+					.append("date", new Date(now - seed.nextInt(Integer.MAX_VALUE))).append("triggerCount", 2));
+			if (batch.size() == 10_000) {
+				notes.insertMany(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		client.close();
+	}
+
+	@Benchmark
+	public void notesByPatient(Blackhole blackhole) {
+		String patientId = String.valueOf(random.nextInt(PATIENTS));
+		for (Document note : notes.find(new Document("patientId", patientId)).sort(Sorts.ascending("date"))) {
+			blackhole.consume(note);
+		}
+	}
+}
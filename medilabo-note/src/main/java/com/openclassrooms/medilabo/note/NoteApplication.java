@@ -2,10 +2,14 @@ package com.openclassrooms.medilabo.note;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.scheduling.annotation.EnableAsync;
 
 @SpringBootApplication
 @EnableMongoAuditing
+@EnableFeignClients
+@EnableAsync
 public class NoteApplication {
 
 	public static void main(String[] args) {
@@ -1,11 +1,24 @@
 package com.openclassrooms.medilabo.note.controller;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -13,9 +26,21 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import com.openclassrooms.medilabo.note.enums.NoteProjection;
+import com.openclassrooms.medilabo.note.model.BulkImportReport;
 import com.openclassrooms.medilabo.note.model.Note;
+import com.openclassrooms.medilabo.note.model.NotePage;
+import com.openclassrooms.medilabo.note.model.NoteSearchResult;
+import com.openclassrooms.medilabo.note.model.TriggerCount;
 import com.openclassrooms.medilabo.note.service.NoteService;
 
 import jakarta.validation.Valid;
@@ -32,26 +57,59 @@ import jakarta.validation.Valid;
 @RequestMapping("/notes")
 public class NoteController {
 
+	/**
+	 * En-tête portant le jeton de la page suivante d'une liste tronquée.
+	 */
+	public static final String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+
+	/**
+	 * Taille du tampon d'écriture de l'export.
+	 */
+	private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
 	private NoteService noteService;
+	private ObjectMapper objectMapper;
 	private static final Logger logger = LogManager.getLogger(NoteController.class);
 
-	public NoteController(NoteService noteService) {
+	public NoteController(NoteService noteService, ObjectMapper objectMapper) {
 		this.noteService = noteService;
+		this.objectMapper = objectMapper;
 	}
 
 	/**
-	 * Récupère toutes les notes enregistrées dans la base de données.
+	 * Récupère les notes enregistrées dans la base de données, dans la limite de
+	 * notes.list.max-size. Si la liste est tronquée, l'en-tête X-Next-Page-Token
+	 * permet de poursuivre avec /notes/page.
 	 *
 	 * @return ResponseEntity contenant la liste des notes (HTTP 200)
 	 */
 	@GetMapping("/all")
 	public ResponseEntity<List<Note>> getAllNotes() {
-		List<Note> notes = noteService.getAllNotes();
-		logger.info("Récupération de toutes les notes, count={}", notes.size());
-		return ResponseEntity.ok(notes);
+		NotePage page = noteService.getAllNotes();
+		logger.info("Récupération de toutes les notes, count={}", page.getNotes().size());
+		return toList(page);
 
 	}
 
+	/**
+	 * Récupère une page de l'ensemble des notes.
+	 *
+	 * @param size  nombre de notes souhaité (borné par notes.page.max-size)
+	 * @param token jeton de continuation de la page précédente (facultatif)
+	 * @return ResponseEntity contenant la page de notes (HTTP 200) ou un code 400
+	 *         si le jeton est invalide
+	 */
+	@GetMapping("/page")
+	public ResponseEntity<NotePage> getNotesPage(@RequestParam(defaultValue = "100") int size,
+			@RequestParam(required = false) String token) {
+		try {
+			return ResponseEntity.ok(noteService.getNotesPage(token, size));
+		} catch (IllegalArgumentException e) {
+			logger.warn("Jeton de continuation invalide : {}", token);
+			return ResponseEntity.badRequest().build();
+		}
+	}
+
 	/**
 	 * Récupère une note à partir de son identifiant.
 	 *
@@ -83,43 +141,251 @@ public class NoteController {
 		return ResponseEntity.status(201).body(saved);
 	}
 
-	/*
-	 * Met à jour une note existante.
+	/**
+	 * Met à jour le texte et le nom du patient d'une note existante, en une
+	 * seule opération atomique. Le corps doit porter la version lue : la mise à
+	 * jour est refusée lorsque la note a été modifiée depuis.
 	 *
-	 * @param id identifiant de la note à mettre à jour
-	 * 
+	 * @param id         identifiant de la note à mettre à jour
 	 * @param updateNote données de mise à jour (texte de la note, nom du patient,
-	 * etc.)
-	 * 
-	 * @return ResponseEntity contenant la note mise à jour (HTTP 200) ou un code
-	 * 404 si introuvable
+	 *                   version attendue)
+	 * @return ResponseEntity contenant la note mise à jour (HTTP 200), un code
+	 *         404 si introuvable, 409 si la version est périmée ou 428 si elle
+	 *         est absente
 	 */
 	@PutMapping("/{id}")
 	public ResponseEntity<Note> updateNote(@PathVariable String id, @Valid @RequestBody Note updateNote) {
-		Optional<Note> OptionalNote = noteService.getNoteById(id);
-		if (!OptionalNote.isPresent()) {
-			logger.warn("La note n'existe pas avec id={}", id);
-			return ResponseEntity.notFound().build();
+		try {
+			return noteService.updateNote(id, updateNote).map(updated -> {
+				logger.info("Note mise à jour avec id={}", id);
+				return ResponseEntity.ok(updated);
+			}).orElseGet(() -> {
+				logger.warn("La note n'existe pas avec id={}", id);
+				return ResponseEntity.notFound().build();
+			});
+		} catch (OptimisticLockingFailureException e) {
+			logger.warn("Mise à jour concurrente de la note id={} : {}", id, e.getMessage());
+			return ResponseEntity.status(HttpStatus.CONFLICT).build();
+		} catch (IllegalArgumentException e) {
+			logger.warn("Mise à jour de la note id={} refusée : {}", id, e.getMessage());
+			return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).build();
 		}
-
-		Note note = OptionalNote.get();
-		note.setNote(updateNote.getNote());
-		note.setPatientName(updateNote.getPatientName());
-
-		Note updated = noteService.saveNote(note);
-		logger.info("Note mise à jour avec id={}", id);
-		return ResponseEntity.ok(updated);
 	}
 
 	/**
-	 * Récupère toutes les notes associées à un patient spécifique.
+	 * Récupère les notes associées à un patient spécifique, dans la limite de
+	 * notes.list.max-size. Si la liste est tronquée, l'en-tête X-Next-Page-Token
+	 * permet de poursuivre avec /notes/patient/{patientId}/page.
 	 *
 	 * @param patientId identifiant du patient
 	 * @return ResponseEntity contenant la liste des notes de ce patient (HTTP 200)
 	 */
 	@GetMapping("/patient/{patientId}")
 	public ResponseEntity<List<Note>> getNotesByNoteId(@PathVariable String patientId) {
-		return ResponseEntity.ok(noteService.getNotesByPatientId(patientId));
+		return toList(noteService.getNotesByPatientId(patientId));
+	}
+
+	/**
+	 * Récupère une page des notes d'un patient, par ordre chronologique.
+	 *
+	 * @param patientId identifiant du patient
+	 * @param size      nombre de notes souhaité (borné par notes.page.max-size)
+	 * @param token     jeton de continuation de la page précédente (facultatif)
+	 * @return ResponseEntity contenant la page de notes (HTTP 200) ou un code 400
+	 *         si le jeton est invalide
+	 */
+	@GetMapping("/patient/{patientId}/page")
+	public ResponseEntity<NotePage> getNotesPageByPatientId(@PathVariable String patientId,
+			@RequestParam(defaultValue = "100") int size, @RequestParam(required = false) String token) {
+		try {
+			return ResponseEntity.ok(noteService.getNotesPageByPatientId(patientId, token, size));
+		} catch (IllegalArgumentException e) {
+			logger.warn("Jeton de continuation invalide : {}", token);
+			return ResponseEntity.badRequest().build();
+		}
+	}
+
+	private static ResponseEntity<List<Note>> toList(NotePage page) {
+		if (page.getNext() == null) {
+			return ResponseEntity.ok(page.getNotes());
+		}
+		logger.warn("Liste de notes tronquée à {} éléments", page.getNotes().size());
+		return ResponseEntity.ok().header(NEXT_PAGE_TOKEN_HEADER, page.getNext()).body(page.getNotes());
+	}
+
+	/**
+	 * Variante en flux des notes d'un patient (application/x-ndjson), choisie
+	 * lorsque le client l'accepte : une note JSON par ligne.
+	 * 
+	 * Les notes sont lues par un curseur MongoDB et écrites au fur et à mesure,
+	 * de sorte que ni ce service ni le client n'ont besoin de garder tout
+	 * l'historique en mémoire.
+	 *
+	 * @param patientId identifiant du patient
+	 * @return ResponseEntity contenant le flux des notes (HTTP 200)
+	 */
+	@GetMapping(value = "/patient/{patientId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamNotesByPatientId(@PathVariable String patientId) {
+		StreamingResponseBody body = outputStream -> {
+			try (Stream<Note> notes = noteService.streamNotesByPatientId(patientId)) {
+				writeNdjson(notes, outputStream);
+			}
+		};
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+	}
+
+	/**
+	 * Exporte l'ensemble des notes en NDJSON (une note JSON par ligne), par
+	 * identifiant croissant, éventuellement compressé en gzip.
+	 * 
+	 * Les notes sont lues par un curseur MongoDB et écrites au travers d'un
+	 * tampon de taille fixe : la mémoire utilisée ne dépend pas de la taille de
+	 * la collection. Un export interrompu peut être repris en passant
+	 * l'identifiant de la dernière note reçue.
+	 *
+	 * @param after identifiant de la dernière note déjà reçue (facultatif)
+	 * @param gzip  true pour compresser la réponse
+	 * @return ResponseEntity contenant le flux des notes (HTTP 200) ou un code 400
+	 *         si l'identifiant de reprise est invalide
+	 */
+	@GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> exportNotes(@RequestParam(required = false) String after,
+			@RequestParam(defaultValue = "false") boolean gzip) {
+		Stream<Note> notes;
+		try {
+			notes = noteService.streamAllNotes(after);
+		} catch (IllegalArgumentException e) {
+			logger.warn("Export des notes refusé : {}", e.getMessage());
+			return ResponseEntity.badRequest().build();
+		}
+		logger.info("Export des notes après id={}, gzip={}", after, gzip);
+		StreamingResponseBody body = outputStream -> {
+			try (notes; OutputStream output = gzip
+					? new GZIPOutputStream(outputStream, EXPORT_BUFFER_SIZE)
+					: new BufferedOutputStream(outputStream, EXPORT_BUFFER_SIZE)) {
+				writeNdjson(notes, output);
+			}
+		};
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON);
+		if (gzip) {
+			response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+		}
+		return response.body(body);
+	}
+
+	/**
+	 * Importe en masse des notes transmises en NDJSON (une note JSON par ligne).
+	 * Les lignes invalides sont signalées dans le compte rendu sans interrompre
+	 * l'import.
+	 *
+	 * @param body flux NDJSON des notes
+	 * @return ResponseEntity contenant le compte rendu de l'import (HTTP 200)
+	 * @throws IOException si le flux ne peut pas être lu
+	 */
+	@PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<BulkImportReport> importNotes(InputStream body) throws IOException {
+		BulkImportReport report = noteService.importNotes(new InputStreamReader(body, StandardCharsets.UTF_8));
+		logger.info("Import de notes : {} reçues, {} insérées, {} erreurs, {} notes/s", report.getReceived(),
+				report.getInserted(), report.getErrorCount(), Math.round(report.getNotesPerSecond()));
+		return ResponseEntity.ok(report);
+	}
+
+	/**
+	 * Écrit les notes une à une, suivies d'un saut de ligne.
+	 */
+	private void writeNdjson(Stream<Note> notes, OutputStream outputStream) throws IOException {
+		ObjectWriter writer = objectMapper.writerFor(Note.class)
+				.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+			Iterator<Note> iterator = notes.iterator();
+			while (iterator.hasNext()) {
+				writer.writeValue(generator, iterator.next());
+				generator.writeRaw('\n');
+			}
+		}
+	}
+
+	/**
+	 * Récupère le nombre de mots-clés déclencheurs relevés dans les notes d'un
+	 * patient, sans transférer le contenu des notes.
+	 *
+	 * @param patientId identifiant du patient
+	 * @return ResponseEntity contenant le nombre de mots-clés (HTTP 200)
+	 */
+	@GetMapping("/patient/{patientId}/triggers")
+	public ResponseEntity<TriggerCount> getTriggerCountByPatientId(@PathVariable String patientId) {
+		return ResponseEntity.ok(noteService.getTriggerCountByPatientId(patientId));
+	}
+
+	/**
+	 * Compte les mots-clés déclencheurs des notes d'un patient par une
+	 * agrégation MongoDB, pour le vocabulaire fourni ou, à défaut, celui du
+	 * service. Seuls les totaux sont renvoyés.
+	 *
+	 * @param patientId identifiant du patient
+	 * @param words     mots-clés recherchés (facultatif)
+	 * @param hits      true pour détailler le nombre de notes par mot-clé
+	 * @return ResponseEntity contenant le nombre de mots-clés (HTTP 200) ou un
+	 *         code 400 si trop de mots-clés sont demandés
+	 */
+	@GetMapping("/patient/{patientId}/triggers/aggregate")
+	public ResponseEntity<TriggerCount> aggregateTriggerCountByPatientId(@PathVariable String patientId,
+			@RequestParam(required = false) List<String> words, @RequestParam(defaultValue = "false") boolean hits) {
+		try {
+			return ResponseEntity.ok(noteService.aggregateTriggerCountByPatientId(patientId, words, hits));
+		} catch (IllegalArgumentException e) {
+			logger.warn("Agrégation des mots-clés refusée : {}", e.getMessage());
+			return ResponseEntity.badRequest().build();
+		}
+	}
+
+	/**
+	 * Récupère en une seule requête les notes de plusieurs patients.
+	 *
+	 * @param ids    identifiants des patients (au plus notes.patients.max-ids)
+	 * @param fields champs renvoyés : FULL (par défaut), NO_BODY ou TRIGGERS
+	 * @return ResponseEntity contenant les notes regroupées par patient (HTTP 200)
+	 *         ou un code 400 si trop d'identifiants sont demandés
+	 */
+	@GetMapping("/patients")
+	public ResponseEntity<Map<String, List<Note>>> getNotesByPatientIds(@RequestParam Set<String> ids,
+			@RequestParam(defaultValue = "FULL") NoteProjection fields) {
+		try {
+			Map<String, List<Note>> notes = noteService.getNotesByPatientIds(ids, fields);
+			logger.info("Récupération des notes de {} patients ({})", ids.size(), fields);
+			return ResponseEntity.ok(notes);
+		} catch (IllegalArgumentException e) {
+			logger.warn("Récupération groupée des notes refusée : {}", e.getMessage());
+			return ResponseEntity.badRequest().build();
+		}
+	}
+
+	/**
+	 * Recherche plein texte dans les notes, insensible à la casse et aux accents.
+	 * Les mots d'une requête sont tous requis ; OR sépare des alternatives
+	 * (« vertiges cholestérol OR fumeur »).
+	 *
+	 * @param q    requête
+	 * @param page numéro de page, à partir de 0
+	 * @param size nombre de notes par page (borné par notes.page.max-size)
+	 * @return ResponseEntity contenant la page de résultats (HTTP 200), un code
+	 *         400 si la requête est invalide ou 503 si l'index est en cours de
+	 *         construction
+	 */
+	@GetMapping("/search")
+	public ResponseEntity<NoteSearchResult> searchNotes(@RequestParam String q,
+			@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "20") int size) {
+		try {
+			NoteSearchResult result = noteService.searchNotes(q, page, size);
+			logger.info("Recherche de notes \"{}\" : {} résultats", q, result.getTotal());
+			return ResponseEntity.ok(result);
+		} catch (IllegalArgumentException e) {
+			logger.warn("Recherche de notes refusée : {}", e.getMessage());
+			return ResponseEntity.badRequest().build();
+		} catch (IllegalStateException e) {
+			logger.warn("Recherche de notes indisponible : {}", e.getMessage());
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+		}
 	}
 
 }
@@ -0,0 +1,14 @@
+package com.openclassrooms.medilabo.note.enums;
+
+/**
+ * Champs renvoyés par la récupération groupée des notes.
+ * 
+ * FULL : notes complètes.
+ * 
+ * NO_BODY : notes sans leur texte.
+ * 
+ * TRIGGERS : identifiants, date et mots-clés relevés seulement.
+ */
+public enum NoteProjection {
+	FULL, NO_BODY, TRIGGERS
+}
@@ -0,0 +1,75 @@
+package com.openclassrooms.medilabo.note.event;
+
+/**
+ * Événement publié lorsqu'une note est créée ou modifiée.
+ *
+ * Il est transmis tel quel au microservice de calcul du risque afin qu'il
+ * invalide les résultats calculés pour le patient concerné. Les nombres de
+ * mots-clés avant et après l'enregistrement lui permettent de mettre à jour
+ * son état sans relire les notes.
+ */
+public class NoteChangedEvent {
+	private String noteId;
+
+	private String patientId;
+
+	private Integer triggerCount;
+
+	private Integer previousTriggerCount;
+
+	private boolean created;
+
+	public NoteChangedEvent() {
+
+	}
+
+	public NoteChangedEvent(String noteId, String patientId, Integer triggerCount, Integer previousTriggerCount,
+			boolean created) {
+		this.noteId = noteId;
+		this.patientId = patientId;
+		this.triggerCount = triggerCount;
+		this.previousTriggerCount = previousTriggerCount;
+		this.created = created;
+	}
+
+	public String getNoteId() {
+		return noteId;
+	}
+
+	public void setNoteId(String noteId) {
+		this.noteId = noteId;
+	}
+
+	public String getPatientId() {
+		return patientId;
+	}
+
+	public void setPatientId(String patientId) {
+		this.patientId = patientId;
+	}
+
+	public Integer getTriggerCount() {
+		return triggerCount;
+	}
+
+	public void setTriggerCount(Integer triggerCount) {
+		this.triggerCount = triggerCount;
+	}
+
+	public Integer getPreviousTriggerCount() {
+		return previousTriggerCount;
+	}
+
+	public void setPreviousTriggerCount(Integer previousTriggerCount) {
+		this.previousTriggerCount = previousTriggerCount;
+	}
+
+	public boolean isCreated() {
+		return created;
+	}
+
+	public void setCreated(boolean created) {
+		this.created = created;
+	}
+
+}
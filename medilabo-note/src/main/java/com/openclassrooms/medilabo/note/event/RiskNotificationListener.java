@@ -0,0 +1,45 @@
+package com.openclassrooms.medilabo.note.event;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.medilabo.note.proxies.MicroserviceRiskProxy;
+
+/**
+ * Transmet les modifications de notes au microservice de calcul du risque.
+ *
+ * L'envoi est asynchrone et ses échecs sont seulement journalisés :
+ * l'enregistrement d'une note ne dépend jamais de la disponibilité du service
+ * de risque.
+ */
+@Component
+@ConditionalOnProperty(name = "risk.notifications.enabled", havingValue = "true", matchIfMissing = true)
+public class RiskNotificationListener {
+
+	private MicroserviceRiskProxy riskProxy;
+	private static final Logger logger = LogManager.getLogger(RiskNotificationListener.class);
+
+	public RiskNotificationListener(MicroserviceRiskProxy riskProxy) {
+		this.riskProxy = riskProxy;
+	}
+
+	/**
+	 * Notifie le service de risque de la modification d'une note.
+	 *
+	 * @param event événement publié par NoteService
+	 */
+	@Async
+	@EventListener
+	public void onNoteChanged(NoteChangedEvent event) {
+		try {
+			riskProxy.notifyNoteChanged(event);
+		} catch (Exception e) {
+			logger.warn("Notification du service de risque impossible pour le patient id={} : {}",
+					event.getPatientId(), e.getMessage());
+		}
+	}
+}
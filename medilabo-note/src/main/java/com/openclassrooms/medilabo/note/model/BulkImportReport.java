@@ -0,0 +1,128 @@
+package com.openclassrooms.medilabo.note.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compte rendu d'un import de notes en masse : nombre de lignes reçues et de
+ * notes insérées, erreurs par ligne et débit obtenu.
+ *
+ * Seules les MAX_REPORTED_ERRORS premières erreurs sont détaillées ; errorCount
+ * les compte toutes.
+ */
+public class BulkImportReport {
+
+	/**
+	 * Nombre maximal d'erreurs détaillées dans le compte rendu.
+	 */
+	public static final int MAX_REPORTED_ERRORS = 1000;
+
+	private long received;
+
+	private long inserted;
+
+	private long errorCount;
+
+	private List<LineError> errors = new ArrayList<>();
+
+	private long durationMs;
+
+	private double notesPerSecond;
+
+	/**
+	 * Enregistre l'échec d'une ligne.
+	 *
+	 * @param line    numéro de la ligne (à partir de 1)
+	 * @param message cause de l'échec
+	 */
+	public void addError(long line, String message) {
+		errorCount++;
+		if (errors.size() < MAX_REPORTED_ERRORS) {
+			errors.add(new LineError(line, message));
+		}
+	}
+
+	public long getReceived() {
+		return received;
+	}
+
+	public void setReceived(long received) {
+		this.received = received;
+	}
+
+	public long getInserted() {
+		return inserted;
+	}
+
+	public void setInserted(long inserted) {
+		this.inserted = inserted;
+	}
+
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	public void setErrorCount(long errorCount) {
+		this.errorCount = errorCount;
+	}
+
+	public List<LineError> getErrors() {
+		return errors;
+	}
+
+	public void setErrors(List<LineError> errors) {
+		this.errors = errors;
+	}
+
+	public long getDurationMs() {
+		return durationMs;
+	}
+
+	public void setDurationMs(long durationMs) {
+		this.durationMs = durationMs;
+	}
+
+	public double getNotesPerSecond() {
+		return notesPerSecond;
+	}
+
+	public void setNotesPerSecond(double notesPerSecond) {
+		this.notesPerSecond = notesPerSecond;
+	}
+
+	/**
+	 * Erreur rencontrée sur une ligne du flux importé.
+	 */
+	public static class LineError {
+
+		private long line;
+
+		private String message;
+
+		public LineError() {
+
+		}
+
+		public LineError(long line, String message) {
+			this.line = line;
+			this.message = message;
+		}
+
+		public long getLine() {
+			return line;
+		}
+
+		public void setLine(long line) {
+			this.line = line;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+
+		public void setMessage(String message) {
+			this.message = message;
+		}
+	}
+
+}
@@ -5,11 +5,14 @@ import java.util.Date;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import jakarta.validation.constraints.NotBlank;
 
 @Document(collection = "notes")
+@CompoundIndex(name = "patientId_date", def = "{ 'patientId' : 1, 'date' : 1 }")
 public class Note {
 
 	@Id
@@ -28,6 +31,24 @@ public class Note {
 	@LastModifiedDate
 	private Date updatedDate;
 
+	/**
+	 * Version du document, incrémentée à chaque modification : une mise à jour
+	 * portant une version périmée est refusée.
+	 */
+	@Version
+	private Long version;
+
+	/**
+	 * Masque des mots-clés déclencheurs présents dans la note (un bit par
+	 * mot-clé), calculé à l'enregistrement.
+	 */
+	private Long triggerMask;
+
+	/**
+	 * Nombre de mots-clés déclencheurs distincts présents dans la note.
+	 */
+	private Integer triggerCount;
+
 	public String getId() {
 		return id;
 	}
@@ -76,4 +97,28 @@ public class Note {
 		this.updatedDate = updatedDate;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	public Long getTriggerMask() {
+		return triggerMask;
+	}
+
+	public void setTriggerMask(Long triggerMask) {
+		this.triggerMask = triggerMask;
+	}
+
+	public Integer getTriggerCount() {
+		return triggerCount;
+	}
+
+	public void setTriggerCount(Integer triggerCount) {
+		this.triggerCount = triggerCount;
+	}
+
 }
@@ -0,0 +1,42 @@
+package com.openclassrooms.medilabo.note.model;
+
+import java.util.List;
+
+/**
+ * Page de notes obtenue par parcours keyset.
+ *
+ * Le jeton de continuation est opaque pour le client : il suffit de le
+ * renvoyer pour obtenir la page suivante. Il est null sur la dernière page.
+ */
+public class NotePage {
+
+	private List<Note> notes;
+
+	private String next;
+
+	public NotePage() {
+
+	}
+
+	public NotePage(List<Note> notes, String next) {
+		this.notes = notes;
+		this.next = next;
+	}
+
+	public List<Note> getNotes() {
+		return notes;
+	}
+
+	public void setNotes(List<Note> notes) {
+		this.notes = notes;
+	}
+
+	public String getNext() {
+		return next;
+	}
+
+	public void setNext(String next) {
+		this.next = next;
+	}
+
+}
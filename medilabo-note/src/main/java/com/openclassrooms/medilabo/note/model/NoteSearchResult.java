@@ -0,0 +1,87 @@
+package com.openclassrooms.medilabo.note.model;
+
+import java.util.List;
+
+/**
+ * Page de résultats d'une recherche plein texte dans les notes.
+ *
+ * Les notes sont classées des plus récemment enregistrées aux plus anciennes.
+ * total donne le nombre de notes trouvées, toutes pages confondues ; lorsque
+ * totalExact est faux, le comptage a été interrompu et total est un minimum.
+ */
+public class NoteSearchResult {
+
+	private String query;
+
+	private int total;
+
+	private boolean totalExact;
+
+	private int page;
+
+	private int size;
+
+	private List<Note> notes;
+
+	public NoteSearchResult() {
+
+	}
+
+	public NoteSearchResult(String query, int total, boolean totalExact, int page, int size, List<Note> notes) {
+		this.query = query;
+		this.total = total;
+		this.totalExact = totalExact;
+		this.page = page;
+		this.size = size;
+		this.notes = notes;
+	}
+
+	public String getQuery() {
+		return query;
+	}
+
+	public void setQuery(String query) {
+		this.query = query;
+	}
+
+	public int getTotal() {
+		return total;
+	}
+
+	public void setTotal(int total) {
+		this.total = total;
+	}
+
+	public boolean isTotalExact() {
+		return totalExact;
+	}
+
+	public void setTotalExact(boolean totalExact) {
+		this.totalExact = totalExact;
+	}
+
+	public int getPage() {
+		return page;
+	}
+
+	public void setPage(int page) {
+		this.page = page;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	public List<Note> getNotes() {
+		return notes;
+	}
+
+	public void setNotes(List<Note> notes) {
+		this.notes = notes;
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.openclassrooms.medilabo.note.model;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Nombre de mots-clés déclencheurs relevés dans l'ensemble des notes d'un
+ * patient, chaque mot-clé étant compté une fois par note.
+ */
+public class TriggerCount {
+
+	private String patientId;
+
+	private Integer triggerCount;
+
+	/**
+	 * Nombre de notes contenant chaque mot-clé, renseigné seulement sur demande.
+	 */
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private Map<String, Integer> hits;
+
+	public TriggerCount() {
+
+	}
+
+	public TriggerCount(String patientId, Integer triggerCount) {
+		this.patientId = patientId;
+		this.triggerCount = triggerCount;
+	}
+
+	public String getPatientId() {
+		return patientId;
+	}
+
+	public void setPatientId(String patientId) {
+		this.patientId = patientId;
+	}
+
+	public Integer getTriggerCount() {
+		return triggerCount;
+	}
+
+	public void setTriggerCount(Integer triggerCount) {
+		this.triggerCount = triggerCount;
+	}
+
+	public Map<String, Integer> getHits() {
+		return hits;
+	}
+
+	public void setHits(Map<String, Integer> hits) {
+		this.hits = hits;
+	}
+
+}
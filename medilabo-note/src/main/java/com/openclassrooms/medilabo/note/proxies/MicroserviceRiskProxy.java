@@ -0,0 +1,22 @@
+package com.openclassrooms.medilabo.note.proxies;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import com.openclassrooms.medilabo.note.event.NoteChangedEvent;
+
+/**
+ * Proxy Feign pour notifier le microservice de calcul du risque de diabète.
+ */
+@FeignClient(name = "medilabo-risk-diabetes-service")
+public interface MicroserviceRiskProxy {
+
+	/**
+	 * Notifie la création ou la modification d'une note.
+	 *
+	 * @param event identifiants de la note et du patient concernés
+	 */
+	@PostMapping(value = "/events/notes")
+	void notifyNoteChanged(@RequestBody NoteChangedEvent event);
+}
@@ -0,0 +1,129 @@
+package com.openclassrooms.medilabo.note.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.medilabo.note.model.Note;
+
+/**
+ * Création et vérification des index de la collection des notes.
+ *
+ * Au démarrage, les index déclarés sur {@link Note} sont créés s'ils
+ * n'existent pas encore, puis le plan d'exécution des recherches par patient
+ * est journalisé pour vérifier qu'elles utilisent bien l'index.
+ *
+ * La création peut être longue sur une collection volumineuse : elle est
+ * lancée en arrière-plan et, tant qu'elle n'est pas terminée, cet indicateur
+ * (inclus dans le groupe readiness) signale le service comme indisponible.
+ */
+@Component
+public class NoteIndexes implements HealthIndicator {
+
+	/**
+	 * Nom de l'index composé (patientId, date) déclaré sur {@link Note}.
+	 */
+	public static final String PATIENT_DATE_INDEX = "patientId_date";
+
+	private static final Logger logger = LogManager.getLogger(NoteIndexes.class);
+
+	private enum State {
+		PENDING, BUILDING, READY, FAILED
+	}
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	private volatile State state = State.PENDING;
+
+	private volatile String failure;
+
+	/**
+	 * Lance la création des index en arrière-plan.
+	 */
+	@EventListener(ApplicationStartedEvent.class)
+	public void onStarted() {
+		CompletableFuture.runAsync(this::ensureIndexes);
+	}
+
+	/**
+	 * Crée les index déclarés sur {@link Note}, puis vérifie les plans des
+	 * recherches par patient.
+	 */
+	public void ensureIndexes() {
+		state = State.BUILDING;
+		try {
+			IndexOperations indexOps = mongoTemplate.indexOps(Note.class);
+			IndexResolver.create(mongoTemplate.getConverter().getMappingContext()).resolveIndexFor(Note.class)
+					.forEach(indexOps::createIndex);
+			state = State.READY;
+			logger.info("Index de la collection {} prêts : {}", mongoTemplate.getCollectionName(Note.class),
+					indexOps.getIndexInfo().stream().map(IndexInfo::getName).toList());
+		} catch (RuntimeException e) {
+			failure = e.getMessage();
+			state = State.FAILED;
+			logger.error("Échec de la création des index des notes : {}", e.getMessage());
+			return;
+		}
+		verifyPlan("patientId", new Document("patientId", "0"));
+		verifyPlan("patientId $in", new Document("patientId", new Document("$in", List.of("0", "1"))));
+	}
+
+	/**
+	 * Journalise les index utilisés par le plan retenu pour un filtre donné.
+	 */
+	private void verifyPlan(String query, Document filter) {
+		try {
+			Document explain = mongoTemplate.getDb()
+					.runCommand(new Document("explain",
+							new Document("find", mongoTemplate.getCollectionName(Note.class)).append("filter", filter)
+									.append("sort", new Document("date", 1)))
+							.append("verbosity", "queryPlanner"));
+			Document queryPlanner = explain.get("queryPlanner", Document.class);
+			List<String> indexes = new ArrayList<>();
+			collectIndexNames(queryPlanner == null ? null : queryPlanner.get("winningPlan"), indexes);
+			if (indexes.contains(PATIENT_DATE_INDEX)) {
+				logger.info("Requête des notes par {} : index {} utilisé", query, PATIENT_DATE_INDEX);
+			} else {
+				logger.warn("Requête des notes par {} : index {} non utilisé (plan : {})", query, PATIENT_DATE_INDEX,
+						indexes.isEmpty() ? "COLLSCAN" : indexes);
+			}
+		} catch (RuntimeException e) {
+			logger.warn("Plan de la requête des notes par {} indisponible : {}", query, e.getMessage());
+		}
+	}
+
+	private static void collectIndexNames(Object plan, List<String> indexes) {
+		if (plan instanceof Document stage) {
+			if ("IXSCAN".equals(stage.getString("stage"))) {
+				indexes.add(stage.getString("indexName"));
+			}
+			stage.values().forEach(value -> collectIndexNames(value, indexes));
+		} else if (plan instanceof List<?> stages) {
+			stages.forEach(value -> collectIndexNames(value, indexes));
+		}
+	}
+
+	@Override
+	public Health health() {
+		return switch (state) {
+		case READY -> Health.up().withDetail("index", PATIENT_DATE_INDEX).build();
+		case FAILED -> Health.down().withDetail("index", PATIENT_DATE_INDEX).withDetail("error", failure).build();
+		default -> Health.outOfService().withDetail("index", PATIENT_DATE_INDEX).withDetail("state", state).build();
+		};
+	}
+}
@@ -1,8 +1,17 @@
 package com.openclassrooms.medilabo.note.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.mongodb.repository.Aggregation;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 import org.springframework.stereotype.Repository;
 
 import com.openclassrooms.medilabo.note.model.Note;
@@ -15,10 +24,11 @@ import com.openclassrooms.medilabo.note.model.Note;
  * findById, delete, etc.).
  * 
  * Elle définit également une méthode de recherche personnalisée pour récupérer
- * les notes associées à un patient donné.
+ * les notes associées à un patient donné, ainsi que les agrégations de
+ * {@link NoteRepositoryCustom}.
  */
 @Repository
-public interface NoteRepository extends MongoRepository<Note, String> {
+public interface NoteRepository extends MongoRepository<Note, String>, NoteRepositoryCustom {
 
 	/**
 	 * Récupère toutes les notes associées à un patient à partir de son identifiant.
@@ -27,4 +37,89 @@ public interface NoteRepository extends MongoRepository<Note, String> {
 	 * @return liste des notes associées à ce patient
 	 */
 	List<Note> getNotesByPatientId(String patientId);
+
+	/**
+	 * Récupère une page des notes d'un patient, par ordre chronologique, à partir
+	 * d'une position de parcours (keyset sur date puis identifiant, appuyé sur
+	 * l'index patientId_date).
+	 * 
+	 * @param patientId identifiant du patient
+	 * @param position  position après laquelle reprendre le parcours
+	 * @param limit     nombre maximal de notes
+	 * @return la page de notes et la position de la dernière
+	 */
+	Window<Note> findByPatientIdOrderByDateAscIdAsc(String patientId, ScrollPosition position, Limit limit);
+
+	/**
+	 * Parcourt les notes d'un patient au moyen d'un curseur MongoDB : les notes
+	 * sont lues par lots au fil du parcours, jamais toutes en mémoire. Le flux
+	 * doit être fermé après usage.
+	 * 
+	 * @param patientId identifiant du patient
+	 * @return flux des notes associées à ce patient
+	 */
+	@Meta(cursorBatchSize = 100)
+	Stream<Note> streamByPatientId(String patientId);
+
+	/**
+	 * Récupère en une seule requête les notes de plusieurs patients.
+	 * 
+	 * @param patientIds identifiants des patients
+	 * @return liste des notes associées à ces patients
+	 */
+	List<Note> findByPatientIdIn(Collection<String> patientIds);
+
+	/**
+	 * Récupère en une seule requête les notes de plusieurs patients, sans leur
+	 * texte.
+	 * 
+	 * @param patientIds identifiants des patients
+	 * @return liste des notes, champ note non renseigné
+	 */
+	@Query(value = "{ 'patientId' : { '$in' : ?0 } }", fields = "{ 'note' : 0 }")
+	List<Note> findWithoutBodyByPatientIdIn(Collection<String> patientIds);
+
+	/**
+	 * Récupère en une seule requête les mots-clés relevés dans les notes de
+	 * plusieurs patients.
+	 * 
+	 * @param patientIds identifiants des patients
+	 * @return liste des notes réduites à patientId, date, triggerMask et
+	 *         triggerCount
+	 */
+	@Query(value = "{ 'patientId' : { '$in' : ?0 } }",
+			fields = "{ 'patientId' : 1, 'date' : 1, 'triggerMask' : 1, 'triggerCount' : 1 }")
+	List<Note> findTriggersByPatientIdIn(Collection<String> patientIds);
+
+	/**
+	 * Récupère un lot de notes dont les mots-clés n'ont pas encore été relevés
+	 * (notes antérieures au calcul à l'enregistrement).
+	 * 
+	 * @param limit nombre maximal de notes
+	 * @return liste des notes sans masque de mots-clés
+	 */
+	List<Note> findByTriggerMaskIsNull(Limit limit);
+
+	/**
+	 * Renseigne les mots-clés relevés d'une note sans modifier sa date de mise à
+	 * jour ni sa version. Une note sans version (antérieure au contrôle des
+	 * versions) reçoit la version 0, exigée pour la modifier.
+	 * 
+	 * @param id           identifiant de la note
+	 * @param triggerMask  masque des mots-clés présents
+	 * @param triggerCount nombre de mots-clés présents
+	 */
+	@Update("{ '$set' : { 'triggerMask' : ?1, 'triggerCount' : ?2 }, '$max' : { 'version' : 0 } }")
+	void findAndSetTriggersById(String id, Long triggerMask, Integer triggerCount);
+
+	/**
+	 * Additionne, côté MongoDB, les mots-clés relevés dans les notes d'un
+	 * patient.
+	 * 
+	 * @param patientId identifiant du patient
+	 * @return nombre total de mots-clés, ou null si le patient n'a aucune note
+	 */
+	@Aggregation(pipeline = { "{ '$match' : { 'patientId' : ?0 } }",
+			"{ '$group' : { '_id' : null, 'total' : { '$sum' : '$triggerCount' } } }" })
+	Integer sumTriggerCountByPatientId(String patientId);
 }
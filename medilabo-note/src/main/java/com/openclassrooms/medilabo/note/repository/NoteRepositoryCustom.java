@@ -0,0 +1,74 @@
+package com.openclassrooms.medilabo.note.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import com.openclassrooms.medilabo.note.model.Note;
+
+/**
+ * Opérations du repository de notes qui ne peuvent pas être exprimées par des
+ * méthodes dérivées ou des annotations.
+ */
+public interface NoteRepositoryCustom {
+
+	/**
+	 * Compte, côté MongoDB, les mots-clés présents dans les notes d'un patient.
+	 * La recherche est insensible à la casse et aux accents, et chaque mot-clé
+	 * n'est compté qu'une fois par note.
+	 *
+	 * @param patientId identifiant du patient
+	 * @param words     mots-clés recherchés
+	 * @return nombre de notes contenant chaque mot-clé, dans l'ordre du
+	 *         vocabulaire
+	 */
+	Map<String, Integer> countTriggerWordsByPatientId(String patientId, List<String> words);
+
+	/**
+	 * Récupère une page de l'ensemble des notes, par identifiant croissant, à
+	 * partir d'une position de parcours (keyset sur _id).
+	 *
+	 * @param position position après laquelle reprendre le parcours
+	 * @param limit    nombre maximal de notes
+	 * @return la page de notes et la position de la dernière
+	 */
+	Window<Note> scrollAllById(ScrollPosition position, Limit limit);
+
+	/**
+	 * Parcourt toutes les notes par identifiant croissant au moyen d'un curseur
+	 * MongoDB, éventuellement à partir d'un identifiant donné. Le flux doit être
+	 * fermé après usage.
+	 *
+	 * @param afterId identifiant après lequel reprendre, ou null pour tout
+	 *                parcourir
+	 * @return flux des notes
+	 */
+	Stream<Note> streamAllAfterId(String afterId);
+
+	/**
+	 * Insère des notes en une écriture groupée non ordonnée : l'échec d'une note
+	 * n'empêche pas l'insertion des autres. Les notes sont écrites telles
+	 * quelles, dates et version comprises.
+	 *
+	 * @param notes notes à insérer
+	 * @return cause de l'échec de chaque note refusée, par position dans la liste
+	 */
+	Map<Integer, String> insertAllUnordered(List<Note> notes);
+
+	/**
+	 * Modifie en une seule opération atomique (findAndModify) le texte, le nom
+	 * du patient, la date de mise à jour et les mots-clés d'une note, et
+	 * incrémente sa version. Les autres champs ne sont pas réécrits.
+	 *
+	 * @param id              identifiant de la note
+	 * @param expectedVersion version attendue de la note
+	 * @param changes         note portant les nouvelles valeurs
+	 * @return la note telle qu'elle était avant modification, ou null si aucune
+	 *         note ne correspond à l'identifiant et à la version
+	 */
+	Note findAndUpdateContent(String id, Long expectedVersion, Note changes);
+}
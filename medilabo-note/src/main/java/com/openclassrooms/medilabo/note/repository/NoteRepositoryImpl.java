@@ -0,0 +1,124 @@
+package com.openclassrooms.medilabo.note.repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.openclassrooms.medilabo.note.model.Note;
+import com.openclassrooms.medilabo.note.service.TriggerWordMatcher;
+
+/**
+ * Implémentation des opérations personnalisées du repository de notes, à
+ * l'aide de MongoTemplate.
+ */
+public class NoteRepositoryImpl implements NoteRepositoryCustom {
+
+	/**
+	 * Nombre de notes lues par aller-retour du curseur d'export.
+	 */
+	private static final int EXPORT_BATCH_SIZE = 500;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	/**
+	 * Le pipeline sélectionne les notes du patient puis, dans un $facet, compte
+	 * pour chaque mot-clé les notes qui le contiennent : seuls ces totaux
+	 * quittent la base.
+	 */
+	@Override
+	public Map<String, Integer> countTriggerWordsByPatientId(String patientId, List<String> words) {
+		Document facets = new Document();
+		for (int i = 0; i < words.size(); i++) {
+			Document regex = new Document("$regex", TriggerWordMatcher.toRegex(words.get(i))).append("$options", "i");
+			facets.append(field(i),
+					List.of(new Document("$match", new Document("note", regex)), new Document("$count", "notes")));
+		}
+
+		List<AggregationOperation> pipeline = new ArrayList<>();
+		pipeline.add(Aggregation.match(Criteria.where("patientId").is(patientId)));
+		pipeline.add(context -> new Document("$facet", facets));
+		Document result = mongoTemplate
+				.aggregate(Aggregation.newAggregation(pipeline), Note.class, Document.class)
+				.getUniqueMappedResult();
+
+		Map<String, Integer> counts = new LinkedHashMap<>();
+		for (int i = 0; i < words.size(); i++) {
+			List<Document> count = result == null ? List.of() : result.getList(field(i), Document.class);
+			counts.put(words.get(i), count.isEmpty() ? 0 : count.get(0).getInteger("notes"));
+		}
+		return counts;
+	}
+
+	/**
+	 * Le critère sur _id, toujours vrai, donne au parcours keyset un filtre
+	 * auquel ajouter sa condition de reprise (il ne sait pas compléter une
+	 * requête vide).
+	 */
+	@Override
+	public Window<Note> scrollAllById(ScrollPosition position, Limit limit) {
+		Query query = Query.query(Criteria.where("id").exists(true)).with(Sort.by("id")).with(position).limit(limit);
+		return mongoTemplate.scroll(query, Note.class);
+	}
+
+	@Override
+	public Stream<Note> streamAllAfterId(String afterId) {
+		Criteria criteria = afterId == null ? Criteria.where("id").exists(true) : Criteria.where("id").gt(afterId);
+		Query query = Query.query(criteria).with(Sort.by("id")).cursorBatchSize(EXPORT_BATCH_SIZE);
+		return mongoTemplate.stream(query, Note.class);
+	}
+
+	/**
+	 * Les notes sont converties en documents avant l'insertion : l'audit n'est
+	 * pas appliqué, ce qui conserve les dates des notes importées.
+	 */
+	@Override
+	public Map<Integer, String> insertAllUnordered(List<Note> notes) {
+		List<Document> documents = new ArrayList<>(notes.size());
+		for (Note note : notes) {
+			Document document = new Document();
+			mongoTemplate.getConverter().write(note, document);
+			documents.add(document);
+		}
+		Map<Integer, String> failures = new LinkedHashMap<>();
+		try {
+			mongoTemplate.bulkOps(BulkMode.UNORDERED, Note.class).insert(documents).execute();
+		} catch (BulkOperationException e) {
+			for (BulkWriteError error : e.getErrors()) {
+				failures.put(error.getIndex(), error.getMessage());
+			}
+		}
+		return failures;
+	}
+
+	@Override
+	public Note findAndUpdateContent(String id, Long expectedVersion, Note changes) {
+		Criteria criteria = Criteria.where("id").is(id).and("version").is(expectedVersion);
+		Update update = new Update().set("note", changes.getNote()).set("patientName", changes.getPatientName())
+				.set("updatedDate", changes.getUpdatedDate()).set("triggerMask", changes.getTriggerMask())
+				.set("triggerCount", changes.getTriggerCount()).inc("version", 1);
+		return mongoTemplate.findAndModify(Query.query(criteria), update, Note.class);
+	}
+
+	private static String field(int index) {
+		return "w" + index;
+	}
+}
@@ -0,0 +1,568 @@
+package com.openclassrooms.medilabo.note.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.medilabo.note.model.Note;
+import com.openclassrooms.medilabo.note.repository.NoteRepository;
+
+/**
+ * Index inversé du texte des notes, tenu en mémoire, pour la recherche
+ * plein texte.
+ *
+ * Le texte est découpé en mots normalisés (minuscules, sans accent, comme pour
+ * les mots-clés déclencheurs). Chaque mot est associé à la liste triée des
+ * numéros internes des notes qui le contiennent, stockée dans un tableau
+ * d'entiers : une recherche ne lit que ces listes et ne touche pas la base.
+ *
+ * Une note modifiée reçoit un nouveau numéro et l'ancien est seulement marqué
+ * périmé ; les listes sont compactées lorsque les numéros périmés deviennent
+ * majoritaires.
+ *
+ * L'index est construit en arrière-plan au démarrage à partir de la
+ * collection, puis tenu à jour par {@link NoteService} à chaque écriture.
+ * Tant que la construction n'est pas terminée, les recherches sont refusées.
+ */
+@Component
+public class NoteSearchIndex {
+
+	/**
+	 * Nombre maximal de mots dans une requête.
+	 */
+	public static final int MAX_QUERY_TERMS = 32;
+
+	/**
+	 * Mot-clé séparant les alternatives d'une requête.
+	 */
+	private static final String OR = "OR";
+
+	/**
+	 * Mot-clé facultatif entre les mots d'une même alternative.
+	 */
+	private static final String AND = "AND";
+
+	/**
+	 * Nombre de numéros périmés en dessous duquel l'index n'est jamais compacté.
+	 */
+	private static final int MIN_STALE_TO_COMPACT = 1024;
+
+	/**
+	 * Nombre de notes au-delà duquel une recherche cesse de compter les
+	 * résultats une fois sa page remplie.
+	 */
+	public static final int MAX_COUNTED_HITS = 1000;
+
+	/**
+	 * Capacité initiale maximale d'une page de résultats.
+	 */
+	private static final int PAGE_CAPACITY = 100;
+
+	private static final Logger logger = LogManager.getLogger(NoteSearchIndex.class);
+
+	private enum State {
+		PENDING, BUILDING, READY, FAILED
+	}
+
+	@Autowired
+	private NoteRepository noteRepository;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<String, Postings> postings = new HashMap<>();
+
+	/**
+	 * Identifiant de la note de chaque numéro interne (null si périmé).
+	 */
+	private final List<String> noteIds = new ArrayList<>();
+
+	private final Map<String, Integer> docsByNoteId = new HashMap<>();
+
+	private int staleDocs;
+
+	private volatile State state = State.PENDING;
+
+	/**
+	 * Liste des numéros des notes contenant un mot, par ordre croissant.
+	 */
+	private static final class Postings {
+
+		private int[] docs = new int[4];
+
+		private int size;
+
+		private void add(int doc) {
+			if (size == docs.length) {
+				docs = Arrays.copyOf(docs, size * 2);
+			}
+			docs[size++] = doc;
+		}
+	}
+
+	/**
+	 * Résultat d'une recherche : nombre de notes trouvées et identifiants de la
+	 * page demandée, les plus récemment indexées d'abord.
+	 */
+	public static final class Hits {
+
+		private final int total;
+
+		private final boolean totalExact;
+
+		private final List<String> noteIds;
+
+		private Hits(int total, boolean totalExact, List<String> noteIds) {
+			this.total = total;
+			this.totalExact = totalExact;
+			this.noteIds = noteIds;
+		}
+
+		public int getTotal() {
+			return total;
+		}
+
+		/**
+		 * @return false si le comptage a été interrompu : total est alors un
+		 *         minimum
+		 */
+		public boolean isTotalExact() {
+			return totalExact;
+		}
+
+		public List<String> getNoteIds() {
+			return noteIds;
+		}
+	}
+
+	/**
+	 * Lance la construction de l'index en arrière-plan.
+	 */
+	@EventListener(ApplicationStartedEvent.class)
+	public void onStarted() {
+		CompletableFuture.runAsync(this::build);
+	}
+
+	/**
+	 * Indexe toutes les notes de la collection.
+	 */
+	public void build() {
+		Stream<Note> notes;
+		try {
+			notes = noteRepository.streamAllAfterId(null);
+		} catch (RuntimeException e) {
+			state = State.FAILED;
+			logger.error("Échec de la construction de l'index de recherche des notes : {}", e.getMessage());
+			return;
+		}
+		build(notes);
+	}
+
+	/**
+	 * Indexe les notes d'un flux, puis ouvre l'index aux recherches. Les notes
+	 * déjà indexées entre-temps par une écriture sont conservées telles quelles :
+	 * leur version est plus récente que celle lue par le curseur.
+	 *
+	 * @param notes flux des notes à indexer, fermé à la fin de la construction
+	 */
+	public void build(Stream<Note> notes) {
+		state = State.BUILDING;
+		long start = System.nanoTime();
+		int indexed = 0;
+		try (notes) {
+			Iterator<Note> iterator = notes.iterator();
+			while (iterator.hasNext()) {
+				if (add(iterator.next(), false)) {
+					indexed++;
+				}
+			}
+		} catch (RuntimeException e) {
+			state = State.FAILED;
+			logger.error("Échec de la construction de l'index de recherche des notes : {}", e.getMessage());
+			return;
+		}
+		state = State.READY;
+		logger.info("Index de recherche des notes prêt : {} notes, {} mots, en {} ms", indexed, termCount(),
+				(System.nanoTime() - start) / 1_000_000);
+	}
+
+	/**
+	 * @return true si l'index a été construit et peut être interrogé
+	 */
+	public boolean isReady() {
+		return state == State.READY;
+	}
+
+	/**
+	 * Indexe une note enregistrée, en remplaçant sa version précédente.
+	 *
+	 * @param note note enregistrée (avec son identifiant)
+	 */
+	public void index(Note note) {
+		add(note, true);
+	}
+
+	private boolean add(Note note, boolean replace) {
+		if (note.getId() == null) {
+			return false;
+		}
+		Set<String> terms = tokenize(note.getNote());
+		lock.writeLock().lock();
+		try {
+			Integer previous = docsByNoteId.get(note.getId());
+			if (previous != null) {
+				if (!replace) {
+					return false;
+				}
+				noteIds.set(previous, null);
+				staleDocs++;
+			}
+			int doc = noteIds.size();
+			noteIds.add(note.getId());
+			docsByNoteId.put(note.getId(), doc);
+			for (String term : terms) {
+				postings.computeIfAbsent(term, t -> new Postings()).add(doc);
+			}
+			if (staleDocs >= MIN_STALE_TO_COMPACT && staleDocs > noteIds.size() / 2) {
+				compact();
+			}
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Renumérote les notes à jour et retire les numéros périmés des listes.
+	 */
+	private void compact() {
+		int[] renumbered = new int[noteIds.size()];
+		int live = 0;
+		for (int doc = 0; doc < noteIds.size(); doc++) {
+			String noteId = noteIds.get(doc);
+			if (noteId == null) {
+				renumbered[doc] = -1;
+			} else {
+				renumbered[doc] = live;
+				noteIds.set(live, noteId);
+				docsByNoteId.put(noteId, live);
+				live++;
+			}
+		}
+		noteIds.subList(live, noteIds.size()).clear();
+		staleDocs = 0;
+
+		Iterator<Postings> iterator = postings.values().iterator();
+		while (iterator.hasNext()) {
+			Postings list = iterator.next();
+			int size = 0;
+			for (int i = 0; i < list.size; i++) {
+				int doc = renumbered[list.docs[i]];
+				if (doc >= 0) {
+					list.docs[size++] = doc;
+				}
+			}
+			if (size == 0) {
+				iterator.remove();
+			} else {
+				list.size = size;
+			}
+		}
+		logger.info("Index de recherche des notes compacté : {} notes", live);
+	}
+
+	/**
+	 * Recherche les notes correspondant à une requête.
+	 *
+	 * La requête est une suite de mots, tous requis (AND facultatif entre eux),
+	 * éventuellement séparée en alternatives par OR : « vertiges cholestérol OR
+	 * fumeur » trouve les notes contenant vertiges et cholestérol, ou fumeur. La
+	 * casse et les accents sont ignorés.
+	 *
+	 * Les listes sont parcourues à rebours, sans copie, et le parcours s'arrête
+	 * dès que la page est remplie et que {@link #MAX_COUNTED_HITS} notes ont été
+	 * comptées : au-delà, le total renvoyé est un minimum. Le total d'une
+	 * recherche sur un seul mot est toujours exact.
+	 *
+	 * @param query  requête
+	 * @param offset nombre de notes à sauter
+	 * @param limit  nombre maximal d'identifiants renvoyés
+	 * @return le nombre de notes trouvées et les identifiants de la page
+	 * @throws IllegalArgumentException si la requête est vide ou trop longue
+	 * @throws IllegalStateException    si l'index n'est pas encore construit
+	 */
+	public Hits search(String query, int offset, int limit) {
+		List<List<String>> clauses = parse(query);
+		if (!isReady()) {
+			throw new IllegalStateException("Index de recherche des notes en cours de construction");
+		}
+		lock.readLock().lock();
+		try {
+			List<Conjunction> conjunctions = new ArrayList<>(clauses.size());
+			for (List<String> clause : clauses) {
+				Conjunction conjunction = conjunction(clause);
+				if (conjunction != null) {
+					conjunctions.add(conjunction);
+				}
+			}
+			if (conjunctions.isEmpty()) {
+				return new Hits(0, true, List.of());
+			}
+			if (conjunctions.size() == 1 && conjunctions.get(0).lists.length == 1 && staleDocs == 0) {
+				return single(conjunctions.get(0).lists[0], offset, limit);
+			}
+
+			long countLimit = Math.max((long) offset + limit, MAX_COUNTED_HITS);
+			Disjunction docs = new Disjunction(conjunctions);
+			List<String> page = new ArrayList<>(Math.min(limit, PAGE_CAPACITY));
+			int total = 0;
+			for (int doc = docs.next(); doc >= 0; doc = docs.next()) {
+				String noteId = noteIds.get(doc);
+				if (noteId == null) {
+					continue;
+				}
+				if (total >= countLimit) {
+					return new Hits(total, false, page);
+				}
+				if (total >= offset && page.size() < limit) {
+					page.add(noteId);
+				}
+				total++;
+			}
+			return new Hits(total, true, page);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Page d'une recherche sur un seul mot, sans note périmée : lue directement
+	 * à la fin de la liste.
+	 */
+	private Hits single(Postings list, int offset, int limit) {
+		List<String> page = new ArrayList<>(Math.min(limit, PAGE_CAPACITY));
+		for (int i = list.size - 1 - offset; i >= 0 && page.size() < limit; i--) {
+			page.add(noteIds.get(list.docs[i]));
+		}
+		return new Hits(list.size, true, page);
+	}
+
+	/**
+	 * @return le parcours d'une alternative, ou null si l'un de ses mots est
+	 *         absent de l'index
+	 */
+	private Conjunction conjunction(List<String> terms) {
+		Postings[] lists = new Postings[terms.size()];
+		for (int i = 0; i < lists.length; i++) {
+			lists[i] = postings.get(terms.get(i));
+			if (lists[i] == null) {
+				return null;
+			}
+		}
+		Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+		return new Conjunction(lists);
+	}
+
+	/**
+	 * Parcours par ordre décroissant des numéros présents dans toutes les listes
+	 * d'une alternative. La plus courte mène ; les autres sont interrogées par
+	 * recherche galopante dans la partie non encore parcourue.
+	 */
+	private static final class Conjunction {
+
+		private final Postings[] lists;
+
+		/**
+		 * Fin (exclue) de la partie non parcourue de chaque liste.
+		 */
+		private final int[] ends;
+
+		private Conjunction(Postings[] lists) {
+			this.lists = lists;
+			this.ends = new int[lists.length];
+			for (int i = 0; i < lists.length; i++) {
+				ends[i] = lists[i].size;
+			}
+		}
+
+		/**
+		 * @return le numéro suivant, ou -1 à la fin du parcours
+		 */
+		private int next() {
+			if (ends[0] == 0) {
+				return -1;
+			}
+			int candidate = lists[0].docs[--ends[0]];
+			int i = 1;
+			while (i < lists.length) {
+				int found = floor(lists[i], ends[i], candidate);
+				if (found < 0) {
+					ends[0] = 0;
+					return -1;
+				}
+				int doc = lists[i].docs[found];
+				if (doc == candidate) {
+					ends[i] = found;
+					i++;
+				} else {
+					ends[i] = found + 1;
+					int lead = floor(lists[0], ends[0], doc);
+					if (lead < 0) {
+						ends[0] = 0;
+						return -1;
+					}
+					ends[0] = lead;
+					candidate = lists[0].docs[lead];
+					i = 1;
+				}
+			}
+			return candidate;
+		}
+
+		/**
+		 * Recherche galopante à rebours depuis end : le numéro cherché est le plus
+		 * souvent proche de la position courante.
+		 *
+		 * @return la position du plus grand numéro inférieur ou égal à doc avant
+		 *         end, ou -1
+		 */
+		private static int floor(Postings list, int end, int doc) {
+			int high = end;
+			int step = 1;
+			int low = end - step;
+			while (low > 0 && list.docs[low] > doc) {
+				high = low;
+				step <<= 1;
+				low = end - step;
+			}
+			int found = Arrays.binarySearch(list.docs, Math.max(low, 0), high, doc);
+			return found >= 0 ? found : -found - 2;
+		}
+	}
+
+	/**
+	 * Parcours par ordre décroissant, sans doublon, des numéros trouvés par au
+	 * moins une alternative.
+	 */
+	private static final class Disjunction {
+
+		private final Conjunction[] conjunctions;
+
+		private final int[] heads;
+
+		private Disjunction(List<Conjunction> conjunctions) {
+			this.conjunctions = conjunctions.toArray(new Conjunction[0]);
+			this.heads = new int[this.conjunctions.length];
+			for (int i = 0; i < heads.length; i++) {
+				heads[i] = this.conjunctions[i].next();
+			}
+		}
+
+		private int next() {
+			int max = -1;
+			for (int head : heads) {
+				max = Math.max(max, head);
+			}
+			if (max >= 0) {
+				for (int i = 0; i < heads.length; i++) {
+					if (heads[i] == max) {
+						heads[i] = conjunctions[i].next();
+					}
+				}
+			}
+			return max;
+		}
+	}
+
+	/**
+	 * Découpe une requête en alternatives, chacune étant une liste de mots
+	 * normalisés.
+	 */
+	static List<List<String>> parse(String query) {
+		List<List<String>> clauses = new ArrayList<>();
+		List<String> clause = new ArrayList<>();
+		int terms = 0;
+		for (String word : query == null ? new String[0] : query.trim().split("\\s+")) {
+			if (OR.equals(word)) {
+				if (!clause.isEmpty()) {
+					clauses.add(clause);
+					clause = new ArrayList<>();
+				}
+			} else if (!AND.equals(word)) {
+				for (String term : tokenize(word)) {
+					if (!clause.contains(term)) {
+						clause.add(term);
+						terms++;
+					}
+				}
+			}
+		}
+		if (!clause.isEmpty()) {
+			clauses.add(clause);
+		}
+		if (clauses.isEmpty()) {
+			throw new IllegalArgumentException("Requête de recherche vide");
+		}
+		if (terms > MAX_QUERY_TERMS) {
+			throw new IllegalArgumentException(
+					"Au plus " + MAX_QUERY_TERMS + " mots par recherche : " + terms);
+		}
+		return clauses;
+	}
+
+	/**
+	 * Découpe un texte en mots normalisés (lettres et chiffres), sans doublon.
+	 * Les accents décomposés sont ignorés, comme dans {@link TriggerWordMatcher}.
+	 *
+	 * @param text texte à découper (peut être null)
+	 * @return les mots distincts du texte
+	 */
+	static Set<String> tokenize(String text) {
+		Set<String> terms = new HashSet<>();
+		if (text == null) {
+			return terms;
+		}
+		StringBuilder term = new StringBuilder();
+		for (int i = 0, n = text.length(); i < n; i++) {
+			char c = text.charAt(i);
+			if (c >= '\u0300' && c <= '\u036F') {
+				continue;
+			}
+			if (Character.isLetterOrDigit(c)) {
+				term.append(TriggerWordMatcher.fold(c));
+			} else if (term.length() > 0) {
+				terms.add(term.toString());
+				term.setLength(0);
+			}
+		}
+		if (term.length() > 0) {
+			terms.add(term.toString());
+		}
+		return terms;
+	}
+
+	private int termCount() {
+		lock.readLock().lock();
+		try {
+			return postings.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+}
@@ -1,12 +1,43 @@
 package com.openclassrooms.medilabo.note.service;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.medilabo.note.enums.NoteProjection;
+import com.openclassrooms.medilabo.note.event.NoteChangedEvent;
+import com.openclassrooms.medilabo.note.model.BulkImportReport;
 import com.openclassrooms.medilabo.note.model.Note;
+import com.openclassrooms.medilabo.note.model.NotePage;
+import com.openclassrooms.medilabo.note.model.NoteSearchResult;
+import com.openclassrooms.medilabo.note.model.TriggerCount;
 import com.openclassrooms.medilabo.note.repository.NoteRepository;
 
 /**
@@ -18,13 +49,77 @@ public class NoteService {
 	@Autowired
 	private NoteRepository noteRepository;
 
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private NoteSearchIndex searchIndex;
+
+	/**
+	 * Nombre maximal de patients par récupération groupée des notes.
+	 */
+	@Value("${notes.patients.max-ids:500}")
+	private int maxPatientIds;
+
+	/**
+	 * Nombre de notes insérées par écriture groupée lors d'un import.
+	 */
+	@Value("${notes.import.chunk-size:1000}")
+	private int importChunkSize;
+
+	/**
+	 * Mots-clés déclencheurs relevés dans les notes, dans l'ordre des bits du
+	 * masque. Doit rester identique à la liste du service de calcul du risque.
+	 */
+	public static final List<String> TRIGGER_WORDS = List.of("hémoglobine a1c", "microalbumine", "taille", "poids",
+			"fumeur", "fumeuse", "anormal", "cholestérol", "vertiges", "rechute", "réaction", "anticorps");
+
+	private static final TriggerWordMatcher TRIGGER_MATCHER = new TriggerWordMatcher(TRIGGER_WORDS);
+
+	/**
+	 * Nombre maximal de mots-clés par agrégation, chacun ajoutant une
+	 * expression au pipeline MongoDB. Limité à la taille du masque des notes :
+	 * un vocabulaire accepté ici peut aussi être relevé à l'enregistrement.
+	 */
+	public static final int MAX_TRIGGER_WORDS = TriggerWordMatcher.MAX_WORDS;
+
+	/**
+	 * Nombre maximal de notes par page.
+	 */
+	@Value("${notes.page.max-size:500}")
+	private int maxPageSize;
+
+	/**
+	 * Nombre maximal de notes renvoyées par les listes non paginées.
+	 */
+	@Value("${notes.list.max-size:1000}")
+	private int maxListSize;
+
+	/**
+	 * Récupère les premières notes de la base de données, dans la limite de
+	 * notes.list.max-size.
+	 * 
+	 * @return la première page des notes, avec le jeton de la suivante si la
+	 *         liste est tronquée
+	 */
+	public NotePage getAllNotes() {
+		return toPage(noteRepository.scrollAllById(ScrollPosition.keyset(), Limit.of(maxListSize)));
+	}
+
 	/**
-	 * Récupère toutes les notes de la base de données.
+	 * Récupère une page de l'ensemble des notes.
 	 * 
-	 * @return la liste des notes
+	 * @param token jeton de continuation renvoyé par la page précédente, ou null
+	 *              pour la première page
+	 * @param size  nombre de notes souhaité, borné par notes.page.max-size
+	 * @return la page de notes
+	 * @throws IllegalArgumentException si le jeton est invalide
 	 */
-	public List<Note> getAllNotes() {
-		return noteRepository.findAll();
+	public NotePage getNotesPage(String token, int size) {
+		return toPage(noteRepository.scrollAllById(decodeToken(token), pageLimit(size)));
 	}
 
 	/**
@@ -38,24 +133,358 @@ public class NoteService {
 	}
 
 	/**
-	 * Récupère une liste de notes de la base de données par l'identifiant d'un
-	 * patient.
+	 * Récupère les notes d'un patient, par ordre chronologique, dans la limite
+	 * de notes.list.max-size.
+	 * 
+	 * @param patientId L'identifiant du patient
+	 * @return la première page des notes du patient, avec le jeton de la suivante
+	 *         si la liste est tronquée
+	 */
+	public NotePage getNotesByPatientId(String patientId) {
+		return toPage(noteRepository.findByPatientIdOrderByDateAscIdAsc(patientId, ScrollPosition.keyset(),
+				Limit.of(maxListSize)));
+	}
+
+	/**
+	 * Récupère une page des notes d'un patient, par ordre chronologique.
+	 * 
+	 * @param patientId L'identifiant du patient
+	 * @param token     jeton de continuation renvoyé par la page précédente, ou
+	 *                  null pour la première page
+	 * @param size      nombre de notes souhaité, borné par notes.page.max-size
+	 * @return la page de notes
+	 * @throws IllegalArgumentException si le jeton est invalide
+	 */
+	public NotePage getNotesPageByPatientId(String patientId, String token, int size) {
+		return toPage(noteRepository.findByPatientIdOrderByDateAscIdAsc(patientId, decodeToken(token),
+				pageLimit(size)));
+	}
+
+	private Limit pageLimit(int size) {
+		return Limit.of(Math.max(1, Math.min(size, maxPageSize)));
+	}
+
+	private static NotePage toPage(Window<Note> window) {
+		String next = window.hasNext() && !window.isEmpty()
+				? encodeToken((KeysetScrollPosition) window.positionAt(window.size() - 1))
+				: null;
+		return new NotePage(window.getContent(), next);
+	}
+
+	/**
+	 * Le jeton est la position keyset (valeurs des clés de tri de la dernière
+	 * note) en JSON étendu, encodée en base64 : les types (date, ObjectId) sont
+	 * conservés.
+	 */
+	private static String encodeToken(KeysetScrollPosition position) {
+		String json = new Document(position.getKeys()).toJson();
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static ScrollPosition decodeToken(String token) {
+		if (token == null || token.isBlank()) {
+			return ScrollPosition.keyset();
+		}
+		try {
+			return ScrollPosition.forward(
+					Document.parse(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)));
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Jeton de continuation invalide", e);
+		}
+	}
+
+	/**
+	 * Parcourt les notes d'un patient sans les charger toutes en mémoire.
 	 * 
 	 * @param patientId L'identifiant du patient
-	 * @return une liste de notes retrouvée avec l'identifiant du patient
+	 * @return un flux de notes, à fermer après usage
 	 */
-	public List<Note> getNotesByPatientId(String patientId) {
-		return noteRepository.getNotesByPatientId(patientId);
+	public Stream<Note> streamNotesByPatientId(String patientId) {
+		return noteRepository.streamByPatientId(patientId);
 	}
 
 	/**
-	 * Enregistre une note dans la base de données.
+	 * Parcourt l'ensemble des notes par identifiant croissant, sans les charger
+	 * toutes en mémoire.
+	 * 
+	 * @param afterId identifiant de la dernière note déjà exportée, ou null pour
+	 *                exporter depuis le début
+	 * @return un flux de notes, à fermer après usage
+	 * @throws IllegalArgumentException si l'identifiant n'est pas un ObjectId
+	 */
+	public Stream<Note> streamAllNotes(String afterId) {
+		if (afterId != null && !ObjectId.isValid(afterId)) {
+			throw new IllegalArgumentException("Identifiant de reprise invalide : " + afterId);
+		}
+		return noteRepository.streamAllAfterId(afterId);
+	}
+
+	/**
+	 * Récupère en une seule requête les notes de plusieurs patients, regroupées
+	 * par identifiant de patient.
+	 * 
+	 * @param patientIds Les identifiants des patients, au plus
+	 *                   notes.patients.max-ids
+	 * @param projection Les champs à renvoyer
+	 * @return les notes de chaque patient (les patients sans note sont absents)
+	 * @throws IllegalArgumentException si trop d'identifiants sont demandés
+	 */
+	public Map<String, List<Note>> getNotesByPatientIds(Collection<String> patientIds, NoteProjection projection) {
+		if (patientIds.size() > maxPatientIds) {
+			throw new IllegalArgumentException(
+					"Au plus " + maxPatientIds + " patients par requête : " + patientIds.size());
+		}
+		List<Note> notes = switch (projection) {
+		case FULL -> noteRepository.findByPatientIdIn(patientIds);
+		case NO_BODY -> noteRepository.findWithoutBodyByPatientIdIn(patientIds);
+		case TRIGGERS -> noteRepository.findTriggersByPatientIdIn(patientIds);
+		};
+		return notes.stream()
+				.collect(Collectors.groupingBy(Note::getPatientId, LinkedHashMap::new, Collectors.toList()));
+	}
+
+	/**
+	 * Recherche des notes par leur texte au moyen de l'index inversé, sans
+	 * parcourir la collection.
+	 * 
+	 * @param query La requête (mots requis, alternatives séparées par OR)
+	 * @param page  Le numéro de page, à partir de 0
+	 * @param size  Le nombre de notes par page, borné par notes.page.max-size
+	 * @return la page de notes trouvées, les plus récentes d'abord
+	 * @throws IllegalArgumentException si la requête est vide ou trop longue
+	 * @throws IllegalStateException    si l'index est en cours de construction
+	 */
+	public NoteSearchResult searchNotes(String query, int page, int size) {
+		int limit = pageLimit(size).max();
+		int offset = Math.max(0, page) * limit;
+		NoteSearchIndex.Hits hits = searchIndex.search(query, offset, limit);
+
+		Map<String, Note> notes = new LinkedHashMap<>();
+		hits.getNoteIds().forEach(id -> notes.put(id, null));
+		noteRepository.findAllById(hits.getNoteIds()).forEach(note -> notes.put(note.getId(), note));
+		notes.values().removeIf(note -> note == null);
+		return new NoteSearchResult(query, hits.getTotal(), hits.isTotalExact(), Math.max(0, page), limit,
+				List.copyOf(notes.values()));
+	}
+
+	/**
+	 * Enregistre une note dans la base de données et publie un
+	 * NoteChangedEvent. Les mots-clés déclencheurs présents dans la note sont
+	 * relevés à cette occasion.
 	 * 
 	 * @param note La note à sauvegarder
 	 * @return la note enregistrée
 	 */
 	public Note saveNote(Note note) {
-		return noteRepository.save(note);
+		boolean created = note.getId() == null;
+		Integer previousTriggerCount = created ? null
+				: noteRepository.findById(note.getId()).map(Note::getTriggerCount).orElse(null);
+		long triggerMask = TRIGGER_MATCHER.match(note.getNote());
+		note.setTriggerMask(triggerMask);
+		note.setTriggerCount(Long.bitCount(triggerMask));
+		Note saved = noteRepository.save(note);
+		searchIndex.index(saved);
+		eventPublisher.publishEvent(new NoteChangedEvent(saved.getId(), saved.getPatientId(),
+				saved.getTriggerCount(), previousTriggerCount, created));
+		return saved;
+	}
+
+	/**
+	 * Met à jour le texte et le nom du patient d'une note en un seul aller-retour
+	 * avec la base, sans réécrire le reste du document. La mise à jour porte la
+	 * version lue par le client et n'est appliquée que si la note n'a pas été
+	 * modifiée depuis.
+	 * 
+	 * @param id     L'identifiant de la note
+	 * @param update Les nouvelles valeurs (note, patientName, version attendue)
+	 * @return la note mise à jour, ou vide si elle n'existe pas
+	 * @throws IllegalArgumentException          si la version attendue est
+	 *                                           absente
+	 * @throws OptimisticLockingFailureException si la note a été modifiée depuis
+	 *                                           la version indiquée
+	 */
+	public Optional<Note> updateNote(String id, Note update) {
+		if (update.getVersion() == null) {
+			throw new IllegalArgumentException("La version attendue de la note " + id + " est obligatoire");
+		}
+		long triggerMask = TRIGGER_MATCHER.match(update.getNote());
+		Note changes = new Note();
+		changes.setNote(update.getNote());
+		changes.setPatientName(update.getPatientName());
+		changes.setUpdatedDate(new Date());
+		changes.setTriggerMask(triggerMask);
+		changes.setTriggerCount(Long.bitCount(triggerMask));
+
+		Note previous = noteRepository.findAndUpdateContent(id, update.getVersion(), changes);
+		if (previous == null) {
+			// Deuxième requête seulement en cas d'échec, pour distinguer les deux cas
+			if (noteRepository.existsById(id)) {
+				throw new OptimisticLockingFailureException(
+						"La note " + id + " a été modifiée depuis la version " + update.getVersion());
+			}
+			return Optional.empty();
+		}
+
+		Integer previousTriggerCount = previous.getTriggerCount();
+		Note updated = previous;
+		updated.setNote(changes.getNote());
+		updated.setPatientName(changes.getPatientName());
+		updated.setUpdatedDate(changes.getUpdatedDate());
+		updated.setTriggerMask(changes.getTriggerMask());
+		updated.setTriggerCount(changes.getTriggerCount());
+		updated.setVersion(previous.getVersion() + 1);
+		searchIndex.index(updated);
+		eventPublisher.publishEvent(new NoteChangedEvent(id, updated.getPatientId(), updated.getTriggerCount(),
+				previousTriggerCount, false));
+		return Optional.of(updated);
+	}
+
+	/**
+	 * Importe en masse un flux NDJSON de notes (une note JSON par ligne).
+	 * 
+	 * Les lignes sont lues une à une, validées puis insérées par lots de
+	 * notes.import.chunk-size au moyen d'écritures groupées non ordonnées. Une
+	 * ligne invalide ou refusée par la base est signalée dans le compte rendu
+	 * sans interrompre l'import. Une notification est publiée par patient et par
+	 * lot, et non par note.
+	 * 
+	 * @param reader flux des notes à importer
+	 * @return le compte rendu de l'import
+	 * @throws IOException si le flux ne peut pas être lu
+	 */
+	public BulkImportReport importNotes(Reader reader) throws IOException {
+		long start = System.nanoTime();
+		BulkImportReport report = new BulkImportReport();
+		List<Note> chunk = new ArrayList<>(importChunkSize);
+		List<Long> chunkLines = new ArrayList<>(importChunkSize);
+		BufferedReader lines = new BufferedReader(reader);
+		long lineNumber = 0;
+		for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+			lineNumber++;
+			if (line.isBlank()) {
+				continue;
+			}
+			report.setReceived(report.getReceived() + 1);
+			Note note;
+			try {
+				note = objectMapper.readValue(line, Note.class);
+			} catch (JsonProcessingException e) {
+				report.addError(lineNumber, "JSON invalide : " + e.getOriginalMessage());
+				continue;
+			}
+			String error = validate(note);
+			if (error != null) {
+				report.addError(lineNumber, error);
+				continue;
+			}
+			long triggerMask = TRIGGER_MATCHER.match(note.getNote());
+			note.setTriggerMask(triggerMask);
+			note.setTriggerCount(Long.bitCount(triggerMask));
+			// Dates d'origine conservées lorsqu'elles sont fournies
+			if (note.getDate() == null) {
+				note.setDate(new Date());
+			}
+			if (note.getUpdatedDate() == null) {
+				note.setUpdatedDate(note.getDate());
+			}
+			note.setVersion(0L);
+			// Identifiant attribué ici pour indexer la note sans la relire
+			if (note.getId() == null) {
+				note.setId(new ObjectId().toHexString());
+			}
+			chunk.add(note);
+			chunkLines.add(lineNumber);
+			if (chunk.size() == importChunkSize) {
+				insertChunk(chunk, chunkLines, report);
+			}
+		}
+		insertChunk(chunk, chunkLines, report);
+
+		long elapsedNanos = System.nanoTime() - start;
+		report.setDurationMs(elapsedNanos / 1_000_000);
+		report.setNotesPerSecond(elapsedNanos == 0 ? 0 : report.getInserted() * 1e9 / elapsedNanos);
+		return report;
+	}
+
+	/**
+	 * Contrôles équivalents aux contraintes de validation de {@link Note}.
+	 * 
+	 * @return le message d'erreur, ou null si la note est valide
+	 */
+	private static String validate(Note note) {
+		if (note.getPatientId() == null || note.getPatientId().isBlank()) {
+			return "L'identifiant du patient est obligatoire";
+		}
+		if (note.getNote() == null || note.getNote().isBlank()) {
+			return "Le commentaire ne peut pas être nul";
+		}
+		return null;
+	}
+
+	private void insertChunk(List<Note> chunk, List<Long> chunkLines, BulkImportReport report) {
+		if (chunk.isEmpty()) {
+			return;
+		}
+		Map<Integer, String> failures = noteRepository.insertAllUnordered(chunk);
+		failures.forEach((index, message) -> report.addError(chunkLines.get(index), message));
+		report.setInserted(report.getInserted() + chunk.size() - failures.size());
+
+		Set<String> patientIds = new LinkedHashSet<>();
+		for (int i = 0; i < chunk.size(); i++) {
+			if (!failures.containsKey(i)) {
+				searchIndex.index(chunk.get(i));
+				patientIds.add(chunk.get(i).getPatientId());
+			}
+		}
+		// Sans nombre de mots-clés : le service de risque recalcule ces patients
+		for (String patientId : patientIds) {
+			eventPublisher.publishEvent(new NoteChangedEvent(null, patientId, null, null, true));
+		}
+		chunk.clear();
+		chunkLines.clear();
+	}
+
+	/**
+	 * Calcule le nombre de mots-clés déclencheurs des notes d'un patient à partir
+	 * des masques enregistrés, sans relire le texte des notes.
+	 * 
+	 * Les notes enregistrées avant l'introduction des masques sont complétées au
+	 * démarrage par {@link TriggerMaskBackfill}.
+	 * 
+	 * @param patientId L'identifiant du patient
+	 * @return le nombre de mots-clés, chacun compté une fois par note
+	 */
+	public TriggerCount getTriggerCountByPatientId(String patientId) {
+		Integer total = noteRepository.sumTriggerCountByPatientId(patientId);
+		return new TriggerCount(patientId, total == null ? 0 : total);
+	}
+
+	/**
+	 * Compte les mots-clés déclencheurs des notes d'un patient par une
+	 * agrégation exécutée dans MongoDB, pour un vocabulaire quelconque : le
+	 * texte des notes ne quitte pas la base.
+	 * 
+	 * @param patientId L'identifiant du patient
+	 * @param words     Les mots-clés recherchés, ou null pour le vocabulaire par
+	 *                  défaut
+	 * @param withHits  true pour détailler le nombre de notes par mot-clé
+	 * @return le nombre de mots-clés, chacun compté une fois par note
+	 * @throws IllegalArgumentException si plus de MAX_TRIGGER_WORDS mots-clés
+	 *                                  sont demandés
+	 */
+	public TriggerCount aggregateTriggerCountByPatientId(String patientId, List<String> words, boolean withHits) {
+		if (words != null && words.size() > MAX_TRIGGER_WORDS) {
+			throw new IllegalArgumentException(
+					"Au plus " + MAX_TRIGGER_WORDS + " mots-clés par agrégation : " + words.size());
+		}
+		List<String> vocabulary = words == null || words.isEmpty() ? TRIGGER_WORDS : words;
+		Map<String, Integer> hits = noteRepository.countTriggerWordsByPatientId(patientId, vocabulary);
+		TriggerCount triggerCount = new TriggerCount(patientId,
+				hits.values().stream().mapToInt(Integer::intValue).sum());
+		if (withHits) {
+			triggerCount.setHits(hits);
+		}
+		return triggerCount;
 	}
 
 }
@@ -0,0 +1,119 @@
+package com.openclassrooms.medilabo.note.service;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.medilabo.note.event.NoteChangedEvent;
+import com.openclassrooms.medilabo.note.model.Note;
+import com.openclassrooms.medilabo.note.repository.NoteRepository;
+
+/**
+ * Migration des notes enregistrées avant le relevé des mots-clés à
+ * l'enregistrement.
+ *
+ * Au démarrage, les notes sans masque de mots-clés sont complétées par lots,
+ * en arrière-plan ; les lectures du nombre de mots-clés n'écrivent donc
+ * jamais en base. Le service de calcul du risque est ensuite notifié pour
+ * chaque patient concerné. Les notes sans version reçoivent au passage la
+ * version 0, exigée pour les modifier.
+ *
+ * Tant que la migration n'est pas terminée, les nombres de mots-clés
+ * précalculés sont sous-estimés : cet indicateur (inclus dans le groupe
+ * readiness) signale alors le service comme indisponible.
+ */
+@Component
+public class TriggerMaskBackfill implements HealthIndicator {
+
+	private static final Logger logger = LogManager.getLogger(TriggerMaskBackfill.class);
+
+	private static final TriggerWordMatcher TRIGGER_MATCHER = new TriggerWordMatcher(NoteService.TRIGGER_WORDS);
+
+	private enum State {
+		PENDING, RUNNING, DONE, FAILED
+	}
+
+	@Autowired
+	private NoteRepository noteRepository;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	/**
+	 * Nombre de notes relues par lot.
+	 */
+	@Value("${notes.triggers.backfill-batch-size:500}")
+	private int batchSize;
+
+	private volatile State state = State.PENDING;
+
+	private volatile int completed;
+
+	private volatile String failure;
+
+	/**
+	 * Lance la migration en arrière-plan.
+	 */
+	@EventListener(ApplicationStartedEvent.class)
+	public void onStarted() {
+		CompletableFuture.runAsync(this::backfill);
+	}
+
+	/**
+	 * Relève les mots-clés de toutes les notes qui n'en ont pas encore.
+	 *
+	 * @return nombre de notes complétées
+	 */
+	public int backfill() {
+		state = State.RUNNING;
+		completed = 0;
+		Set<String> patientIds = new LinkedHashSet<>();
+		try {
+			for (List<Note> notes = noteRepository.findByTriggerMaskIsNull(Limit.of(batchSize)); !notes
+					.isEmpty(); notes = noteRepository.findByTriggerMaskIsNull(Limit.of(batchSize))) {
+				for (Note note : notes) {
+					long triggerMask = TRIGGER_MATCHER.match(note.getNote());
+					noteRepository.findAndSetTriggersById(note.getId(), triggerMask, Long.bitCount(triggerMask));
+					patientIds.add(note.getPatientId());
+				}
+				completed += notes.size();
+			}
+		} catch (RuntimeException e) {
+			failure = e.getMessage();
+			state = State.FAILED;
+			logger.error("Échec du relevé des mots-clés des anciennes notes : {}", e.getMessage());
+			throw e;
+		}
+		state = State.DONE;
+		// Sans nombre de mots-clés : le service de risque recalcule ces patients
+		for (String patientId : patientIds) {
+			eventPublisher.publishEvent(new NoteChangedEvent(null, patientId, null, null, false));
+		}
+		if (completed > 0) {
+			logger.info("Mots-clés relevés pour {} anciennes notes de {} patients", completed, patientIds.size());
+		}
+		return completed;
+	}
+
+	@Override
+	public Health health() {
+		return switch (state) {
+		case DONE -> Health.up().withDetail("completed", completed).build();
+		case FAILED -> Health.down().withDetail("completed", completed).withDetail("error", failure).build();
+		default -> Health.outOfService().withDetail("completed", completed).withDetail("state", state).build();
+		};
+	}
+}
@@ -0,0 +1,402 @@
+package com.openclassrooms.medilabo.note.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import com.openclassrooms.medilabo.note.controller.NoteController;
+import com.openclassrooms.medilabo.note.enums.NoteProjection;
+import com.openclassrooms.medilabo.note.event.NoteChangedEvent;
+import com.openclassrooms.medilabo.note.model.BulkImportReport;
+import com.openclassrooms.medilabo.note.model.BulkImportReport.LineError;
+import com.openclassrooms.medilabo.note.model.Note;
+import com.openclassrooms.medilabo.note.model.NotePage;
+import com.openclassrooms.medilabo.note.model.NoteSearchResult;
+import com.openclassrooms.medilabo.note.service.NoteSearchIndex;
+import com.openclassrooms.medilabo.note.service.NoteService;
+import com.openclassrooms.medilabo.note.service.TriggerMaskBackfill;
+import com.openclassrooms.medilabo.note.service.TriggerWordMatcher;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.ServerVersion;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+
+@DataMongoTest
+public class NoteRepositoryTest {
+
+	/**
+	 * Serveur compatible MongoDB en mémoire, à la place de mongodb-note.
+	 */
+	private static final MongoServer MONGO = new MongoServer(new MemoryBackend().version(ServerVersion.MONGO_5_0));
+
+	private static final InetSocketAddress MONGO_ADDRESS = MONGO.bind();
+
+	@DynamicPropertySource
+	static void mongoProperties(DynamicPropertyRegistry registry) {
+		registry.add("spring.data.mongodb.host", MONGO_ADDRESS::getHostString);
+		registry.add("spring.data.mongodb.port", MONGO_ADDRESS::getPort);
+	}
+
+	@AfterAll
+	static void stopMongo() {
+		MONGO.shutdown();
+	}
+
+	private static final List<String> CONTENTS = List.of("Le patient est FUMEUR, cholesterol anormal",
+			"Hemoglobine A1C élevée, poids et taille à surveiller", "Réaction aux ANTICORPS, réaction cutanée",
+			"Cholestérol normal", "Vertiges, rechute, fumeuse depuis 10 ans",
+			"Re\u0301action rapide (accent décomposé)", "RAS");
+
+	@Autowired
+	private NoteRepository noteRepository;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@BeforeEach
+	void setUp() {
+		noteRepository.deleteAll();
+		for (String content : CONTENTS) {
+			noteRepository.save(note("1", content));
+		}
+		noteRepository.save(note("2", "Fumeur"));
+	}
+
+	private static Note note(String patientId, String content) {
+		Note note = new Note();
+		note.setPatientId(patientId);
+		note.setNote(content);
+		return note;
+	}
+
+	@Test
+	void testAggregationMatchesInMemoryMatcher() {
+		TriggerWordMatcher matcher = new TriggerWordMatcher(NoteService.TRIGGER_WORDS);
+		int expected = CONTENTS.stream().mapToInt(matcher::count).sum();
+
+		Map<String, Integer> hits = noteRepository.countTriggerWordsByPatientId("1", NoteService.TRIGGER_WORDS);
+
+		assertEquals(NoteService.TRIGGER_WORDS, List.copyOf(hits.keySet()));
+		assertEquals(expected, hits.values().stream().mapToInt(Integer::intValue).sum());
+		assertEquals(1, hits.get("fumeur"));
+		assertEquals(1, hits.get("hémoglobine a1c"));
+		// une fois par note, accents composés ou décomposés
+		assertEquals(2, hits.get("réaction"));
+		assertEquals(1, hits.get("anormal"));
+	}
+
+	@Test
+	void testAggregationUsesGivenVocabulary() {
+		Map<String, Integer> hits = noteRepository.countTriggerWordsByPatientId("1", List.of("cutanee", "ans"));
+
+		assertEquals(Map.of("cutanee", 1, "ans", 1), hits);
+		assertEquals(Map.of("cutanee", 0, "ans", 0),
+				noteRepository.countTriggerWordsByPatientId("99", List.of("cutanee", "ans")));
+	}
+
+	@Test
+	void testAggregationRejectsTooManyWords() throws Exception {
+		NoteService noteService = new NoteService();
+		ReflectionTestUtils.setField(noteService, "noteRepository", noteRepository);
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new NoteController(noteService, new ObjectMapper()))
+				.build();
+		String[] words = new String[NoteService.MAX_TRIGGER_WORDS + 1];
+		Arrays.setAll(words, i -> "mot" + i);
+
+		mockMvc.perform(get("/notes/patient/1/triggers/aggregate").param("words", words))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/notes/patient/1/triggers/aggregate").param("words",
+				Arrays.copyOf(words, NoteService.MAX_TRIGGER_WORDS))).andExpect(status().isOk())
+				.andExpect(jsonPath("$.triggerCount").value(0));
+	}
+
+	@Test
+	void testPatientDateIndexIsCreatedBeforeReadiness() {
+		mongoTemplate.indexOps(Note.class).dropAllIndexes();
+		NoteIndexes noteIndexes = new NoteIndexes();
+		ReflectionTestUtils.setField(noteIndexes, "mongoTemplate", mongoTemplate);
+		assertEquals(Status.OUT_OF_SERVICE, noteIndexes.health().getStatus());
+
+		noteIndexes.ensureIndexes();
+
+		assertEquals(Status.UP, noteIndexes.health().getStatus());
+		assertTrue(mongoTemplate.indexOps(Note.class).getIndexInfo().stream().map(IndexInfo::getName)
+				.anyMatch(NoteIndexes.PATIENT_DATE_INDEX::equals));
+	}
+
+	@Test
+	void testKeysetPagesCoverAllNotesOnce() {
+		for (int i = 0; i < 10; i++) {
+			noteRepository.save(note("2", "Note " + i));
+		}
+		NoteService noteService = new NoteService();
+		ReflectionTestUtils.setField(noteService, "noteRepository", noteRepository);
+		ReflectionTestUtils.setField(noteService, "maxPageSize", 4);
+
+		List<String> patientNotes = new ArrayList<>();
+		String token = null;
+		do {
+			NotePage page = noteService.getNotesPageByPatientId("2", token, 100);
+			assertTrue(page.getNotes().size() <= 4);
+			page.getNotes().forEach(note -> patientNotes.add(note.getId()));
+			token = page.getNext();
+		} while (token != null);
+		assertEquals(noteRepository.getNotesByPatientId("2").stream().map(Note::getId).sorted().toList(),
+				patientNotes.stream().sorted().toList());
+
+		List<String> allNotes = new ArrayList<>();
+		token = null;
+		do {
+			NotePage page = noteService.getNotesPage(token, 3);
+			page.getNotes().forEach(note -> allNotes.add(note.getId()));
+			token = page.getNext();
+		} while (token != null);
+		assertEquals(noteRepository.count(), allNotes.size());
+		assertEquals(allNotes.stream().sorted().toList(), allNotes);
+
+		assertThrows(IllegalArgumentException.class, () -> noteService.getNotesPage("pas-un-jeton", 3));
+	}
+
+	@Test
+	void testExportStreamResumesAfterId() {
+		List<String> ids;
+		try (Stream<Note> notes = noteRepository.streamAllAfterId(null)) {
+			ids = notes.map(Note::getId).toList();
+		}
+		assertEquals(noteRepository.count(), ids.size());
+		assertEquals(ids.stream().sorted().toList(), ids);
+
+		try (Stream<Note> notes = noteRepository.streamAllAfterId(ids.get(2))) {
+			assertEquals(ids.subList(3, ids.size()), notes.map(Note::getId).toList());
+		}
+	}
+
+	@Test
+	void testBulkImportReportsLineErrorsAndKeepsGoing() throws Exception {
+		List<Object> events = new ArrayList<>();
+		NoteService noteService = new NoteService();
+		ReflectionTestUtils.setField(noteService, "noteRepository", noteRepository);
+		ReflectionTestUtils.setField(noteService, "objectMapper", new ObjectMapper());
+		ReflectionTestUtils.setField(noteService, "eventPublisher", (ApplicationEventPublisher) events::add);
+		ReflectionTestUtils.setField(noteService, "importChunkSize", 2);
+		ReflectionTestUtils.setField(noteService, "searchIndex", new NoteSearchIndex());
+		String ndjson = """
+				{"patientId":"3","note":"Fumeur, poids"}
+				{"patientId":"3","note":
+				{"patientId":"3","note":" "}
+
+				{"id":"65f000000000000000000001","patientId":"3","note":"Vertiges","date":0}
+				{"id":"65f000000000000000000001","patientId":"4","note":"Doublon"}
+				{"patientId":"4","note":"Taille"}
+				""";
+
+		BulkImportReport report = noteService.importNotes(new StringReader(ndjson));
+
+		assertEquals(6, report.getReceived());
+		assertEquals(3, report.getInserted());
+		assertEquals(List.of(2L, 3L, 6L), report.getErrors().stream().map(LineError::getLine).toList());
+		assertEquals(2, noteRepository.getNotesByPatientId("3").size());
+		Note imported = noteRepository.findById("65f000000000000000000001").orElseThrow();
+		assertEquals(1, imported.getTriggerCount());
+		assertEquals(0, imported.getDate().getTime());
+		assertTrue(noteRepository.getNotesByPatientId("3").stream()
+				.anyMatch(note -> "Fumeur, poids".equals(note.getNote()) && note.getTriggerCount() == 2
+						&& note.getDate() != null));
+		assertFalse(events.isEmpty());
+	}
+
+	@Test
+	void testAtomicUpdateChecksVersion() {
+		NoteService noteService = new NoteService();
+		ReflectionTestUtils.setField(noteService, "noteRepository", noteRepository);
+		ReflectionTestUtils.setField(noteService, "eventPublisher", (ApplicationEventPublisher) event -> {
+		});
+		ReflectionTestUtils.setField(noteService, "searchIndex", new NoteSearchIndex());
+		Note saved = noteRepository.save(note("5", "Poids"));
+		Note update = note(null, "Poids, taille et vertiges");
+		update.setPatientName("Test");
+		update.setVersion(saved.getVersion());
+
+		Note updated = noteService.updateNote(saved.getId(), update).orElseThrow();
+
+		assertEquals(saved.getVersion() + 1, updated.getVersion());
+		assertEquals(3, updated.getTriggerCount());
+		Note stored = noteRepository.findById(saved.getId()).orElseThrow();
+		assertEquals("Poids, taille et vertiges", stored.getNote());
+		assertEquals("5", stored.getPatientId());
+		assertEquals(updated.getVersion(), stored.getVersion());
+		assertNotNull(stored.getUpdatedDate());
+
+		// version périmée : 409 ; note inconnue : 404
+		assertThrows(OptimisticLockingFailureException.class,
+				() -> noteService.updateNote(saved.getId(), update));
+		assertTrue(noteService.updateNote("65f0000000000000000000ff", update).isEmpty());
+	}
+
+	@Test
+	void testUpdateWithoutVersionIsRejected() throws Exception {
+		NoteService noteService = new NoteService();
+		ReflectionTestUtils.setField(noteService, "noteRepository", noteRepository);
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new NoteController(noteService, new ObjectMapper()))
+				.build();
+		Note saved = noteRepository.save(note("5", "Poids"));
+
+		mockMvc.perform(put("/notes/" + saved.getId()).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"patientId\": \"5\", \"note\": \"Vertiges\"}"))
+				.andExpect(status().isPreconditionRequired());
+		assertEquals("Poids", noteRepository.findById(saved.getId()).orElseThrow().getNote());
+	}
+
+	@Test
+	void testMultiPatientFetchProjectsAndIsBounded() {
+		NoteService noteService = new NoteService();
+		ReflectionTestUtils.setField(noteService, "noteRepository", noteRepository);
+		ReflectionTestUtils.setField(noteService, "maxPatientIds", 2);
+
+		Map<String, List<Note>> full = noteService.getNotesByPatientIds(List.of("1", "2"), NoteProjection.FULL);
+		assertEquals(CONTENTS.size(), full.get("1").size());
+		assertEquals("Fumeur", full.get("2").get(0).getNote());
+
+		Map<String, List<Note>> noBody = noteService.getNotesByPatientIds(List.of("2"), NoteProjection.NO_BODY);
+		assertNull(noBody.get("2").get(0).getNote());
+		assertNotNull(noBody.get("2").get(0).getDate());
+
+		Note triggers = noteService.getNotesByPatientIds(List.of("2"), NoteProjection.TRIGGERS).get("2").get(0);
+		assertNull(triggers.getNote());
+		assertNull(triggers.getPatientName());
+		assertEquals("2", triggers.getPatientId());
+
+		assertThrows(IllegalArgumentException.class,
+				() -> noteService.getNotesByPatientIds(List.of("1", "2", "3"), NoteProjection.FULL));
+	}
+
+	@Test
+	void testSearchFindsSavedAndImportedNotes() throws Exception {
+		NoteSearchIndex searchIndex = new NoteSearchIndex();
+		ReflectionTestUtils.setField(searchIndex, "noteRepository", noteRepository);
+		searchIndex.build();
+		NoteService noteService = new NoteService();
+		ReflectionTestUtils.setField(noteService, "noteRepository", noteRepository);
+		ReflectionTestUtils.setField(noteService, "searchIndex", searchIndex);
+		ReflectionTestUtils.setField(noteService, "objectMapper", new ObjectMapper());
+		ReflectionTestUtils.setField(noteService, "eventPublisher", (ApplicationEventPublisher) event -> {
+		});
+		ReflectionTestUtils.setField(noteService, "maxPageSize", 500);
+		ReflectionTestUtils.setField(noteService, "importChunkSize", 10);
+
+		Note saved = noteService.saveNote(note("6", "Vertiges matinaux"));
+		noteService.importNotes(new StringReader("{\"patientId\":\"6\",\"note\":\"Vertiges, cholestérol\"}\n"));
+
+		NoteSearchResult result = noteService.searchNotes("vertiges", 0, 10);
+		assertEquals(3, result.getTotal());
+		assertEquals(List.of("6", "6", "1"), result.getNotes().stream().map(Note::getPatientId).toList());
+		assertEquals(saved.getId(), result.getNotes().get(1).getId());
+		assertEquals(4, noteService.searchNotes("cholesterol OR fumeur", 0, 10).getTotal());
+		assertEquals(1, noteService.searchNotes("vertiges", 1, 2).getNotes().size());
+	}
+
+	private NoteService triggerNoteService(List<Object> events) {
+		NoteService noteService = new NoteService();
+		ReflectionTestUtils.setField(noteService, "noteRepository", noteRepository);
+		ReflectionTestUtils.setField(noteService, "eventPublisher", (ApplicationEventPublisher) events::add);
+		ReflectionTestUtils.setField(noteService, "searchIndex", new NoteSearchIndex());
+		return noteService;
+	}
+
+	@Test
+	void testSaveNoteStoresTriggerMask() {
+		NoteService noteService = triggerNoteService(new ArrayList<>());
+
+		Note saved = noteService.saveNote(note("7", "Fumeur, CHOLESTÉROL anormal, fumeur"));
+
+		Note stored = noteRepository.findById(saved.getId()).orElseThrow();
+		List<String> words = NoteService.TRIGGER_WORDS;
+		long expected = 1L << words.indexOf("fumeur") | 1L << words.indexOf("anormal")
+				| 1L << words.indexOf("cholestérol");
+		assertEquals(expected, stored.getTriggerMask());
+		assertEquals(3, stored.getTriggerCount());
+	}
+
+	@Test
+	void testTriggerCountSumsStoredCountsWithoutWriting() throws Exception {
+		NoteService noteService = triggerNoteService(new ArrayList<>());
+		noteService.saveNote(note("8", "Fumeur, poids"));
+		noteService.saveNote(note("8", "Vertiges"));
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new NoteController(noteService, new ObjectMapper()))
+				.build();
+
+		mockMvc.perform(get("/notes/patient/8/triggers")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.patientId").value("8")).andExpect(jsonPath("$.triggerCount").value(3));
+		mockMvc.perform(get("/notes/patient/99/triggers")).andExpect(jsonPath("$.triggerCount").value(0));
+
+		// les notes sans masque (antérieures au relevé) ne sont pas complétées à la
+		// lecture
+		assertEquals(0, noteService.getTriggerCountByPatientId("1").getTriggerCount());
+		assertEquals(CONTENTS.size(), noteRepository.findByTriggerMaskIsNull(Limit.of(100)).stream()
+				.filter(note -> "1".equals(note.getPatientId())).count());
+	}
+
+	@Test
+	void testBackfillCompletesLegacyNotesAndNotifiesPatients() {
+		List<Object> events = new ArrayList<>();
+		NoteService noteService = triggerNoteService(events);
+		noteService.saveNote(note("2", "Taille"));
+		events.clear();
+		TriggerMaskBackfill backfill = new TriggerMaskBackfill();
+		ReflectionTestUtils.setField(backfill, "noteRepository", noteRepository);
+		ReflectionTestUtils.setField(backfill, "eventPublisher", (ApplicationEventPublisher) events::add);
+		ReflectionTestUtils.setField(backfill, "batchSize", 3);
+		// note antérieure au contrôle des versions
+		mongoTemplate.getCollection(mongoTemplate.getCollectionName(Note.class))
+				.updateOne(Filters.eq("patientId", "1"), Updates.unset("version"));
+		assertTrue(noteRepository.findAll().stream().anyMatch(note -> note.getVersion() == null));
+		assertEquals(Status.OUT_OF_SERVICE, backfill.health().getStatus());
+
+		assertEquals(CONTENTS.size() + 1, backfill.backfill());
+		assertEquals(Status.UP, backfill.health().getStatus());
+
+		assertTrue(noteRepository.findByTriggerMaskIsNull(Limit.of(100)).isEmpty());
+		// version 0 pour la note qui n'en avait pas, les autres ne changent pas
+		assertTrue(noteRepository.findAll().stream().allMatch(note -> Long.valueOf(0).equals(note.getVersion())));
+		TriggerWordMatcher matcher = new TriggerWordMatcher(NoteService.TRIGGER_WORDS);
+		assertEquals(CONTENTS.stream().mapToInt(matcher::count).sum(),
+				noteService.getTriggerCountByPatientId("1").getTriggerCount());
+		assertEquals(2, noteService.getTriggerCountByPatientId("2").getTriggerCount());
+		assertEquals(List.of("1", "2"),
+				events.stream().map(event -> ((NoteChangedEvent) event).getPatientId()).toList());
+		assertTrue(events.stream().allMatch(event -> ((NoteChangedEvent) event).getTriggerCount() == null));
+
+		assertEquals(0, backfill.backfill());
+	}
+}
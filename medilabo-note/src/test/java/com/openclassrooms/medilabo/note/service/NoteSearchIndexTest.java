@@ -0,0 +1,135 @@
+package com.openclassrooms.medilabo.note.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.openclassrooms.medilabo.note.model.Note;
+import com.openclassrooms.medilabo.note.repository.NoteRepository;
+
+public class NoteSearchIndexTest {
+
+	private NoteSearchIndex index;
+
+	private static Note note(String id, String content) {
+		Note note = new Note();
+		note.setId(id);
+		note.setNote(content);
+		return note;
+	}
+
+	@BeforeEach
+	void setUp() {
+		NoteRepository noteRepository = mock(NoteRepository.class);
+		when(noteRepository.streamAllAfterId(null)).thenReturn(Stream.of(note("1", "Vertiges et CHOLESTÉROL élevé"),
+				note("2", "Cholesterol normal"), note("3", "Fumeuse, vertiges"), note("4", "RAS")));
+		index = new NoteSearchIndex();
+		ReflectionTestUtils.setField(index, "noteRepository", noteRepository);
+	}
+
+	@Test
+	void testSearchIsRefusedUntilBuilt() {
+		assertThrows(IllegalStateException.class, () -> index.search("vertiges", 0, 10));
+		index.build();
+		assertTrue(index.isReady());
+	}
+
+	@Test
+	void testTermAndOrQueries() {
+		index.build();
+
+		assertEquals(List.of("2", "1"), index.search("cholestérol", 0, 10).getNoteIds());
+		assertEquals(List.of("1"), index.search("Vertiges CHOLESTEROL", 0, 10).getNoteIds());
+		assertEquals(List.of("1"), index.search("vertiges AND cholesterol", 0, 10).getNoteIds());
+		assertEquals(List.of("3", "1"), index.search("vertiges", 0, 10).getNoteIds());
+		assertEquals(List.of("4", "3", "1"), index.search("ras OR vertiges", 0, 10).getNoteIds());
+		assertEquals(List.of("3", "2"), index.search("fumeuse OR normal OR inconnu", 0, 10).getNoteIds());
+		assertTrue(index.search("vertiges inconnu", 0, 10).getNoteIds().isEmpty());
+		assertThrows(IllegalArgumentException.class, () -> index.search(" OR ", 0, 10));
+	}
+
+	@Test
+	void testPaginationAndUpdates() {
+		index.build();
+		index.index(note("5", "vertiges"));
+		index.index(note("1", "Cholestérol seulement"));
+
+		NoteSearchIndex.Hits hits = index.search("vertiges", 1, 1);
+		assertEquals(2, hits.getTotal());
+		assertEquals(List.of("3"), hits.getNoteIds());
+		assertEquals(List.of("1", "2"), index.search("cholesterol", 0, 10).getNoteIds());
+		assertEquals(0, index.search("eleve", 0, 10).getTotal());
+	}
+
+	@Test
+	void testCompactionKeepsResults() {
+		index.build();
+		Random random = new Random(3);
+		List<String> words = List.of("poids", "taille", "vertiges", "rechute");
+		List<String> contents = new ArrayList<>(List.of("", "", "", ""));
+		for (int i = 0; i < 5000; i++) {
+			int id = random.nextInt(4);
+			contents.set(id, words.get(random.nextInt(words.size())) + " " + words.get(random.nextInt(words.size())));
+			index.index(note(String.valueOf(id + 1), contents.get(id)));
+		}
+
+		for (String word : words) {
+			long expected = contents.stream().filter(content -> content.contains(word)).count();
+			assertEquals(expected, index.search(word, 0, 10).getTotal(), word);
+		}
+	}
+
+	@Test
+	void testQueriesMatchBruteForce() {
+		Random random = new Random(11);
+		List<String> words = List.of("poids", "taille", "vertiges", "rechute", "fumeur", "anormal");
+		List<String> contents = new ArrayList<>();
+		List<Note> notes = new ArrayList<>();
+		for (int i = 0; i < 3000; i++) {
+			String content = words.get(random.nextInt(words.size())) + " "
+					+ words.get(random.nextInt(words.size())) + " " + words.get(random.nextInt(3));
+			contents.add(content);
+			notes.add(note(String.valueOf(i), content));
+		}
+		index.build(notes.stream());
+
+		for (String query : List.of("poids", "poids taille", "vertiges taille poids", "rechute OR anormal fumeur",
+				"fumeur poids OR taille vertiges OR anormal")) {
+			List<String> expected = new ArrayList<>();
+			for (int i = contents.size() - 1; i >= 0; i--) {
+				Set<String> terms = NoteSearchIndex.tokenize(contents.get(i));
+				for (String clause : query.split(" OR ")) {
+					if (terms.containsAll(List.of(clause.split(" ")))) {
+						expected.add(String.valueOf(i));
+						break;
+					}
+				}
+			}
+
+			NoteSearchIndex.Hits hits = index.search(query, 5, 50);
+			assertEquals(expected.subList(5, 55), hits.getNoteIds(), query);
+			if (hits.isTotalExact()) {
+				assertEquals(expected.size(), hits.getTotal(), query);
+			} else {
+				assertEquals(NoteSearchIndex.MAX_COUNTED_HITS, hits.getTotal(), query);
+				assertTrue(expected.size() > NoteSearchIndex.MAX_COUNTED_HITS, query);
+			}
+		}
+		assertTrue(index.search("poids", 0, 1).isTotalExact());
+	}
+
+	@Test
+	void testTokenizeFoldsCaseAndAccents() {
+		assertEquals(Set.of("hemoglobine", "a1c", "reaction"),
+				NoteSearchIndex.tokenize("Hémoglobine A1C, Réaction ; réaction"));
+	}
+}
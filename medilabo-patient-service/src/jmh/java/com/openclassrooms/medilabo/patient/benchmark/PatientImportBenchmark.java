@@ -0,0 +1,107 @@
+package com.openclassrooms.medilabo.patient.benchmark;
+
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.openclassrooms.medilabo.patient.MedilaboSolutionApplication;
+import com.openclassrooms.medilabo.patient.enums.PatientImportFormat;
+import com.openclassrooms.medilabo.patient.model.Patient;
+import com.openclassrooms.medilabo.patient.model.Patient.Gender;
+import com.openclassrooms.medilabo.patient.model.PatientImportReport;
+import com.openclassrooms.medilabo.patient.repository.PatientRepository;
+import com.openclassrooms.medilabo.patient.service.PatientService;
+
+/**
+ * Création de PATIENTS patients, un enregistrement (et une transaction) par
+ * patient comme avec POST /patient, puis par l'import CSV en masse.
+ *
+ * Nécessite une base MySQL (-Djdbc.url, base patientbenchmark sur localhost
+ * par défaut) : sa table patient est vidée après chaque itération. Une URL H2
+ * (jdbc:h2:mem:benchmark) permet de lancer le banc sans serveur, mais sans
+ * les allers-retours réseau que le regroupement évite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PatientImportBenchmark {
+
+	private static final int PATIENTS = 1_000;
+
+	private ConfigurableApplicationContext context;
+
+	private PatientService patientService;
+
+	private PatientRepository patientRepository;
+
+	private String csv;
+
+	@Setup
+	public void setUp() {
+		// Arguments de ligne de commande : prioritaires sur application.properties
+		context = new SpringApplicationBuilder(MedilaboSolutionApplication.class).web(WebApplicationType.NONE)
+				.run("--spring.datasource.url=" + System.getProperty("jdbc.url",
+						"jdbc:mysql://localhost:3306/patientbenchmark?createDatabaseIfNotExist=true&rewriteBatchedStatements=true"),
+						"--spring.datasource.driver-class-name=", "--eureka.client.enabled=false",
+						"--risk.notifications.enabled=false", "--spring.cache.type=none");
+		patientService = context.getBean(PatientService.class);
+		patientRepository = context.getBean(PatientRepository.class);
+
+		StringBuilder lines = new StringBuilder("firstName,lastName,birthDate,gender,address,phone\n");
+		for (int i = 0; i < PATIENTS; i++) {
+			lines.append("Test,Patient").append(i).append(",1970-01-01,").append(i % 2 == 0 ? "F" : "M")
+					.append(",").append(i).append(" rue de la Paix,100-222-3333\n");
+		}
+		csv = lines.toString();
+	}
+
+	@TearDown(Level.Iteration)
+	public void clear() {
+		patientRepository.deleteAllInBatch();
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public int singleInserts() {
+		for (int i = 0; i < PATIENTS; i++) {
+			Patient patient = new Patient();
+			patient.setFirstName("Test");
+			patient.setLastName("Patient" + i);
+			patient.setBirthDate(LocalDate.of(1970, 1, 1));
+			patient.setGender(i % 2 == 0 ? Gender.F : Gender.M);
+			patient.setAddress(i + " rue de la Paix");
+			patient.setPhone("100-222-3333");
+			patientService.savePatient(patient);
+		}
+		return PATIENTS;
+	}
+
+	@Benchmark
+	public long bulkImport() throws Exception {
+		PatientImportReport report = patientService.importPatients(new StringReader(csv), PatientImportFormat.CSV);
+		return report.getInserted();
+	}
+}
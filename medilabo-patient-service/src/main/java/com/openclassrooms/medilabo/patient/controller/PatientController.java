@@ -1,6 +1,9 @@
 package com.openclassrooms.medilabo.patient.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -9,14 +12,26 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.openclassrooms.medilabo.patient.enums.PatientImportFormat;
+import com.openclassrooms.medilabo.patient.enums.PatientProjection;
+import com.openclassrooms.medilabo.patient.enums.PatientSort;
 import com.openclassrooms.medilabo.patient.model.Patient;
+import com.openclassrooms.medilabo.patient.model.PatientBatch;
+import com.openclassrooms.medilabo.patient.model.PatientFilter;
+import com.openclassrooms.medilabo.patient.model.PatientImportReport;
+import com.openclassrooms.medilabo.patient.model.PatientPage;
 import com.openclassrooms.medilabo.patient.service.PatientService;
 
 import jakarta.validation.Valid;
@@ -54,6 +69,33 @@ public class PatientController {
 
 	}
 
+	/**
+	 * Récupère une page de la liste des patients, réduits à leur identité
+	 * (identifiant, prénom, nom, date de naissance, genre).
+	 * 
+	 * @param filter filtres facultatifs : gender, bornFrom et bornTo (dates ISO,
+	 *               incluses)
+	 * @param sort   ordre de la liste : ID (par défaut), LAST_NAME ou BIRTH_DATE
+	 * @param size   nombre de patients souhaité (borné par
+	 *               patients.page.max-size)
+	 * @param token  jeton de continuation de la page précédente (facultatif)
+	 * @return ResponseEntity contenant la page de patients (HTTP 200) ou un code
+	 *         400 si le jeton est invalide
+	 */
+	@GetMapping
+	public ResponseEntity<PatientPage> getPatientsPage(PatientFilter filter,
+			@RequestParam(defaultValue = "ID") PatientSort sort, @RequestParam(defaultValue = "50") int size,
+			@RequestParam(required = false) String token) {
+		try {
+			PatientPage page = patientService.getPatientsPage(filter, sort, token, size);
+			logger.info("Récupération d'une page de {} patients, tri={}", page.getPatients().size(), sort);
+			return ResponseEntity.ok(page);
+		} catch (IllegalArgumentException e) {
+			logger.warn("Jeton de continuation invalide : {}", token);
+			return ResponseEntity.badRequest().build();
+		}
+	}
+
 	/**
 	 * Récupère un patient spécifique par son identifiant.
 	 * 
@@ -71,6 +113,49 @@ public class PatientController {
 		});
 	}
 
+	/**
+	 * Récupère plusieurs patients à partir d'une liste d'identifiants passée
+	 * en paramètre (GET /patient?ids=1,2,3).
+	 * 
+	 * @param ids    identifiants des patients (au plus patients.lookup.max-ids)
+	 * @param fields champs renvoyés : FULL (par défaut) ou RISK
+	 * @return ResponseEntity contenant les patients dans l'ordre demandé et les
+	 *         identifiants inconnus (HTTP 200), ou 400 si trop d'identifiants sont
+	 *         demandés
+	 */
+	@GetMapping(params = "ids")
+	public ResponseEntity<PatientBatch<?>> getPatientsByIdList(@RequestParam List<Integer> ids,
+			@RequestParam(defaultValue = "FULL") PatientProjection fields) {
+		return lookupPatients(ids, fields);
+	}
+
+	/**
+	 * Variante de GET /patient?ids= pour les listes trop longues pour une URL :
+	 * les identifiants sont passés dans le corps de la requête.
+	 * 
+	 * @param ids    identifiants des patients (au plus patients.lookup.max-ids)
+	 * @param fields champs renvoyés : FULL (par défaut) ou RISK
+	 * @return ResponseEntity contenant les patients dans l'ordre demandé et les
+	 *         identifiants inconnus (HTTP 200), ou 400 si trop d'identifiants sont
+	 *         demandés
+	 */
+	@PostMapping("/lookup")
+	public ResponseEntity<PatientBatch<?>> lookupPatients(@RequestBody List<Integer> ids,
+			@RequestParam(defaultValue = "FULL") PatientProjection fields) {
+		try {
+			PatientBatch<?> batch = switch (fields) {
+			case FULL -> patientService.getPatientsByIds(ids);
+			case RISK -> patientService.getPatientRiskProfilesByIds(ids);
+			};
+			logger.info("Récupération de {} patients ({}), {} inconnus", batch.getPatients().size(), fields,
+					batch.getMissing().size());
+			return ResponseEntity.ok(batch);
+		} catch (IllegalArgumentException e) {
+			logger.warn("Récupération groupée des patients refusée : {}", e.getMessage());
+			return ResponseEntity.badRequest().build();
+		}
+	}
+
 	/**
 	 * Crée un nouveau patient.
 	 * 
@@ -86,38 +171,95 @@ public class PatientController {
 	}
 
 	/**
-	 * Met à jour les informations d’un patient existant.
+	 * Importe en masse des patients transmis en CSV, avec une ligne d'en-tête
+	 * nommant les colonnes. Les lignes invalides sont signalées dans le compte
+	 * rendu sans interrompre l'import.
+	 * 
+	 * @param body flux CSV des patients
+	 * @return ResponseEntity contenant le compte rendu de l'import (HTTP 200), ou
+	 *         400 si l'en-tête est invalide
+	 * @throws IOException si le flux ne peut pas être lu
+	 */
+	@PostMapping(value = "/bulk", consumes = "text/csv")
+	public ResponseEntity<PatientImportReport> importPatientsCsv(InputStream body) throws IOException {
+		return importPatients(body, PatientImportFormat.CSV);
+	}
+
+	/**
+	 * Importe en masse des patients transmis en NDJSON (un patient JSON par
+	 * ligne). Les lignes invalides sont signalées dans le compte rendu sans
+	 * interrompre l'import.
+	 * 
+	 * @param body flux NDJSON des patients
+	 * @return ResponseEntity contenant le compte rendu de l'import (HTTP 200)
+	 * @throws IOException si le flux ne peut pas être lu
+	 */
+	@PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<PatientImportReport> importPatientsNdjson(InputStream body) throws IOException {
+		return importPatients(body, PatientImportFormat.NDJSON);
+	}
+
+	private ResponseEntity<PatientImportReport> importPatients(InputStream body, PatientImportFormat format)
+			throws IOException {
+		PatientImportReport report;
+		try {
+			report = patientService.importPatients(new InputStreamReader(body, StandardCharsets.UTF_8), format);
+		} catch (IllegalArgumentException e) {
+			logger.warn("Import de patients refusé : {}", e.getMessage());
+			return ResponseEntity.badRequest().build();
+		}
+		logger.info("Import de patients {} : {} reçus, {} insérés, {} erreurs, {} patients/s", format,
+				report.getReceived(), report.getInserted(), report.getErrorCount(),
+				Math.round(report.getPatientsPerSecond()));
+		return ResponseEntity.ok(report);
+	}
+
+	/**
+	 * Met à jour les informations d’un patient existant, en une seule requête.
+	 * Si le corps porte une version, la mise à jour est refusée lorsque le
+	 * patient a été modifié depuis.
 	 * 
 	 * @param id            identifiant du patient à mettre à jour
-	 * @param updatePatient données du patient mises à jour
-	 * @return ResponseEntity contenant le patient mis à jour, ou 404 si non trouvé
+	 * @param updatePatient données du patient mises à jour et version attendue
+	 * @return ResponseEntity contenant le patient mis à jour, 404 si non trouvé
+	 *         ou 409 si la version est périmée
 	 */
 	@PutMapping("/{id}")
 	public ResponseEntity<Patient> updatePatient(@PathVariable Integer id, @Valid @RequestBody Patient updatePatient) {
-		if (!patientService.getPatientById(id).isPresent()) {
-			logger.warn("Le patient n'existe pas avec id={}", id);
-			return ResponseEntity.notFound().build();
+		try {
+			return patientService.updatePatient(id, updatePatient).map(updated -> {
+				logger.info("Patient mis à jour avec id={}", id);
+				return ResponseEntity.ok(updated);
+			}).orElseGet(() -> {
+				logger.warn("Le patient n'existe pas avec id={}", id);
+				return ResponseEntity.notFound().build();
+			});
+		} catch (OptimisticLockingFailureException e) {
+			logger.warn("Mise à jour concurrente du patient id={} : {}", id, e.getMessage());
+			return ResponseEntity.status(HttpStatus.CONFLICT).build();
 		}
-		updatePatient.setId(id);
-		Patient updated = patientService.savePatient(updatePatient);
-		logger.info("Patient mis à jour avec id={}", id);
-		return ResponseEntity.ok(updated);
 	}
 
 	/**
-	 * Supprime un patient par son identifiant.
+	 * Supprime un patient par son identifiant, en une seule requête.
 	 * 
-	 * @param id identifiant du patient à supprimer
+	 * @param id      identifiant du patient à supprimer
+	 * @param version version attendue du patient (facultative)
 	 * @return ResponseEntity avec code HTTP 204 (No Content) si suppression
-	 *         réussie, ou 404 sinon
+	 *         réussie, 404 si non trouvé ou 409 si la version est périmée
 	 */
 	@DeleteMapping("/{id}")
-	public ResponseEntity<Void> deletePatientById(@PathVariable Integer id) {
-		if (!patientService.getPatientById(id).isPresent()) {
-			logger.warn("Le patient n'existe pas avec id={}", id);
-			return ResponseEntity.notFound().build();
+	public ResponseEntity<Void> deletePatientById(@PathVariable Integer id,
+			@RequestParam(required = false) Long version) {
+		try {
+			if (!patientService.deletePatientById(id, version)) {
+				logger.warn("Le patient n'existe pas avec id={}", id);
+				return ResponseEntity.notFound().build();
+			}
+		} catch (OptimisticLockingFailureException e) {
+			logger.warn("Suppression concurrente du patient id={} : {}", id, e.getMessage());
+			return ResponseEntity.status(HttpStatus.CONFLICT).build();
 		}
-		patientService.deletePatientById(id);
 		logger.info("Patient supprimé avec id={}", id);
 		return ResponseEntity.noContent().build();
 	}
@@ -0,0 +1,51 @@
+package com.openclassrooms.medilabo.patient.endpoint;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.openclassrooms.medilabo.patient.service.PatientServiceImpl;
+
+/**
+ * Endpoint actuator /actuator/patientcache exposant les statistiques du cache
+ * des patients.
+ */
+@Component
+@Endpoint(id = "patientcache")
+public class PatientCacheEndpoint {
+
+	private CacheManager cacheManager;
+
+	public PatientCacheEndpoint(CacheManager cacheManager) {
+		this.cacheManager = cacheManager;
+	}
+
+	/**
+	 * @return activation du cache, nombre de succès et d'échecs, taux de succès,
+	 *         nombre d'évictions et taille du cache
+	 */
+	@ReadOperation
+	public Map<String, Object> statistics() {
+		Map<String, Object> statistics = new LinkedHashMap<>();
+		if (cacheManager.getCache(PatientServiceImpl.PATIENTS_CACHE) instanceof CaffeineCache caffeineCache) {
+			Cache<Object, Object> cache = caffeineCache.getNativeCache();
+			CacheStats stats = cache.stats();
+			statistics.put("enabled", true);
+			statistics.put("hits", stats.hitCount());
+			statistics.put("misses", stats.missCount());
+			statistics.put("hitRate", stats.hitRate());
+			statistics.put("evictions", stats.evictionCount());
+			statistics.put("size", cache.estimatedSize());
+		} else {
+			statistics.put("enabled", false);
+		}
+		return statistics;
+	}
+}
@@ -0,0 +1,13 @@
+package com.openclassrooms.medilabo.patient.enums;
+
+/**
+ * Formats acceptés par l'import de patients en masse.
+ * 
+ * CSV : une ligne d'en-tête nommant les colonnes (firstName, lastName,
+ * birthDate, gender, address, phone) puis un patient par ligne.
+ * 
+ * NDJSON : un patient JSON par ligne.
+ */
+public enum PatientImportFormat {
+	CSV, NDJSON
+}
@@ -0,0 +1,12 @@
+package com.openclassrooms.medilabo.patient.enums;
+
+/**
+ * Champs renvoyés par la récupération groupée des patients.
+ * 
+ * FULL : patients complets.
+ * 
+ * RISK : identifiant, date de naissance et genre seulement (calcul du risque).
+ */
+public enum PatientProjection {
+	FULL, RISK
+}
@@ -0,0 +1,28 @@
+package com.openclassrooms.medilabo.patient.enums;
+
+/**
+ * Ordre de la liste paginée des patients. Chaque ordre est complété par
+ * l'identifiant pour départager les égalités et s'appuie sur un index.
+ * 
+ * ID : par identifiant.
+ * 
+ * LAST_NAME : par nom.
+ * 
+ * BIRTH_DATE : par date de naissance.
+ */
+public enum PatientSort {
+	ID(null), LAST_NAME("lastName"), BIRTH_DATE("birthDate");
+
+	private final String property;
+
+	PatientSort(String property) {
+		this.property = property;
+	}
+
+	/**
+	 * @return la propriété de Patient servant de clé de tri, ou null pour ID
+	 */
+	public String getProperty() {
+		return property;
+	}
+}
@@ -0,0 +1,39 @@
+package com.openclassrooms.medilabo.patient.event;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.openclassrooms.medilabo.patient.service.PatientServiceImpl;
+
+/**
+ * Retire du cache des patients un patient modifié ou supprimé.
+ *
+ * Le cache n'est pas transactionnel : l'éviction n'a lieu qu'une fois la
+ * transaction validée, sinon une lecture concurrente pourrait y remettre
+ * l'ancienne version du patient jusqu'à son expiration.
+ */
+@Component
+public class PatientCacheEvictionListener {
+
+	private CacheManager cacheManager;
+
+	public PatientCacheEvictionListener(CacheManager cacheManager) {
+		this.cacheManager = cacheManager;
+	}
+
+	/**
+	 * Retire le patient du cache.
+	 *
+	 * @param event événement publié par PatientServiceImpl
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void onPatientChanged(PatientChangedEvent event) {
+		Cache cache = cacheManager.getCache(PatientServiceImpl.PATIENTS_CACHE);
+		if (cache != null) {
+			cache.evict(event.getPatientId());
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package com.openclassrooms.medilabo.patient.event;
+
+import java.time.LocalDate;
+
+import com.openclassrooms.medilabo.patient.model.Patient;
+import com.openclassrooms.medilabo.patient.model.Patient.Gender;
+
+/**
+ * Événement publié lorsqu'un patient est créé, modifié ou supprimé.
+ *
+ * Il est transmis tel quel au microservice de calcul du risque afin qu'il
+ * invalide les résultats calculés pour ce patient. La date de naissance et le
+ * genre lui permettent de mettre à jour son état sans relire le patient.
+ */
+public class PatientChangedEvent {
+	private Integer patientId;
+
+	private LocalDate birthDate;
+
+	private Gender gender;
+
+	private boolean deleted;
+
+	public PatientChangedEvent() {
+
+	}
+
+	/**
+	 * Événement de création ou de modification d'un patient.
+	 *
+	 * @param patient le patient enregistré
+	 */
+	public PatientChangedEvent(Patient patient) {
+		this.patientId = patient.getId();
+		this.birthDate = patient.getBirthDate();
+		this.gender = patient.getGender();
+	}
+
+	/**
+	 * Événement de suppression d'un patient.
+	 *
+	 * @param patientId l'id du patient supprimé
+	 */
+	public PatientChangedEvent(Integer patientId) {
+		this.patientId = patientId;
+		this.deleted = true;
+	}
+
+	public Integer getPatientId() {
+		return patientId;
+	}
+
+	public void setPatientId(Integer patientId) {
+		this.patientId = patientId;
+	}
+
+	public LocalDate getBirthDate() {
+		return birthDate;
+	}
+
+	public void setBirthDate(LocalDate birthDate) {
+		this.birthDate = birthDate;
+	}
+
+	public Gender getGender() {
+		return gender;
+	}
+
+	public void setGender(Gender gender) {
+		this.gender = gender;
+	}
+
+	public boolean isDeleted() {
+		return deleted;
+	}
+
+	public void setDeleted(boolean deleted) {
+		this.deleted = deleted;
+	}
+
+}
@@ -0,0 +1,47 @@
+package com.openclassrooms.medilabo.patient.event;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.openclassrooms.medilabo.patient.proxies.MicroserviceRiskProxy;
+
+/**
+ * Transmet les modifications de patients au microservice de calcul du risque.
+ *
+ * L'envoi n'a lieu qu'une fois la transaction validée : le service de risque
+ * ne relit jamais un patient avant la validation ni après une annulation. Il
+ * est asynchrone et ses échecs sont seulement journalisés : l'enregistrement
+ * d'un patient ne dépend jamais de la disponibilité du service de risque.
+ */
+@Component
+@ConditionalOnProperty(name = "risk.notifications.enabled", havingValue = "true", matchIfMissing = true)
+public class RiskNotificationListener {
+
+	private MicroserviceRiskProxy riskProxy;
+	private static final Logger logger = LogManager.getLogger(RiskNotificationListener.class);
+
+	public RiskNotificationListener(MicroserviceRiskProxy riskProxy) {
+		this.riskProxy = riskProxy;
+	}
+
+	/**
+	 * Notifie le service de risque de la modification d'un patient.
+	 *
+	 * @param event événement publié par PatientServiceImpl
+	 */
+	@Async
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void onPatientChanged(PatientChangedEvent event) {
+		try {
+			riskProxy.notifyPatientChanged(event);
+		} catch (Exception e) {
+			logger.warn("Notification du service de risque impossible pour le patient id={} : {}",
+					event.getPatientId(), e.getMessage());
+		}
+	}
+}
@@ -4,12 +4,16 @@ import java.time.LocalDate;
 
 import jakarta.persistence.Id;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -18,13 +22,31 @@ import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 
 @Entity
-@Table(name = "patient")
+@Table(name = "patient", indexes = {
+		@Index(name = "idx_patient_last_name_id", columnList = "lastName, id"),
+		@Index(name = "idx_patient_birth_date_id", columnList = "birthDate, id") })
 public class Patient {
 
+	/**
+	 * Identifiant tiré de la séquence patient_seq (une table sur MySQL) par
+	 * tranches de 50 : les identifiants sont connus avant l'insertion, ce qui
+	 * permet de regrouper les INSERT en lots JDBC. Le nom et le pas sont ceux
+	 * qu'utilisait déjà GenerationType.AUTO.
+	 */
 	@Id
-	@GeneratedValue(strategy = GenerationType.AUTO)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "patient_seq")
+	@SequenceGenerator(name = "patient_seq", sequenceName = "patient_seq", allocationSize = 50)
 	private Integer id;
 
+	/**
+	 * Version du patient, incrémentée à chaque modification : une mise à jour
+	 * portant une version périmée est refusée. La colonne est non nulle pour que
+	 * les patients existants reçoivent la version 0 lors de son ajout.
+	 */
+	@Version
+	@Column(nullable = false)
+	private Long version;
+
 	@NotBlank(message = "Le prénom est obligatoire")
 	@Size(max = 100, message = "Le prénom ne doit pas dépasser 100 caractères")
 	private String firstName;
@@ -57,6 +79,14 @@ public class Patient {
 		this.id = id;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
 	public String getFirstName() {
 		return firstName;
 	}
@@ -0,0 +1,42 @@
+package com.openclassrooms.medilabo.patient.model;
+
+import java.util.List;
+
+/**
+ * Résultat d'une récupération groupée de patients : les patients trouvés,
+ * dans l'ordre des identifiants demandés, et les identifiants inconnus.
+ *
+ * @param <T> représentation des patients (Patient ou PatientRiskProfile)
+ */
+public class PatientBatch<T> {
+
+	private List<T> patients;
+
+	private List<Integer> missing;
+
+	public PatientBatch() {
+
+	}
+
+	public PatientBatch(List<T> patients, List<Integer> missing) {
+		this.patients = patients;
+		this.missing = missing;
+	}
+
+	public List<T> getPatients() {
+		return patients;
+	}
+
+	public void setPatients(List<T> patients) {
+		this.patients = patients;
+	}
+
+	public List<Integer> getMissing() {
+		return missing;
+	}
+
+	public void setMissing(List<Integer> missing) {
+		this.missing = missing;
+	}
+
+}
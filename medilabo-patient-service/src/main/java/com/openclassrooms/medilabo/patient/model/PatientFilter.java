@@ -0,0 +1,47 @@
+package com.openclassrooms.medilabo.patient.model;
+
+import java.time.LocalDate;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import com.openclassrooms.medilabo.patient.model.Patient.Gender;
+
+/**
+ * Filtres facultatifs de la liste des patients. Les bornes de date de
+ * naissance sont incluses.
+ */
+public class PatientFilter {
+
+	private Gender gender;
+
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+	private LocalDate bornFrom;
+
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+	private LocalDate bornTo;
+
+	public Gender getGender() {
+		return gender;
+	}
+
+	public void setGender(Gender gender) {
+		this.gender = gender;
+	}
+
+	public LocalDate getBornFrom() {
+		return bornFrom;
+	}
+
+	public void setBornFrom(LocalDate bornFrom) {
+		this.bornFrom = bornFrom;
+	}
+
+	public LocalDate getBornTo() {
+		return bornTo;
+	}
+
+	public void setBornTo(LocalDate bornTo) {
+		this.bornTo = bornTo;
+	}
+
+}
@@ -0,0 +1,43 @@
+package com.openclassrooms.medilabo.patient.model;
+
+import java.util.List;
+
+/**
+ * Page de patients obtenue par parcours keyset.
+ *
+ * Le jeton de continuation est opaque pour le client : il suffit de le
+ * renvoyer, avec le même tri, pour obtenir la page suivante. Il est null sur
+ * la dernière page.
+ */
+public class PatientPage {
+
+	private List<PatientSummary> patients;
+
+	private String next;
+
+	public PatientPage() {
+
+	}
+
+	public PatientPage(List<PatientSummary> patients, String next) {
+		this.patients = patients;
+		this.next = next;
+	}
+
+	public List<PatientSummary> getPatients() {
+		return patients;
+	}
+
+	public void setPatients(List<PatientSummary> patients) {
+		this.patients = patients;
+	}
+
+	public String getNext() {
+		return next;
+	}
+
+	public void setNext(String next) {
+		this.next = next;
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.openclassrooms.medilabo.patient.model;
+
+import java.time.LocalDate;
+
+import com.openclassrooms.medilabo.patient.model.Patient.Gender;
+
+/**
+ * Vue d'un patient réduite aux données utilisées par le calcul du risque :
+ * seules ces colonnes sont lues en base.
+ */
+public class PatientRiskProfile {
+
+	private Integer id;
+
+	private LocalDate birthDate;
+
+	private Gender gender;
+
+	public PatientRiskProfile() {
+
+	}
+
+	public PatientRiskProfile(Integer id, LocalDate birthDate, Gender gender) {
+		this.id = id;
+		this.birthDate = birthDate;
+		this.gender = gender;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public LocalDate getBirthDate() {
+		return birthDate;
+	}
+
+	public void setBirthDate(LocalDate birthDate) {
+		this.birthDate = birthDate;
+	}
+
+	public Gender getGender() {
+		return gender;
+	}
+
+	public void setGender(Gender gender) {
+		this.gender = gender;
+	}
+
+}
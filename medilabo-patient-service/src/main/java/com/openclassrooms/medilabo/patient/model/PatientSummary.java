@@ -0,0 +1,75 @@
+package com.openclassrooms.medilabo.patient.model;
+
+import java.time.LocalDate;
+
+import com.openclassrooms.medilabo.patient.model.Patient.Gender;
+
+/**
+ * Vue réduite d'un patient pour les listes : seules ces colonnes sont lues en
+ * base.
+ */
+public class PatientSummary {
+
+	private Integer id;
+
+	private String firstName;
+
+	private String lastName;
+
+	private LocalDate birthDate;
+
+	private Gender gender;
+
+	public PatientSummary() {
+
+	}
+
+	public PatientSummary(Integer id, String firstName, String lastName, LocalDate birthDate, Gender gender) {
+		this.id = id;
+		this.firstName = firstName;
+		this.lastName = lastName;
+		this.birthDate = birthDate;
+		this.gender = gender;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public void setFirstName(String firstName) {
+		this.firstName = firstName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+
+	public void setLastName(String lastName) {
+		this.lastName = lastName;
+	}
+
+	public LocalDate getBirthDate() {
+		return birthDate;
+	}
+
+	public void setBirthDate(LocalDate birthDate) {
+		this.birthDate = birthDate;
+	}
+
+	public Gender getGender() {
+		return gender;
+	}
+
+	public void setGender(Gender gender) {
+		this.gender = gender;
+	}
+
+}
@@ -0,0 +1,22 @@
+package com.openclassrooms.medilabo.patient.proxies;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import com.openclassrooms.medilabo.patient.event.PatientChangedEvent;
+
+/**
+ * Proxy Feign pour notifier le microservice de calcul du risque de diabète.
+ */
+@FeignClient(name = "medilabo-risk-diabetes-service")
+public interface MicroserviceRiskProxy {
+
+	/**
+	 * Notifie la modification ou la suppression d'un patient.
+	 *
+	 * @param event identifiant du patient concerné
+	 */
+	@PostMapping(value = "/events/patients")
+	void notifyPatientChanged(@RequestBody PatientChangedEvent event);
+}
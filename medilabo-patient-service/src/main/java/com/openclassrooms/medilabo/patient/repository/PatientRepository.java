@@ -1,16 +1,62 @@
 package com.openclassrooms.medilabo.patient.repository;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.openclassrooms.medilabo.patient.model.Patient;
+import com.openclassrooms.medilabo.patient.model.PatientRiskProfile;
 
 /**
  * Repository Spring Data JPA pour la gestion des entités Patient. Fournit
- * des méthodes CRUD de base, héritées de JpaRepository.
+ * des méthodes CRUD de base, héritées de JpaRepository, et la liste paginée
+ * de {@link PatientRepositoryCustom}.
  */
 
 @Repository
-public interface PatientRepository extends JpaRepository<Patient, Integer>{
-	
+public interface PatientRepository extends JpaRepository<Patient, Integer>, PatientRepositoryCustom {
+
+	/**
+	 * Récupère en une seule requête l'identifiant, la date de naissance et le
+	 * genre de plusieurs patients.
+	 * 
+	 * @param ids identifiants des patients
+	 * @return les patients trouvés, dans un ordre quelconque
+	 */
+	@Query("select new com.openclassrooms.medilabo.patient.model.PatientRiskProfile(p.id, p.birthDate, p.gender) "
+			+ "from Patient p where p.id in :ids")
+	List<PatientRiskProfile> findRiskProfilesByIdIn(@Param("ids") Collection<Integer> ids);
+
+	/**
+	 * Met à jour en une seule requête UPDATE les champs d'un patient et
+	 * incrémente sa version, sans le charger au préalable.
+	 * 
+	 * @param id      identifiant du patient
+	 * @param version version attendue, ou null pour ne pas la vérifier
+	 * @param patient patient portant les nouvelles valeurs
+	 * @return nombre de patients modifiés (0 ou 1)
+	 */
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("update Patient p set p.firstName = :#{#patient.firstName}, p.lastName = :#{#patient.lastName}, "
+			+ "p.birthDate = :#{#patient.birthDate}, p.gender = :#{#patient.gender}, "
+			+ "p.address = :#{#patient.address}, p.phone = :#{#patient.phone}, p.version = p.version + 1 "
+			+ "where p.id = :id and (:version is null or p.version = :version)")
+	int updateIfVersion(@Param("id") Integer id, @Param("version") Long version, @Param("patient") Patient patient);
+
+	/**
+	 * Supprime en une seule requête DELETE un patient, sans le charger au
+	 * préalable.
+	 * 
+	 * @param id      identifiant du patient
+	 * @param version version attendue, ou null pour ne pas la vérifier
+	 * @return nombre de patients supprimés (0 ou 1)
+	 */
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("delete from Patient p where p.id = :id and (:version is null or p.version = :version)")
+	int deleteIfVersion(@Param("id") Integer id, @Param("version") Long version);
 }
@@ -0,0 +1,39 @@
+package com.openclassrooms.medilabo.patient.repository;
+
+import java.util.List;
+
+import com.openclassrooms.medilabo.patient.enums.PatientSort;
+import com.openclassrooms.medilabo.patient.model.Patient;
+import com.openclassrooms.medilabo.patient.model.PatientFilter;
+import com.openclassrooms.medilabo.patient.model.PatientSummary;
+
+/**
+ * Opérations du repository de patients qui ne peuvent pas être exprimées par
+ * des méthodes dérivées.
+ */
+public interface PatientRepositoryCustom {
+
+	/**
+	 * Récupère une page de la liste filtrée des patients, réduits aux colonnes
+	 * de {@link PatientSummary}, par parcours keyset : les patients sont triés
+	 * par clé puis par identifiant, et la page commence après le patient
+	 * indiqué.
+	 *
+	 * @param filter filtres (genre, bornes de date de naissance)
+	 * @param sort   ordre de la liste
+	 * @param after  dernier patient de la page précédente (identifiant et clé de
+	 *               tri), ou null pour la première page
+	 * @param limit  nombre maximal de patients
+	 * @return les patients de la page, dans l'ordre
+	 */
+	List<PatientSummary> findSummaries(PatientFilter filter, PatientSort sort, PatientSummary after, int limit);
+
+	/**
+	 * Insère des nouveaux patients puis vide le contexte de persistance : les
+	 * INSERT partent en lots de hibernate.jdbc.batch_size. Doit être appelé dans
+	 * une transaction.
+	 *
+	 * @param patients patients à insérer, sans identifiant
+	 */
+	void insertAll(List<Patient> patients);
+}
@@ -0,0 +1,84 @@
+package com.openclassrooms.medilabo.patient.repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.openclassrooms.medilabo.patient.enums.PatientSort;
+import com.openclassrooms.medilabo.patient.model.Patient;
+import com.openclassrooms.medilabo.patient.model.PatientFilter;
+import com.openclassrooms.medilabo.patient.model.PatientSummary;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * Implémentation des opérations personnalisées du repository de patients, à
+ * l'aide de l'API Criteria.
+ */
+public class PatientRepositoryImpl implements PatientRepositoryCustom {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/**
+	 * La condition de reprise (clé, id) > (clé précédente, id précédent) et le
+	 * tri (clé, id) correspondent aux index déclarés sur {@link Patient} : la
+	 * base lit directement la page dans l'index, quelle que soit sa position.
+	 */
+	@Override
+	public List<PatientSummary> findSummaries(PatientFilter filter, PatientSort sort, PatientSummary after,
+			int limit) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<PatientSummary> query = cb.createQuery(PatientSummary.class);
+		Root<Patient> patient = query.from(Patient.class);
+		Path<Integer> id = patient.get("id");
+		query.select(cb.construct(PatientSummary.class, id, patient.get("firstName"), patient.get("lastName"),
+				patient.get("birthDate"), patient.get("gender")));
+
+		List<Predicate> predicates = new ArrayList<>();
+		if (filter.getGender() != null) {
+			predicates.add(cb.equal(patient.get("gender"), filter.getGender()));
+		}
+		if (filter.getBornFrom() != null) {
+			predicates.add(cb.greaterThanOrEqualTo(patient.get("birthDate"), filter.getBornFrom()));
+		}
+		if (filter.getBornTo() != null) {
+			predicates.add(cb.lessThanOrEqualTo(patient.get("birthDate"), filter.getBornTo()));
+		}
+		if (after != null) {
+			predicates.add(switch (sort) {
+			case ID -> cb.greaterThan(id, after.getId());
+			case LAST_NAME -> after(cb, patient.<String>get("lastName"), after.getLastName(), id, after.getId());
+			case BIRTH_DATE ->
+				after(cb, patient.<LocalDate>get("birthDate"), after.getBirthDate(), id, after.getId());
+			});
+		}
+		query.where(predicates.toArray(new Predicate[0]));
+		if (sort == PatientSort.ID) {
+			query.orderBy(cb.asc(id));
+		} else {
+			query.orderBy(cb.asc(patient.get(sort.getProperty())), cb.asc(id));
+		}
+		return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+	}
+
+	private static <T extends Comparable<? super T>> Predicate after(CriteriaBuilder cb, Path<T> key, T value,
+			Path<Integer> id, Integer afterId) {
+		return cb.or(cb.greaterThan(key, value), cb.and(cb.equal(key, value), cb.greaterThan(id, afterId)));
+	}
+
+	@Override
+	public void insertAll(List<Patient> patients) {
+		for (Patient patient : patients) {
+			entityManager.persist(patient);
+		}
+		entityManager.flush();
+		entityManager.clear();
+	}
+}
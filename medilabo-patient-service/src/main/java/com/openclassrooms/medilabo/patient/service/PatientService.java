@@ -1,18 +1,38 @@
 package com.openclassrooms.medilabo.patient.service;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import com.openclassrooms.medilabo.patient.enums.PatientImportFormat;
+import com.openclassrooms.medilabo.patient.enums.PatientSort;
 import com.openclassrooms.medilabo.patient.model.Patient;
+import com.openclassrooms.medilabo.patient.model.PatientBatch;
+import com.openclassrooms.medilabo.patient.model.PatientFilter;
+import com.openclassrooms.medilabo.patient.model.PatientImportReport;
+import com.openclassrooms.medilabo.patient.model.PatientPage;
+import com.openclassrooms.medilabo.patient.model.PatientRiskProfile;
 
 public interface PatientService {
 
 	List<Patient> getAllPatients();
 
+	PatientPage getPatientsPage(PatientFilter filter, PatientSort sort, String token, int size);
+
 	Optional<Patient> getPatientById(Integer id);
 
+	PatientBatch<Patient> getPatientsByIds(Collection<Integer> ids);
+
+	PatientBatch<PatientRiskProfile> getPatientRiskProfilesByIds(Collection<Integer> ids);
+
 	Patient savePatient(Patient patient);
 
-	void deletePatientById(Integer id);
+	Optional<Patient> updatePatient(Integer id, Patient patient);
+
+	boolean deletePatientById(Integer id, Long expectedVersion);
+
+	PatientImportReport importPatients(Reader reader, PatientImportFormat format) throws IOException;
 
 }
@@ -1,24 +1,114 @@
 package com.openclassrooms.medilabo.patient.service;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.openclassrooms.medilabo.patient.event.PatientChangedEvent;
+import com.openclassrooms.medilabo.patient.enums.PatientImportFormat;
+import com.openclassrooms.medilabo.patient.enums.PatientSort;
 import com.openclassrooms.medilabo.patient.model.Patient;
+import com.openclassrooms.medilabo.patient.model.Patient.Gender;
+import com.openclassrooms.medilabo.patient.model.PatientBatch;
+import com.openclassrooms.medilabo.patient.model.PatientFilter;
+import com.openclassrooms.medilabo.patient.model.PatientImportReport;
+import com.openclassrooms.medilabo.patient.model.PatientPage;
+import com.openclassrooms.medilabo.patient.model.PatientRiskProfile;
+import com.openclassrooms.medilabo.patient.model.PatientSummary;
 import com.openclassrooms.medilabo.patient.repository.PatientRepository;
 
 /**
  * Implémentation du service de gestion des Patients.
+ * 
+ * Les patients lus par id sont mis en cache (cache "patients"). Chaque
+ * enregistrement ou suppression publie un PatientChangedEvent, qui retire le
+ * patient du cache et notifie le service de risque une fois la transaction
+ * validée (voir PatientCacheEvictionListener et RiskNotificationListener). Les
+ * autres instances du service ne sont pas prévenues : leurs entrées expirent
+ * selon spring.cache.caffeine.spec.
  */
 
 @Service
 public class PatientServiceImpl implements PatientService {
 
+	/**
+	 * Nom du cache des patients, indexé par identifiant.
+	 */
+	public static final String PATIENTS_CACHE = "patients";
+
+	/**
+	 * Colonnes reconnues dans l'en-tête d'un import CSV.
+	 */
+	static final List<String> CSV_COLUMNS = List.of("firstName", "lastName", "birthDate", "gender", "address",
+			"phone");
+
+	private static final Pattern PHONE = Pattern.compile("^(\\+?[0-9 .-]{6,20})?$");
+
 	@Autowired
 	private PatientRepository patientRepository;
 
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	/**
+	 * Nombre de patients insérés par transaction lors d'un import en masse.
+	 */
+	@Value("${patients.import.chunk-size:1000}")
+	private int importChunkSize;
+
+	/**
+	 * Nombre maximal d'identifiants par récupération groupée.
+	 */
+	@Value("${patients.lookup.max-ids:1000}")
+	private int maxLookupIds;
+
+	/**
+	 * Nombre d'identifiants par requête IN, sous les limites de paramètres de la
+	 * base.
+	 */
+	@Value("${patients.lookup.chunk-size:500}")
+	private int lookupChunkSize;
+
+	/**
+	 * Nombre maximal de patients par page.
+	 */
+	@Value("${patients.page.max-size:500}")
+	private int maxPageSize;
+
 	/**
 	 * Récupère tous les patients de la base de données.
 	 * 
@@ -31,19 +121,145 @@ public class PatientServiceImpl implements PatientService {
 	}
 
 	/**
-	 * Récupère un patient de la base de données par son id.
+	 * Récupère une page de la liste des patients, réduits à leur identité, par
+	 * parcours keyset.
+	 * 
+	 * @param filter Les filtres (genre, bornes de date de naissance)
+	 * @param sort   L'ordre de la liste
+	 * @param token  Le jeton de continuation renvoyé par la page précédente, ou
+	 *               null pour la première page
+	 * @param size   Le nombre de patients souhaité, borné par
+	 *               patients.page.max-size
+	 * @return la page de patients
+	 * @throws IllegalArgumentException si le jeton est invalide ou a été émis
+	 *                                  pour un autre tri
+	 */
+
+	@Override
+	public PatientPage getPatientsPage(PatientFilter filter, PatientSort sort, String token, int size) {
+		int limit = Math.max(1, Math.min(size, maxPageSize));
+		// Un patient de plus pour savoir s'il existe une page suivante
+		List<PatientSummary> patients = patientRepository.findSummaries(filter, sort, decodeToken(token, sort),
+				limit + 1);
+		if (patients.size() <= limit) {
+			return new PatientPage(patients, null);
+		}
+		List<PatientSummary> page = patients.subList(0, limit);
+		return new PatientPage(List.copyOf(page), encodeToken(page.get(limit - 1), sort));
+	}
+
+	/**
+	 * Le jeton contient le tri, l'identifiant et la clé de tri du dernier
+	 * patient de la page, encodés en base64.
+	 */
+	private static String encodeToken(PatientSummary last, PatientSort sort) {
+		String key = switch (sort) {
+		case ID -> "";
+		case LAST_NAME -> last.getLastName();
+		case BIRTH_DATE -> last.getBirthDate().toString();
+		};
+		String token = sort.name() + "|" + last.getId() + "|" + key;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static PatientSummary decodeToken(String token, PatientSort sort) {
+		if (token == null || token.isBlank()) {
+			return null;
+		}
+		try {
+			String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			String[] parts = decoded.split("\\|", 3);
+			if (parts.length != 3 || PatientSort.valueOf(parts[0]) != sort) {
+				throw new IllegalArgumentException("Jeton de continuation émis pour un autre tri");
+			}
+			PatientSummary after = new PatientSummary();
+			after.setId(Integer.valueOf(parts[1]));
+			switch (sort) {
+			case LAST_NAME -> after.setLastName(parts[2]);
+			case BIRTH_DATE -> after.setBirthDate(LocalDate.parse(parts[2]));
+			default -> {
+			}
+			}
+			return after;
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Jeton de continuation invalide", e);
+		}
+	}
+
+	/**
+	 * Récupère un patient par son id, depuis le cache ou à défaut la base de
+	 * données. Un patient absent n'est pas mis en cache.
 	 * 
 	 * @param id L'id du patient
 	 * @return le patient retrouvé avec l'id
 	 */
 
 	@Override
+	@Cacheable(cacheNames = PATIENTS_CACHE, key = "#id", unless = "#result == null")
 	public Optional<Patient> getPatientById(Integer id) {
 		return patientRepository.findById(id);
 	}
 
 	/**
-	 * Enregistre un patient dans la base de données.
+	 * Récupère plusieurs patients de la base de données, par requêtes IN de
+	 * patients.lookup.chunk-size identifiants.
+	 * 
+	 * @param ids Les ids des patients, au plus patients.lookup.max-ids
+	 * @return les patients trouvés dans l'ordre des ids, et les ids inconnus
+	 * @throws IllegalArgumentException si trop d'ids sont demandés
+	 */
+
+	@Override
+	public PatientBatch<Patient> getPatientsByIds(Collection<Integer> ids) {
+		return lookup(ids, patientRepository::findAllById, Patient::getId);
+	}
+
+	/**
+	 * Récupère l'identifiant, la date de naissance et le genre de plusieurs
+	 * patients, par requêtes IN de patients.lookup.chunk-size identifiants.
+	 * 
+	 * @param ids Les ids des patients, au plus patients.lookup.max-ids
+	 * @return les patients trouvés dans l'ordre des ids, et les ids inconnus
+	 * @throws IllegalArgumentException si trop d'ids sont demandés
+	 */
+
+	@Override
+	public PatientBatch<PatientRiskProfile> getPatientRiskProfilesByIds(Collection<Integer> ids) {
+		return lookup(ids, patientRepository::findRiskProfilesByIdIn, PatientRiskProfile::getId);
+	}
+
+	private <T> PatientBatch<T> lookup(Collection<Integer> ids, Function<List<Integer>, List<T>> query,
+			Function<T, Integer> idOf) {
+		Set<Integer> unique = new LinkedHashSet<>(ids);
+		unique.remove(null);
+		if (unique.size() > maxLookupIds) {
+			throw new IllegalArgumentException("Au plus " + maxLookupIds + " patients par requête : " + unique.size());
+		}
+		List<Integer> distinct = List.copyOf(unique);
+		Map<Integer, T> found = new HashMap<>();
+		for (int from = 0; from < distinct.size(); from += lookupChunkSize) {
+			List<Integer> chunk = distinct.subList(from, Math.min(from + lookupChunkSize, distinct.size()));
+			for (T patient : query.apply(chunk)) {
+				found.put(idOf.apply(patient), patient);
+			}
+		}
+
+		List<T> patients = new ArrayList<>(found.size());
+		List<Integer> missing = new ArrayList<>();
+		for (Integer id : distinct) {
+			T patient = found.get(id);
+			if (patient == null) {
+				missing.add(id);
+			} else {
+				patients.add(patient);
+			}
+		}
+		return new PatientBatch<>(patients, missing);
+	}
+
+	/**
+	 * Enregistre un patient dans la base de données et publie un
+	 * PatientChangedEvent, qui le retire du cache.
 	 * 
 	 * @param patient Le patient à sauvegarder
 	 * @return le patient enregistré
@@ -51,19 +267,293 @@ public class PatientServiceImpl implements PatientService {
 
 	@Override
 	public Patient savePatient(Patient patient) {
-		return patientRepository.save(patient);
+		Patient saved = patientRepository.save(patient);
+		eventPublisher.publishEvent(new PatientChangedEvent(saved));
+		return saved;
 	}
 
 	/**
-	 * Supprime un patient de la base de données par son id.
+	 * Met à jour un patient existant en une seule requête UPDATE et publie un
+	 * PatientChangedEvent, traité après la validation de la transaction. Si le
+	 * patient porte une version, la mise à jour est refusée lorsqu'il a été
+	 * modifié depuis.
 	 * 
-	 * @param id L'id du patient
+	 * @param id      L'id du patient
+	 * @param patient Les nouvelles valeurs du patient, et la version attendue
+	 * @return le patient mis à jour, ou vide si aucun patient n'a cet id
+	 * @throws OptimisticLockingFailureException si la version est périmée
+	 */
+
+	@Override
+	@Transactional
+	public Optional<Patient> updatePatient(Integer id, Patient patient) {
+		Long expectedVersion = patient.getVersion();
+		if (patientRepository.updateIfVersion(id, expectedVersion, patient) == 0) {
+			checkVersion(id, expectedVersion);
+			return Optional.empty();
+		}
+		patient.setId(id);
+		// Sans version attendue, la nouvelle version n'est pas connue sans relecture
+		patient.setVersion(expectedVersion == null ? null : expectedVersion + 1);
+		eventPublisher.publishEvent(new PatientChangedEvent(patient));
+		return Optional.of(patient);
+	}
+
+	/**
+	 * Supprime un patient de la base de données par son id en une seule requête
+	 * DELETE et publie un PatientChangedEvent, traité après la validation de la
+	 * transaction.
+	 * 
+	 * @param id              L'id du patient
+	 * @param expectedVersion La version attendue, ou null pour ne pas la
+	 *                        vérifier
+	 * @return true si le patient a été supprimé, false si aucun patient n'a cet
+	 *         id
+	 * @throws OptimisticLockingFailureException si la version est périmée
+	 */
+
+	@Override
+	@Transactional
+	public boolean deletePatientById(Integer id, Long expectedVersion) {
+		if (patientRepository.deleteIfVersion(id, expectedVersion) == 0) {
+			checkVersion(id, expectedVersion);
+			return false;
+		}
+		eventPublisher.publishEvent(new PatientChangedEvent(id));
+		return true;
+	}
+
+	/**
+	 * Deuxième requête seulement en cas d'échec, pour distinguer un patient
+	 * inconnu d'une version périmée.
+	 */
+	private void checkVersion(Integer id, Long expectedVersion) {
+		if (expectedVersion != null && patientRepository.existsById(id)) {
+			throw new OptimisticLockingFailureException(
+					"Le patient " + id + " a été modifié depuis la version " + expectedVersion);
+		}
+	}
+
+	/**
+	 * Importe en masse un flux CSV ou NDJSON de patients.
+	 * 
+	 * Les lignes sont lues une à une, validées puis insérées par lots de
+	 * patients.import.chunk-size, chaque lot dans sa propre transaction et en
+	 * INSERT regroupés par JDBC. Une ligne invalide est signalée dans le compte
+	 * rendu sans interrompre l'import ; si la base refuse un lot, ses patients
+	 * sont réessayés un à un pour n'écarter que les lignes en cause. Aucune
+	 * notification n'est publiée : le service de risque ne connaît pas encore
+	 * ces patients.
+	 * 
+	 * @param reader flux des patients à importer
+	 * @param format format du flux
+	 * @return le compte rendu de l'import
+	 * @throws IOException              si le flux ne peut pas être lu
+	 * @throws IllegalArgumentException si l'en-tête CSV est invalide
 	 */
 
 	@Override
-	public void deletePatientById(Integer id) {
-		patientRepository.deleteById(id);
+	public PatientImportReport importPatients(Reader reader, PatientImportFormat format) throws IOException {
+		long start = System.nanoTime();
+		PatientImportReport report = new PatientImportReport();
+		List<Patient> chunk = new ArrayList<>(importChunkSize);
+		List<Long> chunkLines = new ArrayList<>(importChunkSize);
+		BufferedReader lines = new BufferedReader(reader);
+		String[] header = null;
+		long lineNumber = 0;
+		for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+			lineNumber++;
+			if (line.isBlank()) {
+				continue;
+			}
+			if (format == PatientImportFormat.CSV && header == null) {
+				header = readCsvHeader(line);
+				continue;
+			}
+			report.setReceived(report.getReceived() + 1);
+			Patient patient;
+			try {
+				patient = format == PatientImportFormat.CSV ? fromCsv(header, splitCsv(line))
+						: objectMapper.readValue(line, Patient.class);
+			} catch (JsonProcessingException e) {
+				report.addError(lineNumber, "JSON invalide : " + e.getOriginalMessage());
+				continue;
+			} catch (IllegalArgumentException e) {
+				report.addError(lineNumber, e.getMessage());
+				continue;
+			}
+			String error = validate(patient);
+			if (error != null) {
+				report.addError(lineNumber, error);
+				continue;
+			}
+			// Toujours un nouveau patient, identifiant tiré de la séquence
+			patient.setId(null);
+			patient.setVersion(null);
+			chunk.add(patient);
+			chunkLines.add(lineNumber);
+			if (chunk.size() == importChunkSize) {
+				insertChunk(chunk, chunkLines, report);
+			}
+		}
+		insertChunk(chunk, chunkLines, report);
+
+		long elapsedNanos = System.nanoTime() - start;
+		report.setDurationMs(elapsedNanos / 1_000_000);
+		report.setPatientsPerSecond(elapsedNanos == 0 ? 0 : report.getInserted() * 1e9 / elapsedNanos);
+		return report;
+	}
+
+	private void insertChunk(List<Patient> chunk, List<Long> chunkLines, PatientImportReport report) {
+		if (chunk.isEmpty()) {
+			return;
+		}
+		try {
+			transactionTemplate.executeWithoutResult(status -> patientRepository.insertAll(chunk));
+			report.setInserted(report.getInserted() + chunk.size());
+		} catch (DataAccessException | TransactionException e) {
+			for (int i = 0; i < chunk.size(); i++) {
+				Patient patient = chunk.get(i);
+				patient.setId(null);
+				patient.setVersion(null);
+				try {
+					transactionTemplate.executeWithoutResult(status -> patientRepository.insertAll(List.of(patient)));
+					report.setInserted(report.getInserted() + 1);
+				} catch (DataAccessException | TransactionException rowError) {
+					report.addError(chunkLines.get(i), rowError.getMostSpecificCause().getMessage());
+				}
+			}
+		}
+		chunk.clear();
+		chunkLines.clear();
+	}
+
+	/**
+	 * Contrôles équivalents aux contraintes de validation de {@link Patient}.
+	 * 
+	 * @return le message d'erreur, ou null si le patient est valide
+	 */
+	private static String validate(Patient patient) {
+		if (patient.getFirstName() == null || patient.getFirstName().isBlank()) {
+			return "Le prénom est obligatoire";
+		}
+		if (patient.getFirstName().length() > 100) {
+			return "Le prénom ne doit pas dépasser 100 caractères";
+		}
+		if (patient.getLastName() == null || patient.getLastName().isBlank()) {
+			return "Le nom est obligatoire";
+		}
+		if (patient.getLastName().length() > 100) {
+			return "Le nom ne doit pas dépasser 100 caractères";
+		}
+		if (patient.getBirthDate() == null) {
+			return "La date de naissance est obligatoire";
+		}
+		if (!patient.getBirthDate().isBefore(LocalDate.now())) {
+			return "La date de naissance doit être antérieure à aujourd'hui";
+		}
+		if (patient.getGender() == null) {
+			return "Le genre est obligatoire";
+		}
+		if (patient.getAddress() != null && patient.getAddress().length() > 255) {
+			return "L'adresse ne doit pas dépasser 255 caractères";
+		}
+		if (patient.getPhone() != null
+				&& (patient.getPhone().length() > 20 || !PHONE.matcher(patient.getPhone()).matches())) {
+			return "Le numéro de téléphone doit contenir uniquement des chiffres, espaces, +, - et .";
+		}
+		return null;
+	}
 
+	/**
+	 * Associe chaque colonne de l'en-tête CSV à un champ du patient, sans tenir
+	 * compte de la casse.
+	 */
+	private static String[] readCsvHeader(String line) {
+		String[] columns = splitCsv(line.startsWith("\uFEFF") ? line.substring(1) : line);
+		for (int i = 0; i < columns.length; i++) {
+			String column = columns[i].trim();
+			columns[i] = CSV_COLUMNS.stream().filter(column::equalsIgnoreCase).findFirst()
+					.orElseThrow(() -> new IllegalArgumentException("Colonne CSV inconnue : " + column));
+		}
+		for (String required : CSV_COLUMNS.subList(0, 4)) {
+			if (!List.of(columns).contains(required)) {
+				throw new IllegalArgumentException("Colonne CSV manquante : " + required);
+			}
+		}
+		return columns;
+	}
+
+	private static Patient fromCsv(String[] header, String[] fields) {
+		if (fields.length != header.length) {
+			throw new IllegalArgumentException(header.length + " colonnes attendues, " + fields.length + " reçues");
+		}
+		Patient patient = new Patient();
+		for (int i = 0; i < header.length; i++) {
+			String value = fields[i].isEmpty() ? null : fields[i];
+			switch (header[i]) {
+			case "firstName" -> patient.setFirstName(value);
+			case "lastName" -> patient.setLastName(value);
+			case "birthDate" -> patient.setBirthDate(value == null ? null : parseDate(value));
+			case "gender" -> patient.setGender(value == null ? null : parseGender(value));
+			case "address" -> patient.setAddress(value);
+			case "phone" -> patient.setPhone(value);
+			default -> throw new IllegalStateException(header[i]);
+			}
+		}
+		return patient;
+	}
+
+	private static LocalDate parseDate(String value) {
+		try {
+			return LocalDate.parse(value.trim());
+		} catch (DateTimeParseException e) {
+			throw new IllegalArgumentException("Date de naissance invalide (AAAA-MM-JJ attendu) : " + value);
+		}
+	}
+
+	private static Gender parseGender(String value) {
+		try {
+			return Gender.valueOf(value.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Genre invalide (M ou F attendu) : " + value);
+		}
+	}
+
+	/**
+	 * Découpe une ligne CSV : champs séparés par des virgules, éventuellement
+	 * entre guillemets (un guillemet doublé vaut un guillemet). Un champ ne peut
+	 * pas s'étendre sur plusieurs lignes.
+	 */
+	static String[] splitCsv(String line) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c != '"') {
+					field.append(c);
+				} else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else {
+					quoted = false;
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		if (quoted) {
+			throw new IllegalArgumentException("Guillemet non fermé");
+		}
+		fields.add(field.toString());
+		return fields.toArray(new String[0]);
 	}
 
 }
@@ -0,0 +1,409 @@
+package com.openclassrooms.medilabo.patient.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.cache.CacheType;
+import org.springframework.boot.test.autoconfigure.core.AutoConfigureCache;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.medilabo.patient.controller.PatientController;
+import com.openclassrooms.medilabo.patient.enums.PatientImportFormat;
+import com.openclassrooms.medilabo.patient.event.PatientCacheEvictionListener;
+import com.openclassrooms.medilabo.patient.event.RiskNotificationListener;
+import com.openclassrooms.medilabo.patient.enums.PatientSort;
+import com.openclassrooms.medilabo.patient.model.Patient;
+import com.openclassrooms.medilabo.patient.model.Patient.Gender;
+import com.openclassrooms.medilabo.patient.model.PatientBatch;
+import com.openclassrooms.medilabo.patient.model.PatientFilter;
+import com.openclassrooms.medilabo.patient.model.PatientImportReport;
+import com.openclassrooms.medilabo.patient.model.PatientImportReport.LineError;
+import com.openclassrooms.medilabo.patient.model.PatientPage;
+import com.openclassrooms.medilabo.patient.model.PatientRiskProfile;
+import com.openclassrooms.medilabo.patient.proxies.MicroserviceRiskProxy;
+import com.openclassrooms.medilabo.patient.service.PatientServiceImpl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureCache(cacheProvider = CacheType.SIMPLE)
+@Import({ RiskNotificationListener.class, PatientCacheEvictionListener.class })
+public class PatientRepositoryTest {
+
+	@MockitoBean
+	private MicroserviceRiskProxy riskProxy;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private PatientRepository patientRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private PatientServiceImpl patientService;
+
+	private Statistics statistics;
+
+	private Patient saved;
+
+	@BeforeEach
+	void setUp() {
+		patientService = new PatientServiceImpl();
+		ReflectionTestUtils.setField(patientService, "patientRepository", patientRepository);
+		ReflectionTestUtils.setField(patientService, "eventPublisher", eventPublisher);
+		ReflectionTestUtils.setField(patientService, "transactionTemplate", transactionTemplate);
+		ReflectionTestUtils.setField(patientService, "objectMapper", new ObjectMapper().findAndRegisterModules());
+		ReflectionTestUtils.setField(patientService, "importChunkSize", 50);
+		ReflectionTestUtils.setField(patientService, "maxPageSize", 500);
+		ReflectionTestUtils.setField(patientService, "maxLookupIds", 5);
+		ReflectionTestUtils.setField(patientService, "lookupChunkSize", 2);
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		saved = patientRepository.saveAndFlush(patient("Test"));
+		entityManager.clear();
+		statistics.clear();
+	}
+
+	private static Patient patient(String lastName) {
+		Patient patient = new Patient();
+		patient.setFirstName("Test");
+		patient.setLastName(lastName);
+		patient.setBirthDate(LocalDate.of(1966, 12, 31));
+		patient.setGender(Gender.F);
+		return patient;
+	}
+
+	private Patient changes(Long version) {
+		Patient changes = patient("Modifié");
+		changes.setVersion(version);
+		return changes;
+	}
+
+	@Test
+	void testUpdateIsASingleStatement() {
+		assertEquals(0L, saved.getVersion());
+
+		Patient updated = patientService.updatePatient(saved.getId(), changes(0L)).orElseThrow();
+
+		assertEquals(1, statistics.getPrepareStatementCount());
+		assertEquals(1L, updated.getVersion());
+		Patient reloaded = patientRepository.findById(saved.getId()).orElseThrow();
+		assertEquals("Modifié", reloaded.getLastName());
+		assertEquals(1L, reloaded.getVersion());
+	}
+
+	@Test
+	void testUpdateWithoutVersionIsNotChecked() {
+		assertTrue(patientService.updatePatient(saved.getId(), changes(null)).isPresent());
+
+		assertEquals(1, statistics.getPrepareStatementCount());
+		assertEquals(1L, patientRepository.findById(saved.getId()).orElseThrow().getVersion());
+	}
+
+	@Test
+	void testStaleUpdateIsRejected() {
+		patientService.updatePatient(saved.getId(), changes(0L));
+		statistics.clear();
+
+		assertThrows(OptimisticLockingFailureException.class,
+				() -> patientService.updatePatient(saved.getId(), changes(0L)));
+		// UPDATE sans effet puis vérification d'existence
+		assertEquals(2, statistics.getPrepareStatementCount());
+		assertEquals(1L, patientRepository.findById(saved.getId()).orElseThrow().getVersion());
+	}
+
+	@Test
+	void testUpdateOfUnknownPatientIsEmpty() {
+		assertTrue(patientService.updatePatient(-1, changes(null)).isEmpty());
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void testDeleteIsASingleStatement() {
+		assertTrue(patientService.deletePatientById(saved.getId(), null));
+
+		assertEquals(1, statistics.getPrepareStatementCount());
+		assertFalse(patientRepository.existsById(saved.getId()));
+	}
+
+	@Test
+	void testDeleteChecksVersion() {
+		assertThrows(OptimisticLockingFailureException.class,
+				() -> patientService.deletePatientById(saved.getId(), 5L));
+		assertTrue(patientService.deletePatientById(saved.getId(), 0L));
+		assertFalse(patientService.deletePatientById(saved.getId(), 0L));
+	}
+
+	@Test
+	void testCsvImportIsBatchedAndReportsLineErrors() throws Exception {
+		StringBuilder csv = new StringBuilder("\uFEFFLastName,firstName,gender,birthDate,address\n");
+		for (int i = 0; i < 120; i++) {
+			csv.append("Import").append(i).append(",Test,f,1980-01-01,\"1 rue \"\"A\"\", Paris\"\n");
+		}
+		csv.append("Invalide,Test,F,01/01/1980,\n"); // ligne 122
+		csv.append(",Test,M,1980-01-01,\n");
+		csv.append("Invalide,Test,X,1980-01-01,\n");
+		csv.append("Invalide,Test\n");
+
+		PatientImportReport report = patientService.importPatients(new StringReader(csv.toString()),
+				PatientImportFormat.CSV);
+
+		assertEquals(124, report.getReceived());
+		assertEquals(120, report.getInserted());
+		assertEquals(List.of(122L, 123L, 124L, 125L), report.getErrors().stream().map(LineError::getLine).toList());
+		assertEquals(120, statistics.getEntityInsertCount());
+		// INSERT regroupés par lot de 50 et identifiants tirés par tranches de 50
+		assertTrue(statistics.getPrepareStatementCount() < 10, "requêtes : " + statistics.getPrepareStatementCount());
+
+		Patient imported = patientRepository.findAll().stream().filter(p -> "Import7".equals(p.getLastName()))
+				.findFirst().orElseThrow();
+		assertEquals(Gender.F, imported.getGender());
+		assertEquals("1 rue \"A\", Paris", imported.getAddress());
+		assertEquals(0L, imported.getVersion());
+	}
+
+	@Test
+	void testNdjsonImportAssignsNewIds() throws Exception {
+		String ndjson = "{\"id\":" + saved.getId() + ",\"firstName\":\"Test\",\"lastName\":\"Json\","
+				+ "\"birthDate\":\"1990-05-01\",\"gender\":\"M\"}\n" //
+				+ "{\"firstName\":\"Test\",\"lastName\":\"Json\",\"birthDate\":\"2990-05-01\",\"gender\":\"M\"}\n"
+				+ "\n" //
+				+ "{\"firstName\": \n";
+
+		PatientImportReport report = patientService.importPatients(new StringReader(ndjson),
+				PatientImportFormat.NDJSON);
+
+		assertEquals(3, report.getReceived());
+		assertEquals(1, report.getInserted());
+		assertEquals(List.of(2L, 4L), report.getErrors().stream().map(LineError::getLine).toList());
+		assertEquals(2, patientRepository.count());
+		assertEquals("Test", patientRepository.findById(saved.getId()).orElseThrow().getLastName());
+	}
+
+	@Test
+	void testCsvImportRejectsUnknownColumn() {
+		assertThrows(IllegalArgumentException.class, () -> patientService.importPatients(
+				new StringReader("lastName,firstName,birthDate,gender,email\n"), PatientImportFormat.CSV));
+	}
+
+	/**
+	 * Patients partageant des noms et des dates de naissance, pour que les pages
+	 * se coupent au milieu des égalités.
+	 */
+	private List<Patient> seedListing() {
+		List<Patient> patients = new ArrayList<>(List.of(saved));
+		String[] lastNames = { "Dupont", "Martin", "Dupont", "Bernard", "Dupont", "Martin", "Albert" };
+		String[] birthDates = { "1980-01-01", "1975-06-15", "1980-01-01", "1990-03-03", "1975-06-15", "1980-01-01",
+				"2001-09-09" };
+		Gender[] genders = { Gender.M, Gender.F, Gender.F, Gender.M, Gender.M, Gender.F, Gender.M };
+		for (int i = 0; i < lastNames.length; i++) {
+			Patient patient = patient(lastNames[i]);
+			patient.setBirthDate(LocalDate.parse(birthDates[i]));
+			patient.setGender(genders[i]);
+			patients.add(patientRepository.save(patient));
+		}
+		patientRepository.flush();
+		entityManager.clear();
+		return patients;
+	}
+
+	private List<Integer> walk(PatientFilter filter, PatientSort sort, int size) {
+		List<Integer> ids = new ArrayList<>();
+		String token = null;
+		do {
+			PatientPage page = patientService.getPatientsPage(filter, sort, token, size);
+			assertTrue(page.getPatients().size() <= size);
+			page.getPatients().forEach(patient -> ids.add(patient.getId()));
+			token = page.getNext();
+		} while (token != null);
+		return ids;
+	}
+
+	private static Comparator<Patient> order(PatientSort sort) {
+		return switch (sort) {
+		case ID -> Comparator.comparing(Patient::getId);
+		case LAST_NAME -> Comparator.comparing(Patient::getLastName).thenComparing(Patient::getId);
+		case BIRTH_DATE -> Comparator.comparing(Patient::getBirthDate).thenComparing(Patient::getId);
+		};
+	}
+
+	@Test
+	void testPageWalkFollowsEachSortThroughTies() {
+		List<Patient> patients = seedListing();
+
+		for (PatientSort sort : PatientSort.values()) {
+			List<Integer> expected = patients.stream().sorted(order(sort)).map(Patient::getId).toList();
+			for (int size = 1; size <= 3; size++) {
+				assertEquals(expected, walk(new PatientFilter(), sort, size), sort + ", pages de " + size);
+			}
+		}
+	}
+
+	@Test
+	void testPageWalkAppliesFilters() {
+		List<Patient> patients = seedListing();
+		PatientFilter filter = new PatientFilter();
+		filter.setGender(Gender.F);
+		filter.setBornFrom(LocalDate.of(1975, 6, 15));
+		filter.setBornTo(LocalDate.of(1980, 1, 1));
+
+		List<Integer> expected = patients.stream()
+				.filter(p -> p.getGender() == Gender.F && !p.getBirthDate().isBefore(filter.getBornFrom())
+						&& !p.getBirthDate().isAfter(filter.getBornTo()))
+				.sorted(order(PatientSort.BIRTH_DATE)).map(Patient::getId).toList();
+		assertEquals(3, expected.size());
+		assertEquals(expected, walk(filter, PatientSort.BIRTH_DATE, 1));
+
+		PatientFilter bornFrom = new PatientFilter();
+		bornFrom.setBornFrom(LocalDate.of(1990, 3, 3));
+		assertEquals(2, walk(bornFrom, PatientSort.LAST_NAME, 1).size());
+
+		PatientFilter men = new PatientFilter();
+		men.setGender(Gender.M);
+		assertEquals(patients.stream().filter(p -> p.getGender() == Gender.M).map(Patient::getId).sorted().toList(),
+				walk(men, PatientSort.ID, 2));
+	}
+
+	@Test
+	void testInvalidPageTokenIsRejected() throws Exception {
+		seedListing();
+		String lastNameToken = patientService.getPatientsPage(new PatientFilter(), PatientSort.LAST_NAME, null, 2)
+				.getNext();
+		assertNotNull(lastNameToken);
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new PatientController(patientService)).build();
+
+		mockMvc.perform(get("/patient").param("sort", "LAST_NAME").param("size", "2").param("token",
+				lastNameToken)).andExpect(status().isOk()).andExpect(jsonPath("$.patients.length()").value(2));
+		mockMvc.perform(get("/patient").param("token", "pas-un-jeton")).andExpect(status().isBadRequest());
+		// jeton émis pour un autre tri
+		mockMvc.perform(get("/patient").param("sort", "BIRTH_DATE").param("token", lastNameToken))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void testLookupKeepsRequestedOrderAndReportsMissingIds() {
+		List<Integer> ids = seedListing().stream().map(Patient::getId).toList();
+		statistics.clear();
+
+		PatientBatch<Patient> batch = patientService
+				.getPatientsByIds(List.of(ids.get(4), ids.get(0), -1, ids.get(2), ids.get(0), -1));
+
+		assertEquals(List.of(ids.get(4), ids.get(0), ids.get(2)),
+				batch.getPatients().stream().map(Patient::getId).toList());
+		assertEquals(List.of(-1), batch.getMissing());
+		// doublons retirés : 4 identifiants distincts, requêtes IN de 2
+		assertEquals(2, statistics.getPrepareStatementCount());
+
+		PatientBatch<PatientRiskProfile> profiles = patientService
+				.getPatientRiskProfilesByIds(List.of(ids.get(3), -2, ids.get(1)));
+		assertEquals(List.of(ids.get(3), ids.get(1)),
+				profiles.getPatients().stream().map(PatientRiskProfile::getId).toList());
+		assertEquals(List.of(-2), profiles.getMissing());
+		assertEquals(LocalDate.of(1980, 1, 1), profiles.getPatients().get(0).getBirthDate());
+		assertEquals(Gender.F, profiles.getPatients().get(0).getGender());
+
+		assertThrows(IllegalArgumentException.class, () -> patientService.getPatientsByIds(ids.subList(0, 6)));
+		// les doublons ne comptent pas dans la limite
+		assertEquals(5, patientService.getPatientsByIds(List.of(ids.get(0), ids.get(1), ids.get(2), ids.get(3),
+				ids.get(4), ids.get(4))).getPatients().size());
+	}
+
+	@Test
+	void testLookupEndpoints() throws Exception {
+		List<Integer> ids = seedListing().stream().map(Patient::getId).toList();
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new PatientController(patientService)).build();
+
+		mockMvc.perform(get("/patient").param("ids", ids.get(3) + "," + ids.get(1) + ",-1," + ids.get(3)))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.patients.length()").value(2))
+				.andExpect(jsonPath("$.patients[0].id").value(ids.get(3)))
+				.andExpect(jsonPath("$.patients[1].id").value(ids.get(1)))
+				.andExpect(jsonPath("$.patients[0].lastName").value("Dupont"))
+				.andExpect(jsonPath("$.missing").value(-1));
+
+		// projection RISK : identifiant, date de naissance et genre seulement
+		mockMvc.perform(post("/patient/lookup").param("fields", "RISK").contentType(MediaType.APPLICATION_JSON)
+				.content("[" + ids.get(2) + ", -1]")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.patients[0].id").value(ids.get(2)))
+				.andExpect(jsonPath("$.patients[0].gender").value("F"))
+				.andExpect(jsonPath("$.patients[0].birthDate").exists())
+				.andExpect(jsonPath("$.patients[0].length()").value(3))
+				.andExpect(jsonPath("$.missing[0]").value(-1));
+
+		mockMvc.perform(get("/patient").param("ids", "1,2,3,4,5,6")).andExpect(status().isBadRequest());
+		mockMvc.perform(post("/patient/lookup").contentType(MediaType.APPLICATION_JSON).content("[1,2,3,4,5,6]"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void testRolledBackUpdateIsNotNotified() {
+		Cache cache = cacheManager.getCache(PatientServiceImpl.PATIENTS_CACHE);
+		cache.put(saved.getId(), saved);
+
+		patientService.updatePatient(saved.getId(), changes(0L));
+		// rien n'est envoyé avant la validation
+		verify(riskProxy, never()).notifyPatientChanged(any());
+		TestTransaction.flagForRollback();
+		TestTransaction.end();
+
+		verify(riskProxy, never()).notifyPatientChanged(any());
+		assertNotNull(cache.get(saved.getId()));
+	}
+
+	@Test
+	void testCommittedDeleteIsNotifiedAndEvicted() {
+		Cache cache = cacheManager.getCache(PatientServiceImpl.PATIENTS_CACHE);
+		cache.put(saved.getId(), saved);
+
+		patientService.deletePatientById(saved.getId(), null);
+		assertNotNull(cache.get(saved.getId()));
+		TestTransaction.flagForCommit();
+		TestTransaction.end();
+
+		verify(riskProxy).notifyPatientChanged(argThat(event -> event.isDeleted()
+				&& saved.getId().equals(event.getPatientId())));
+		assertNull(cache.get(saved.getId()));
+	}
+}
@@ -0,0 +1,141 @@
+package com.openclassrooms.medilabo.patient.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.medilabo.patient.event.PatientCacheEvictionListener;
+import com.openclassrooms.medilabo.patient.model.Patient;
+import com.openclassrooms.medilabo.patient.model.Patient.Gender;
+import com.openclassrooms.medilabo.patient.repository.PatientRepository;
+
+/**
+ * Vérifie la mise en cache des patients par id, avec la configuration de cache
+ * de Spring Boot et un repository simulé qui compte les lectures.
+ */
+public class PatientServiceCacheTest {
+
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+			.withConfiguration(AutoConfigurations.of(CacheAutoConfiguration.class))
+			.withUserConfiguration(CacheTestConfiguration.class)
+			.withPropertyValues("spring.cache.type=caffeine", "spring.cache.cache-names=patients");
+
+	@Configuration
+	@EnableCaching
+	static class CacheTestConfiguration {
+
+		@Bean
+		PatientRepository patientRepository() {
+			PatientRepository patientRepository = mock(PatientRepository.class);
+			when(patientRepository.findById(1)).thenReturn(Optional.of(patient(1)));
+			when(patientRepository.findById(2)).thenReturn(Optional.empty());
+			when(patientRepository.save(any(Patient.class))).thenAnswer(invocation -> invocation.getArgument(0));
+			when(patientRepository.updateIfVersion(eq(1), any(), any(Patient.class))).thenReturn(1);
+			when(patientRepository.deleteIfVersion(eq(1), any())).thenReturn(1);
+			return patientRepository;
+		}
+
+		@Bean
+		PatientService patientService() {
+			return new PatientServiceImpl();
+		}
+
+		@Bean
+		PatientCacheEvictionListener patientCacheEvictionListener(CacheManager cacheManager) {
+			return new PatientCacheEvictionListener(cacheManager);
+		}
+
+		@Bean
+		TransactionTemplate transactionTemplate() {
+			return mock(TransactionTemplate.class);
+		}
+
+		@Bean
+		ObjectMapper objectMapper() {
+			return new ObjectMapper();
+		}
+	}
+
+	private static Patient patient(Integer id) {
+		Patient patient = new Patient();
+		patient.setId(id);
+		patient.setFirstName("Test");
+		patient.setLastName("Cache");
+		patient.setBirthDate(LocalDate.of(1966, 12, 31));
+		patient.setGender(Gender.F);
+		return patient;
+	}
+
+	private void run(BiConsumer<PatientService, PatientRepository> test) {
+		contextRunner.run(context -> test.accept(context.getBean(PatientService.class),
+				context.getBean(PatientRepository.class)));
+	}
+
+	@Test
+	void testSecondReadIsServedFromCache() {
+		run((patientService, patientRepository) -> {
+			assertEquals("Cache", patientService.getPatientById(1).orElseThrow().getLastName());
+			assertEquals("Cache", patientService.getPatientById(1).orElseThrow().getLastName());
+
+			verify(patientRepository, times(1)).findById(1);
+		});
+	}
+
+	@Test
+	void testMissingPatientIsNotCached() {
+		run((patientService, patientRepository) -> {
+			assertTrue(patientService.getPatientById(2).isEmpty());
+			assertTrue(patientService.getPatientById(2).isEmpty());
+
+			verify(patientRepository, times(2)).findById(2);
+		});
+	}
+
+	@Test
+	void testWritesEvictThePatient() {
+		run((patientService, patientRepository) -> {
+			patientService.getPatientById(1);
+			patientService.savePatient(patient(1));
+			patientService.getPatientById(1);
+			verify(patientRepository, times(2)).findById(1);
+
+			patientService.updatePatient(1, patient(null));
+			patientService.getPatientById(1);
+			verify(patientRepository, times(3)).findById(1);
+
+			assertTrue(patientService.deletePatientById(1, null));
+			patientService.getPatientById(1);
+			verify(patientRepository, times(4)).findById(1);
+		});
+	}
+
+	@Test
+	void testCacheCanBeDisabled() {
+		contextRunner.withPropertyValues("spring.cache.type=none").run(context -> {
+			PatientService patientService = context.getBean(PatientService.class);
+			patientService.getPatientById(1);
+			patientService.getPatientById(1);
+
+			verify(context.getBean(PatientRepository.class), times(2)).findById(1);
+		});
+	}
+}
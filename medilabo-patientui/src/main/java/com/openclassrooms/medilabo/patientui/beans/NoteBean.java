@@ -19,6 +19,12 @@ public class NoteBean {
 
 	private Date updatedDate;
 
+	/**
+	 * Version lue avec la note, renvoyée à la modification pour refuser
+	 * d'écraser une modification concurrente.
+	 */
+	private Long version;
+
 	public String getId() {
 		return id;
 	}
@@ -67,4 +73,12 @@ public class NoteBean {
 		this.updatedDate = updatedDate;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
 }
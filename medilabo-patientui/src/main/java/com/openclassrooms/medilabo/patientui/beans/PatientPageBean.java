@@ -0,0 +1,36 @@
+package com.openclassrooms.medilabo.patientui.beans;
+
+import java.util.List;
+
+/**
+ * Page de la liste des patients renvoyée par le microservice patient. Les
+ * patients sont réduits à leur identité (sans adresse ni téléphone) ; next est
+ * le jeton de la page suivante, null sur la dernière page.
+ */
+public class PatientPageBean {
+
+	private List<PatientBean> patients;
+
+	private String next;
+
+	public PatientPageBean() {
+
+	}
+
+	public List<PatientBean> getPatients() {
+		return patients;
+	}
+
+	public void setPatients(List<PatientBean> patients) {
+		this.patients = patients;
+	}
+
+	public String getNext() {
+		return next;
+	}
+
+	public void setNext(String next) {
+		this.next = next;
+	}
+
+}
@@ -15,10 +15,12 @@ import org.springframework.web.bind.annotation.RequestParam;
 
 import com.openclassrooms.medilabo.patientui.beans.NoteBean;
 import com.openclassrooms.medilabo.patientui.beans.PatientBean;
+import com.openclassrooms.medilabo.patientui.beans.PatientPageBean;
 import com.openclassrooms.medilabo.patientui.proxies.MicroserviceNotesProxy;
 import com.openclassrooms.medilabo.patientui.proxies.MicroservicePatientsProxy;
 import com.openclassrooms.medilabo.patientui.proxies.MicroserviceRiskCalculatorProxy;
 
+import feign.FeignException;
 import jakarta.validation.Valid;
 
 /**
@@ -56,15 +58,26 @@ public class PatientController {
 	}
 
 	/**
-	 * Affiche la liste de tous les patients.
+	 * Nombre de patients affichés par page de la liste.
+	 */
+	private static final int PAGE_SIZE = 50;
+
+	/**
+	 * Affiche une page de la liste des patients.
 	 *
+	 * @param sort  ordre de la liste : ID (par défaut), LAST_NAME ou BIRTH_DATE
+	 * @param token jeton de la page à afficher, absent pour la première page
 	 * @param model modèle pour injecter les données dans la vue
 	 * @return nom de la vue Thymeleaf affichant la liste des patients
 	 */
 	@GetMapping("/patients")
-	public String listPatient(Model model) {
-		List<PatientBean> patients = patientsProxy.getAllPatients();
-		model.addAttribute("patients", patients);
+	public String listPatient(@RequestParam(defaultValue = "ID") String sort,
+			@RequestParam(required = false) String token, Model model) {
+		PatientPageBean page = patientsProxy.getPatientsPage(sort, PAGE_SIZE, token);
+		model.addAttribute("patients", page.getPatients());
+		model.addAttribute("sort", sort);
+		model.addAttribute("next", page.getNext());
+		model.addAttribute("firstPage", token == null);
 		return "patients/patient-list";
 	}
 
@@ -187,7 +200,9 @@ public class PatientController {
 	}
 
 	/**
-	 * Traite la mise à jour d’une note.
+	 * Traite la mise à jour d’une note. Si la note a été modifiée depuis
+	 * l’affichage du formulaire, la modification est refusée et le formulaire
+	 * réaffiché avec un message.
 	 */
 	@PostMapping("/patient/{patientId}/note/update/{id}")
 	public String updateNoteForm(@PathVariable String id, @PathVariable String patientId,
@@ -202,7 +217,14 @@ public class PatientController {
 		note.setId(id);
 		note.setPatientId(patientId);
 		note.setPatientName(patient.getLastName());
-		notesProxy.updateNote(id, note);
+		try {
+			notesProxy.updateNote(id, note);
+		} catch (FeignException.Conflict e) {
+			result.reject("note.conflict",
+					"La note a été modifiée entre-temps : revenez au patient pour afficher sa dernière version.");
+			model.addAttribute("patient", patient);
+			return "notes/note-update";
+		}
 
 		return "redirect:/patient/" + patientId;
 	}
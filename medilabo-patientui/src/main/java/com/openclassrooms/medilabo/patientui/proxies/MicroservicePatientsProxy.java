@@ -8,8 +8,10 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import com.openclassrooms.medilabo.patientui.beans.PatientBean;
+import com.openclassrooms.medilabo.patientui.beans.PatientPageBean;
 import com.openclassrooms.medilabo.patientui.config.FeignAuthConfig;
 
 /**
@@ -34,6 +36,18 @@ public interface MicroservicePatientsProxy {
 	@GetMapping(value = "/patient/all")
 	List<PatientBean> getAllPatients();
 
+	/**
+	 * Récupère une page de la liste des patients.
+	 *
+	 * @param sort  ordre de la liste : ID, LAST_NAME ou BIRTH_DATE
+	 * @param size  nombre de patients par page
+	 * @param token jeton de la page suivante, ou null pour la première page
+	 * @return la page de patients, réduits à leur identité
+	 */
+	@GetMapping(value = "/patient")
+	PatientPageBean getPatientsPage(@RequestParam("sort") String sort, @RequestParam("size") int size,
+			@RequestParam(value = "token", required = false) String token);
+
 	/**
 	 * Récupère un patient à partir de son identifiant unique.
 	 *
@@ -0,0 +1,66 @@
+package com.openclassrooms.medilabo.risk_diabetes.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.openclassrooms.medilabo.risk_diabetes.beans.NoteBean;
+import com.openclassrooms.medilabo.risk_diabetes.service.RiskRules;
+
+/**
+ * Générateur de notes cliniques synthétiques en français, reproductible
+ * (graine fixe).
+ */
+final class ClinicalNotes {
+
+	private static final String[] FILLER_WORDS = { "le", "patient", "déclare", "qu'il", "se", "sent", "bien",
+			"test", "de", "laboratoire", "indiquant", "une", "glycémie", "élevée", "suite", "au", "rendez-vous",
+			"la", "patiente", "signale", "des", "douleurs", "après", "effort", "tension", "artérielle", "stable",
+			"traitement", "poursuivi", "contrôle", "dans", "trois", "mois" };
+
+	/**
+	 * Proportion de mots-clés parmi les mots générés.
+	 */
+	private static final double TRIGGER_RATIO = 0.05;
+
+	private ClinicalNotes() {
+	}
+
+	/**
+	 * @param random générateur aléatoire
+	 * @param words  nombre de mots de la note
+	 * @return une note dont environ 5 % des mots sont des mots-clés
+	 */
+	static String note(Random random, int words) {
+		List<String> triggers = RiskRules.DEFAULT_TRIGGER_WORDS;
+		StringBuilder note = new StringBuilder(words * 8);
+		for (int i = 0; i < words; i++) {
+			String word = random.nextDouble() < TRIGGER_RATIO ? triggers.get(random.nextInt(triggers.size()))
+					: FILLER_WORDS[random.nextInt(FILLER_WORDS.length)];
+			if (i == 0 || random.nextInt(10) == 0) {
+				word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+			}
+			note.append(word).append(random.nextInt(8) == 0 ? ", " : " ");
+		}
+		return note.toString();
+	}
+
+	/**
+	 * @param seed  graine du générateur
+	 * @param count nombre de notes
+	 * @param words nombre de mots par note
+	 * @return les notes d'un patient
+	 */
+	static List<NoteBean> notes(long seed, int count, int words) {
+		Random random = new Random(seed);
+		List<NoteBean> notes = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			NoteBean note = new NoteBean();
+			note.setId(String.valueOf(i));
+			note.setPatientId("1");
+			note.setNote(note(random, words));
+			notes.add(note);
+		}
+		return notes;
+	}
+}
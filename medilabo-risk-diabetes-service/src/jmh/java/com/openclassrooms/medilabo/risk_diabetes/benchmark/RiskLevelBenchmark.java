@@ -0,0 +1,107 @@
+package com.openclassrooms.medilabo.risk_diabetes.benchmark;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean.Gender;
+import com.openclassrooms.medilabo.risk_diabetes.enums.DiabetesRiskLevel;
+import com.openclassrooms.medilabo.risk_diabetes.model.PatientRiskLevel;
+import com.openclassrooms.medilabo.risk_diabetes.service.RiskCalculatorService;
+import com.openclassrooms.medilabo.risk_diabetes.service.RiskDecisionTable;
+import com.openclassrooms.medilabo.risk_diabetes.service.RiskMetrics;
+import com.openclassrooms.medilabo.risk_diabetes.service.RiskRules;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Évaluation du niveau de risque, calcul de l'âge et sérialisation JSON d'un
+ * résultat.
+ *
+ * Chaque opération porte sur un lot de SIZE patients tirés au hasard, afin que
+ * les branches ne soient pas toujours prédites de la même façon.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RiskLevelBenchmark {
+
+	private static final int SIZE = 1024;
+
+	private final Gender[] genders = new Gender[SIZE];
+	private final String[] genderNames = new String[SIZE];
+	private final int[] ages = new int[SIZE];
+	private final int[] counters = new int[SIZE];
+	private final LocalDate[] birthDates = new LocalDate[SIZE];
+
+	private final RiskCalculatorService calculatorService = new RiskCalculatorService(
+			new RiskMetrics(new SimpleMeterRegistry()));
+
+	private final RiskDecisionTable decisionTable = RiskRules.DEFAULT.getDecisionTable();
+
+	private ObjectWriter writer;
+
+	private PatientRiskLevel patientRiskLevel;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		for (int i = 0; i < SIZE; i++) {
+			genders[i] = random.nextBoolean() ? Gender.M : Gender.F;
+			genderNames[i] = genders[i].name();
+			ages[i] = random.nextInt(100);
+			counters[i] = random.nextInt(12);
+			birthDates[i] = LocalDate.now().minusDays(random.nextInt(100 * 365));
+		}
+		writer = new ObjectMapper().writerFor(PatientRiskLevel.class);
+		patientRiskLevel = new PatientRiskLevel();
+		patientRiskLevel.setPatientId("12345");
+		patientRiskLevel.setDiabetesRiskLevel(DiabetesRiskLevel.BORDERLINE);
+		patientRiskLevel.setTriggerWordsCounter(4);
+		patientRiskLevel.setRulesVersion(RiskRules.DEFAULT.getVersion());
+	}
+
+	@Benchmark
+	public void decisionTable(Blackhole blackhole) {
+		for (int i = 0; i < SIZE; i++) {
+			blackhole.consume(decisionTable.level(genders[i], ages[i], counters[i]));
+		}
+	}
+
+	@Benchmark
+	public void riskLevel(Blackhole blackhole) {
+		for (int i = 0; i < SIZE; i++) {
+			blackhole.consume(calculatorService.riskLevel(counters[i], ages[i], genderNames[i]));
+		}
+	}
+
+	@Benchmark
+	public void calculateAge(Blackhole blackhole) {
+		for (int i = 0; i < SIZE; i++) {
+			blackhole.consume(RiskCalculatorService.calculateAge(birthDates[i]));
+		}
+	}
+
+	@Benchmark
+	public byte[] serializePatientRiskLevel() throws JsonProcessingException {
+		return writer.writeValueAsBytes(patientRiskLevel);
+	}
+}
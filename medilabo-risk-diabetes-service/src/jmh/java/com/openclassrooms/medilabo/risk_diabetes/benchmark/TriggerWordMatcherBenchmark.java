@@ -0,0 +1,86 @@
+package com.openclassrooms.medilabo.risk_diabetes.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.openclassrooms.medilabo.risk_diabetes.beans.NoteBean;
+import com.openclassrooms.medilabo.risk_diabetes.service.RiskCalculatorService;
+import com.openclassrooms.medilabo.risk_diabetes.service.RiskMetrics;
+import com.openclassrooms.medilabo.risk_diabetes.service.RiskRules;
+import com.openclassrooms.medilabo.risk_diabetes.service.TriggerWordMatcher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Détection des mots-clés sur les notes d'un patient, selon le nombre et la
+ * longueur des notes.
+ *
+ * legacyContains reproduit l'ancien algorithme (une recherche contains() par
+ * mot-clé sur la note en minuscules) pour servir de référence.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TriggerWordMatcherBenchmark {
+
+	@Param({ "1", "10", "50" })
+	private int notesPerPatient;
+
+	@Param({ "20", "200", "2000" })
+	private int wordsPerNote;
+
+	private List<NoteBean> notes;
+
+	private final TriggerWordMatcher matcher = RiskRules.DEFAULT.getMatcher();
+
+	private final RiskCalculatorService calculatorService = new RiskCalculatorService(
+			new RiskMetrics(new SimpleMeterRegistry()));
+
+	@Setup
+	public void setUp() {
+		notes = ClinicalNotes.notes(42, notesPerPatient, wordsPerNote);
+	}
+
+	@Benchmark
+	public int matcher() {
+		int counter = 0;
+		for (NoteBean note : notes) {
+			counter += matcher.count(note.getNote());
+		}
+		return counter;
+	}
+
+	@Benchmark
+	public int countTriggerWords() {
+		return calculatorService.countTriggerWords(notes);
+	}
+
+	@Benchmark
+	public int legacyContains() {
+		int counter = 0;
+		for (NoteBean note : notes) {
+			String content = note.getNote().toLowerCase();
+			for (String triggerWord : RiskRules.DEFAULT_TRIGGER_WORDS) {
+				if (content.contains(triggerWord)) {
+					counter++;
+				}
+			}
+		}
+		return counter;
+	}
+}
@@ -15,6 +15,12 @@ public class NoteBean {
 
 	private Date updatedDate;
 
+	/**
+	 * Nombre de mots-clés déclencheurs relevé par le service de notes à
+	 * l'enregistrement de la note (vocabulaire par défaut).
+	 */
+	private Integer triggerCount;
+
 	public String getId() {
 		return id;
 	}
@@ -63,4 +69,11 @@ public class NoteBean {
 		this.updatedDate = updatedDate;
 	}
 
+	public Integer getTriggerCount() {
+		return triggerCount;
+	}
+
+	public void setTriggerCount(Integer triggerCount) {
+		this.triggerCount = triggerCount;
+	}
 }
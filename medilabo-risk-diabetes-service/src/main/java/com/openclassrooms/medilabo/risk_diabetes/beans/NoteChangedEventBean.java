@@ -0,0 +1,58 @@
+package com.openclassrooms.medilabo.risk_diabetes.beans;
+
+/**
+ * Notification envoyée par le microservice de notes lorsqu'une note est créée
+ * ou modifiée.
+ */
+public class NoteChangedEventBean {
+	private String noteId;
+
+	private String patientId;
+
+	private Integer triggerCount;
+
+	private Integer previousTriggerCount;
+
+	private boolean created;
+
+	public String getNoteId() {
+		return noteId;
+	}
+
+	public void setNoteId(String noteId) {
+		this.noteId = noteId;
+	}
+
+	public String getPatientId() {
+		return patientId;
+	}
+
+	public void setPatientId(String patientId) {
+		this.patientId = patientId;
+	}
+
+	public Integer getTriggerCount() {
+		return triggerCount;
+	}
+
+	public void setTriggerCount(Integer triggerCount) {
+		this.triggerCount = triggerCount;
+	}
+
+	public Integer getPreviousTriggerCount() {
+		return previousTriggerCount;
+	}
+
+	public void setPreviousTriggerCount(Integer previousTriggerCount) {
+		this.previousTriggerCount = previousTriggerCount;
+	}
+
+	public boolean isCreated() {
+		return created;
+	}
+
+	public void setCreated(boolean created) {
+		this.created = created;
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.openclassrooms.medilabo.risk_diabetes.beans;
+
+import java.util.List;
+
+/**
+ * Résultat d'une récupération groupée de patients : les patients trouvés,
+ * dans l'ordre des identifiants demandés, et les identifiants inconnus.
+ */
+public class PatientBatchBean {
+
+	private List<PatientBean> patients;
+
+	private List<Integer> missing;
+
+	public PatientBatchBean() {
+
+	}
+
+	public PatientBatchBean(List<PatientBean> patients, List<Integer> missing) {
+		this.patients = patients;
+		this.missing = missing;
+	}
+
+	public List<PatientBean> getPatients() {
+		return patients;
+	}
+
+	public void setPatients(List<PatientBean> patients) {
+		this.patients = patients;
+	}
+
+	public List<Integer> getMissing() {
+		return missing;
+	}
+
+	public void setMissing(List<Integer> missing) {
+		this.missing = missing;
+	}
+
+}
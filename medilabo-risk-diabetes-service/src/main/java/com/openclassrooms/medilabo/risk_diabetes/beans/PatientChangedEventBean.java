@@ -0,0 +1,52 @@
+package com.openclassrooms.medilabo.risk_diabetes.beans;
+
+import java.time.LocalDate;
+
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean.Gender;
+
+/**
+ * Notification envoyée par le microservice de patients lorsqu'un patient est
+ * créé, modifié ou supprimé.
+ */
+public class PatientChangedEventBean {
+	private Integer patientId;
+
+	private LocalDate birthDate;
+
+	private Gender gender;
+
+	private boolean deleted;
+
+	public Integer getPatientId() {
+		return patientId;
+	}
+
+	public void setPatientId(Integer patientId) {
+		this.patientId = patientId;
+	}
+
+	public LocalDate getBirthDate() {
+		return birthDate;
+	}
+
+	public void setBirthDate(LocalDate birthDate) {
+		this.birthDate = birthDate;
+	}
+
+	public Gender getGender() {
+		return gender;
+	}
+
+	public void setGender(Gender gender) {
+		this.gender = gender;
+	}
+
+	public boolean isDeleted() {
+		return deleted;
+	}
+
+	public void setDeleted(boolean deleted) {
+		this.deleted = deleted;
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.openclassrooms.medilabo.risk_diabetes.beans;
+
+public class TriggerCountBean {
+	private String patientId;
+
+	private Integer triggerCount;
+
+	public String getPatientId() {
+		return patientId;
+	}
+
+	public void setPatientId(String patientId) {
+		this.patientId = patientId;
+	}
+
+	public Integer getTriggerCount() {
+		return triggerCount;
+	}
+
+	public void setTriggerCount(Integer triggerCount) {
+		this.triggerCount = triggerCount;
+	}
+
+}
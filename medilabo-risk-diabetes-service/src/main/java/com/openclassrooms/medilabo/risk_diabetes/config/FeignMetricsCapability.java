@@ -0,0 +1,73 @@
+package com.openclassrooms.medilabo.risk_diabetes.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import feign.Capability;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.codec.Decoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Instrumente tous les clients Feign du service.
+ *
+ * risk.feign.requests : durée de l'échange HTTP par microservice cible et
+ * statut de réponse ("IO_ERROR" si aucune réponse n'a été reçue).
+ * 
+ * risk.feign.decode : durée de la désérialisation des réponses par
+ * microservice cible.
+ */
+@Component
+public class FeignMetricsCapability implements Capability {
+
+	private static final String UNKNOWN_TARGET = "unknown";
+
+	private final MeterRegistry registry;
+
+	public FeignMetricsCapability(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	@Override
+	public Client enrich(Client client) {
+		return (request, options) -> {
+			long start = System.nanoTime();
+			String status = "IO_ERROR";
+			try {
+				Response response = client.execute(request, options);
+				status = String.valueOf(response.status());
+				return response;
+			} finally {
+				Timer.builder("risk.feign.requests").description("Durée des appels HTTP aux microservices")
+						.tags("target", target(request), "status", status).publishPercentileHistogram()
+						.register(registry).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			}
+		};
+	}
+
+	@Override
+	public Decoder enrich(Decoder decoder) {
+		return (response, type) -> {
+			long start = System.nanoTime();
+			try {
+				return decoder.decode(response, type);
+			} finally {
+				Timer.builder("risk.feign.decode").description("Durée de désérialisation des réponses")
+						.tag("target", target(response.request())).publishPercentileHistogram().register(registry)
+						.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			}
+		};
+	}
+
+	private static String target(Request request) {
+		if (request == null || request.requestTemplate() == null
+				|| request.requestTemplate().feignTarget() == null) {
+			return UNKNOWN_TARGET;
+		}
+		return request.requestTemplate().feignTarget().name();
+	}
+}
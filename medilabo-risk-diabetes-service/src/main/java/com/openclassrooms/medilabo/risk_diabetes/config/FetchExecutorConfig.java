@@ -0,0 +1,36 @@
+package com.openclassrooms.medilabo.risk_diabetes.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Configuration du pool de threads utilisé pour interroger en parallèle les
+ * microservices de notes et de patients.
+ *
+ * Le pool est borné (nombre de threads et file d’attente) afin qu’un pic de
+ * requêtes ne puisse pas créer un nombre illimité de threads.
+ */
+@Configuration
+public class FetchExecutorConfig {
+
+	/**
+	 * Définit l’exécuteur des appels Feign concurrents.
+	 *
+	 * @param poolSize      nombre de threads du pool
+	 * @param queueCapacity taille maximale de la file d’attente
+	 * @return un {@link ThreadPoolTaskExecutor} borné
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor riskFetchExecutor(@Value("${risk.fetch.pool-size:16}") int poolSize,
+			@Value("${risk.fetch.queue-capacity:200}") int queueCapacity) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(poolSize);
+		executor.setMaxPoolSize(poolSize);
+		executor.setQueueCapacity(queueCapacity);
+		executor.setThreadNamePrefix("risk-fetch-");
+		executor.initialize();
+		return executor;
+	}
+}
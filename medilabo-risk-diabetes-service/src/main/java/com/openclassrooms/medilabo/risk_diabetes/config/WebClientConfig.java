@@ -0,0 +1,33 @@
+package com.openclassrooms.medilabo.risk_diabetes.config;
+
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * Clients WebClient non bloquants vers les microservices de notes et de
+ * patients, utilisés par le mode réactif.
+ *
+ * Les adresses sont résolues par Eureka et réparties par Spring Cloud
+ * LoadBalancer, comme pour les clients Feign.
+ */
+@Configuration
+public class WebClientConfig {
+
+	@Bean
+	@LoadBalanced
+	public WebClient.Builder loadBalancedWebClientBuilder() {
+		return WebClient.builder();
+	}
+
+	@Bean
+	public WebClient notesWebClient(@LoadBalanced WebClient.Builder builder) {
+		return builder.clone().baseUrl("http://medilabo-note-service").build();
+	}
+
+	@Bean
+	public WebClient patientsWebClient(@LoadBalanced WebClient.Builder builder) {
+		return builder.clone().baseUrl("http://medilabo-patient-service").build();
+	}
+}
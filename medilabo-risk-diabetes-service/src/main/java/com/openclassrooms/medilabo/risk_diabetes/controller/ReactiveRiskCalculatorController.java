@@ -0,0 +1,83 @@
+package com.openclassrooms.medilabo.risk_diabetes.controller;
+
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.openclassrooms.medilabo.risk_diabetes.model.PatientRiskLevel;
+import com.openclassrooms.medilabo.risk_diabetes.service.ReactiveRiskCalculatorService;
+import com.openclassrooms.medilabo.risk_diabetes.service.RiskCalculatorService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Contrôleur REST du calcul du risque en mode réactif (WebFlux), activé par
+ * spring.main.web-application-type=reactive.
+ * 
+ * Il expose les mêmes endpoints que RiskCalculatorController, sans bloquer de
+ * thread pendant les appels aux autres microservices.
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveRiskCalculatorController {
+
+	private ReactiveRiskCalculatorService reactiveCalculatorService;
+	private RiskCalculatorService calculatorService;
+	private static final Logger logger = LogManager.getLogger(ReactiveRiskCalculatorController.class);
+
+	public ReactiveRiskCalculatorController(ReactiveRiskCalculatorService reactiveCalculatorService,
+			RiskCalculatorService calculatorService) {
+		this.reactiveCalculatorService = reactiveCalculatorService;
+		this.calculatorService = calculatorService;
+	}
+
+	/**
+	 * Récupère le niveau de risque de diabète pour un patient donné.
+	 *
+	 * @param patientId identifiant du patient
+	 * @return ResponseEntity contenant PatientRiskLevel et status HTTP 200
+	 */
+	@GetMapping("/calculateRisk/{patientId}")
+	public Mono<ResponseEntity<PatientRiskLevel>> getPatientRiskLevel(@PathVariable String patientId) {
+		return reactiveCalculatorService.calculatePatientRiskLevel(patientId)
+				.doOnNext(patientRiskLevel -> logger.info("Niveau de risque du patient : {}",
+						patientRiskLevel.getDiabetesRiskLevel()))
+				.map(ResponseEntity::ok);
+	}
+
+	/**
+	 * Calcule le niveau de risque de diabète d'une liste de patients.
+	 *
+	 * Le calcul par lots reste celui du mode bloquant : il est exécuté sur le
+	 * pool boundedElastic et chaque lot est émis dès qu'il est prêt. Les
+	 * identifiants sont vérifiés avant tout calcul ; les patients d'un lot en
+	 * échec figurent dans le flux avec le statut et le message de l'erreur.
+	 *
+	 * @param patientIds identifiants des patients
+	 * @return flux des PatientRiskLevel, écrit sous forme de tableau JSON, ou
+	 *         status HTTP 400 si un identifiant n'est pas numérique
+	 */
+	@PostMapping("/calculateRisk/batch")
+	public ResponseEntity<Flux<PatientRiskLevel>> getPatientRiskLevels(@RequestBody List<String> patientIds) {
+		if (!RiskCalculatorService.isValidPatientIds(patientIds)) {
+			logger.warn("Identifiants de patients invalides : {}", patientIds);
+			return ResponseEntity.badRequest().build();
+		}
+		logger.info("Calcul du risque pour {} patients", patientIds.size());
+		return ResponseEntity.ok(Flux.<List<PatientRiskLevel>>create(sink -> {
+			calculatorService.calculatePatientRiskLevels(patientIds, sink::next);
+			sink.complete();
+		}).subscribeOn(Schedulers.boundedElastic()).flatMapIterable(chunk -> chunk));
+	}
+}
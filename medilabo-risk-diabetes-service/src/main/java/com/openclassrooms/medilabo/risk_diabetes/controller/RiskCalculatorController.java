@@ -1,42 +1,107 @@
 package com.openclassrooms.medilabo.risk_diabetes.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 import com.openclassrooms.medilabo.risk_diabetes.model.PatientRiskLevel;
 import com.openclassrooms.medilabo.risk_diabetes.service.RiskCalculatorService;
+import com.openclassrooms.medilabo.risk_diabetes.service.RiskStateService;
 
 /**
  * Contrôleur REST pour le calcul du risque de diabète d’un patient.
  * 
  * Expose un endpoint pour récupérer le niveau de risque d’un patient à partir
  * de son identifiant en interrogeant RiskCalculatorService}.
+ * 
+ * Utilisé en mode servlet (Spring MVC) ; en mode réactif,
+ * ReactiveRiskCalculatorController le remplace.
  */
 @RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
 public class RiskCalculatorController {
 
 	private RiskCalculatorService calculatorService;
+	private RiskStateService riskStateService;
+	private ObjectMapper objectMapper;
 	private static final Logger logger = LogManager.getLogger(RiskCalculatorController.class);
 
-	public RiskCalculatorController(RiskCalculatorService calculatorService) {
+	public RiskCalculatorController(RiskCalculatorService calculatorService, RiskStateService riskStateService,
+			ObjectMapper objectMapper) {
 		this.calculatorService = calculatorService;
+		this.riskStateService = riskStateService;
+		this.objectMapper = objectMapper;
 	}
 
 	/**
-	 * Récupère le niveau de risque de diabète pour un patient donné.
+	 * Récupère le niveau de risque de diabète pour un patient donné, à partir de
+	 * la table matérialisée des risques.
 	 *
 	 * @param patientId identifiant du patient
 	 * @return ResponseEntity contenant PatientRiskLevel et status HTTP 200
 	 */
 	@GetMapping("/calculateRisk/{patientId}")
 	public ResponseEntity<PatientRiskLevel> getPatientRiskLevel(@PathVariable String patientId) {
-		PatientRiskLevel patientRiskLevel = calculatorService.calculatePatientRiskLevel(patientId);
+		PatientRiskLevel patientRiskLevel = riskStateService.getPatientRiskLevel(patientId);
 		logger.info("Niveau de risque du patient : ", patientRiskLevel.getDiabetesRiskLevel());
 		return ResponseEntity.ok(patientRiskLevel);
 	}
+
+	/**
+	 * Calcule le niveau de risque de diabète d'une liste de patients.
+	 *
+	 * Les identifiants sont vérifiés avant toute écriture, puis les résultats
+	 * sont écrits au fil de l'eau, lot par lot, dans un tableau JSON : la réponse
+	 * n'est jamais entièrement construite en mémoire. Les patients d'un lot en
+	 * échec y figurent avec le statut et le message de l'erreur.
+	 *
+	 * @param patientIds identifiants des patients
+	 * @return ResponseEntity contenant la liste des PatientRiskLevel et status
+	 *         HTTP 200, ou status HTTP 400 si un identifiant n'est pas numérique
+	 */
+	@PostMapping("/calculateRisk/batch")
+	public ResponseEntity<StreamingResponseBody> getPatientRiskLevels(@RequestBody List<String> patientIds) {
+		if (!RiskCalculatorService.isValidPatientIds(patientIds)) {
+			logger.warn("Identifiants de patients invalides : {}", patientIds);
+			return ResponseEntity.badRequest().build();
+		}
+		logger.info("Calcul du risque pour {} patients", patientIds.size());
+		ObjectWriter writer = objectMapper.writerFor(PatientRiskLevel.class)
+				.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		StreamingResponseBody body = outputStream -> {
+			try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+				generator.writeStartArray();
+				calculatorService.calculatePatientRiskLevels(patientIds, results -> {
+					try {
+						for (PatientRiskLevel patientRiskLevel : results) {
+							writer.writeValue(generator, patientRiskLevel);
+						}
+						generator.flush();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+				generator.writeEndArray();
+			}
+		};
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+	}
 }
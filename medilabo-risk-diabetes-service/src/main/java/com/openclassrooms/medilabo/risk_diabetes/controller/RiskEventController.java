@@ -0,0 +1,55 @@
+package com.openclassrooms.medilabo.risk_diabetes.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.openclassrooms.medilabo.risk_diabetes.beans.NoteChangedEventBean;
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientChangedEventBean;
+import com.openclassrooms.medilabo.risk_diabetes.service.RiskEventService;
+
+/**
+ * Contrôleur REST recevant les notifications de modification des microservices
+ * de notes et de patients.
+ */
+@RestController
+@RequestMapping("/events")
+public class RiskEventController {
+
+	private RiskEventService riskEventService;
+	private static final Logger logger = LogManager.getLogger(RiskEventController.class);
+
+	public RiskEventController(RiskEventService riskEventService) {
+		this.riskEventService = riskEventService;
+	}
+
+	/**
+	 * Reçoit la notification de création ou de modification d'une note.
+	 *
+	 * @param event notification contenant l'identifiant du patient
+	 * @return ResponseEntity avec status HTTP 202
+	 */
+	@PostMapping("/notes")
+	public ResponseEntity<Void> onNoteChanged(@RequestBody NoteChangedEventBean event) {
+		riskEventService.onNoteChanged(event);
+		logger.debug("Note modifiée pour le patient id={}", event.getPatientId());
+		return ResponseEntity.accepted().build();
+	}
+
+	/**
+	 * Reçoit la notification de modification ou de suppression d'un patient.
+	 *
+	 * @param event notification contenant l'identifiant du patient
+	 * @return ResponseEntity avec status HTTP 202
+	 */
+	@PostMapping("/patients")
+	public ResponseEntity<Void> onPatientChanged(@RequestBody PatientChangedEventBean event) {
+		riskEventService.onPatientChanged(event);
+		logger.debug("Patient modifié avec id={}", event.getPatientId());
+		return ResponseEntity.accepted().build();
+	}
+}
@@ -0,0 +1,46 @@
+package com.openclassrooms.medilabo.risk_diabetes.endpoint;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.openclassrooms.medilabo.risk_diabetes.service.RiskCalculatorService;
+
+/**
+ * Endpoint actuator /actuator/riskcache exposant les statistiques du cache des
+ * niveaux de risque.
+ */
+@Component
+@Endpoint(id = "riskcache")
+public class RiskCacheEndpoint {
+
+	private CacheManager cacheManager;
+
+	public RiskCacheEndpoint(CacheManager cacheManager) {
+		this.cacheManager = cacheManager;
+	}
+
+	/**
+	 * @return nombre de succès, d'échecs et d'évictions, et taille du cache
+	 */
+	@ReadOperation
+	public Map<String, Object> statistics() {
+		Map<String, Object> statistics = new LinkedHashMap<>();
+		if (cacheManager.getCache(RiskCalculatorService.RISK_LEVELS_CACHE) instanceof CaffeineCache caffeineCache) {
+			Cache<Object, Object> cache = caffeineCache.getNativeCache();
+			CacheStats stats = cache.stats();
+			statistics.put("hits", stats.hitCount());
+			statistics.put("misses", stats.missCount());
+			statistics.put("evictions", stats.evictionCount());
+			statistics.put("size", cache.estimatedSize());
+		}
+		return statistics;
+	}
+}
@@ -0,0 +1,50 @@
+package com.openclassrooms.medilabo.risk_diabetes.endpoint;
+
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.medilabo.risk_diabetes.service.RiskStateService;
+
+/**
+ * Endpoint actuator /actuator/riskstate d'administration de la table
+ * matérialisée des risques.
+ *
+ * GET : taille de la table et date de la dernière reconstruction.
+ * 
+ * POST {"action": "rebuild"} : reconstruction complète.
+ * 
+ * POST {"action": "check", "sampleSize": 100} : vérification d'un échantillon.
+ */
+@Component
+@Endpoint(id = "riskstate")
+public class RiskStateEndpoint {
+
+	private static final int DEFAULT_SAMPLE_SIZE = 100;
+
+	private RiskStateService riskStateService;
+
+	public RiskStateEndpoint(RiskStateService riskStateService) {
+		this.riskStateService = riskStateService;
+	}
+
+	@ReadOperation
+	public Map<String, Object> summary() {
+		return riskStateService.summary();
+	}
+
+	@WriteOperation
+	public Map<String, Object> run(String action, @Nullable Integer sampleSize) {
+		if ("rebuild".equals(action)) {
+			return Map.of("rebuilt", riskStateService.rebuild());
+		}
+		if ("check".equals(action)) {
+			return riskStateService.checkConsistency(sampleSize == null ? DEFAULT_SAMPLE_SIZE : sampleSize);
+		}
+		throw new IllegalArgumentException("Action inconnue : " + action);
+	}
+}
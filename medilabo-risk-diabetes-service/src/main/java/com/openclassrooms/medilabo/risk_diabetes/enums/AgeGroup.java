@@ -0,0 +1,9 @@
+package com.openclassrooms.medilabo.risk_diabetes.enums;
+
+/**
+ * Tranche d'âge utilisée par les règles de risque : avant ou à partir de l'âge
+ * seuil (30 ans).
+ */
+public enum AgeGroup {
+	YOUNGER, OLDER
+}
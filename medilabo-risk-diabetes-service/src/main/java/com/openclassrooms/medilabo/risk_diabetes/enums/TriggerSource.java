@@ -0,0 +1,13 @@
+package com.openclassrooms.medilabo.risk_diabetes.enums;
+
+/**
+ * Origine du nombre de mots-clés déclencheurs d'un patient.
+ * 
+ * PRECOMPUTED : nombre calculé par le service de notes à partir des masques
+ * relevés à l'enregistrement de chaque note.
+ * 
+ * SCAN : notes récupérées puis analysées par le service de risque.
+ */
+public enum TriggerSource {
+	PRECOMPUTED, SCAN
+}
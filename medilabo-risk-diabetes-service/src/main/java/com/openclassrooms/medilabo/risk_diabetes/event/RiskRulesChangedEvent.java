@@ -0,0 +1,35 @@
+package com.openclassrooms.medilabo.risk_diabetes.event;
+
+import com.openclassrooms.medilabo.risk_diabetes.service.RiskRules;
+
+/**
+ * Événement publié lorsqu'une nouvelle version des règles de risque remplace
+ * la précédente.
+ */
+public class RiskRulesChangedEvent {
+
+	private final RiskRules previous;
+
+	private final RiskRules current;
+
+	public RiskRulesChangedEvent(RiskRules previous, RiskRules current) {
+		this.previous = previous;
+		this.current = current;
+	}
+
+	public RiskRules getPrevious() {
+		return previous;
+	}
+
+	public RiskRules getCurrent() {
+		return current;
+	}
+
+	/**
+	 * @return true si le vocabulaire a changé : les comptes de mots-clés déjà
+	 *         calculés ne sont alors plus valables
+	 */
+	public boolean isVocabularyChanged() {
+		return !current.sameVocabulary(previous);
+	}
+}
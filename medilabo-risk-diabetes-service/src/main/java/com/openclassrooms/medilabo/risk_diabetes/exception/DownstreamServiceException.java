@@ -0,0 +1,25 @@
+package com.openclassrooms.medilabo.risk_diabetes.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception levée lorsqu’un microservice appelé pendant le calcul du risque
+ * échoue, ne répond pas dans le délai imparti ou ne peut pas être sollicité.
+ *
+ * Elle porte le statut HTTP à renvoyer au client.
+ */
+public class DownstreamServiceException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final HttpStatus status;
+
+	public DownstreamServiceException(HttpStatus status, String message, Throwable cause) {
+		super(message, cause);
+		this.status = status;
+	}
+
+	public HttpStatus getStatus() {
+		return status;
+	}
+}
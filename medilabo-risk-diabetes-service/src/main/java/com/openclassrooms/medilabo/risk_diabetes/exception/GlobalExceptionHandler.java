@@ -0,0 +1,28 @@
+package com.openclassrooms.medilabo.risk_diabetes.exception;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Traduit les erreurs des microservices appelés en réponses HTTP explicites.
+ */
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+	private static final Logger logger = LogManager.getLogger(GlobalExceptionHandler.class);
+
+	/**
+	 * Renvoie le statut porté par l’exception et son message.
+	 *
+	 * @param ex exception levée lors d’un appel à un microservice
+	 * @return ResponseEntity contenant le message d’erreur
+	 */
+	@ExceptionHandler(DownstreamServiceException.class)
+	public ResponseEntity<String> handleDownstreamServiceException(DownstreamServiceException ex) {
+		logger.warn(ex.getMessage());
+		return ResponseEntity.status(ex.getStatus()).body(ex.getMessage());
+	}
+}
@@ -1,5 +1,6 @@
 package com.openclassrooms.medilabo.risk_diabetes.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.openclassrooms.medilabo.risk_diabetes.enums.DiabetesRiskLevel;
 
 public class PatientRiskLevel {
@@ -7,6 +8,20 @@ public class PatientRiskLevel {
 	private String patientId;
 	private DiabetesRiskLevel diabetesRiskLevel;
 	private Integer triggerWordsCounter;
+	private String rulesVersion;
+
+	/**
+	 * Statut HTTP de l'appel en échec lors d'un calcul par lots ; absent lorsque
+	 * le risque a pu être calculé.
+	 */
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private Integer status;
+
+	/**
+	 * Message d'erreur associé au statut.
+	 */
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private String error;
 
 	public String getPatientId() {
 		return patientId;
@@ -32,4 +47,28 @@ public class PatientRiskLevel {
 		this.triggerWordsCounter = triggerWordsCounter;
 	}
 
+	public String getRulesVersion() {
+		return rulesVersion;
+	}
+
+	public void setRulesVersion(String rulesVersion) {
+		this.rulesVersion = rulesVersion;
+	}
+
+	public Integer getStatus() {
+		return status;
+	}
+
+	public void setStatus(Integer status) {
+		this.status = status;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
 }
@@ -0,0 +1,75 @@
+package com.openclassrooms.medilabo.risk_diabetes.model;
+
+import java.time.LocalDate;
+
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean.Gender;
+
+/**
+ * Données dont dépend le risque de diabète d'un patient : nombre de mots-clés
+ * déclencheurs, date de naissance et genre.
+ *
+ * L'âge n'est pas stocké : il est recalculé à chaque lecture à partir de la
+ * date de naissance. Les instances sont immuables.
+ */
+public class PatientRiskState {
+
+	private final Integer patientId;
+	private final int triggerCount;
+	private final LocalDate birthDate;
+	private final Gender gender;
+
+	public PatientRiskState(Integer patientId, int triggerCount, LocalDate birthDate, Gender gender) {
+		this.patientId = patientId;
+		this.triggerCount = triggerCount;
+		this.birthDate = birthDate;
+		this.gender = gender;
+	}
+
+	public Integer getPatientId() {
+		return patientId;
+	}
+
+	public int getTriggerCount() {
+		return triggerCount;
+	}
+
+	public LocalDate getBirthDate() {
+		return birthDate;
+	}
+
+	public Gender getGender() {
+		return gender;
+	}
+
+	/**
+	 * @param delta variation du nombre de mots-clés
+	 * @return une copie de l'état avec le nombre de mots-clés modifié
+	 */
+	public PatientRiskState withTriggerDelta(int delta) {
+		return new PatientRiskState(patientId, Math.max(0, triggerCount + delta), birthDate, gender);
+	}
+
+	/**
+	 * @param birthDate nouvelle date de naissance
+	 * @param gender    nouveau genre
+	 * @return une copie de l'état avec les informations du patient modifiées
+	 */
+	public PatientRiskState withPatient(LocalDate birthDate, Gender gender) {
+		return new PatientRiskState(patientId, triggerCount, birthDate, gender);
+	}
+
+	/**
+	 * @param other état à comparer
+	 * @return true si les deux états donnent les mêmes entrées au calcul du risque
+	 */
+	public boolean sameAs(PatientRiskState other) {
+		return other != null && triggerCount == other.triggerCount && birthDate.equals(other.birthDate)
+				&& gender == other.gender;
+	}
+
+	@Override
+	public String toString() {
+		return "PatientRiskState[patientId=" + patientId + ", triggerCount=" + triggerCount + ", birthDate="
+				+ birthDate + ", gender=" + gender + "]";
+	}
+}
@@ -0,0 +1,69 @@
+package com.openclassrooms.medilabo.risk_diabetes.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean.Gender;
+import com.openclassrooms.medilabo.risk_diabetes.enums.AgeGroup;
+import com.openclassrooms.medilabo.risk_diabetes.enums.DiabetesRiskLevel;
+
+/**
+ * Règle de risque : si le patient correspond au genre, à la tranche d'âge et à
+ * l'intervalle de mots-clés, le niveau de risque est celui de la règle.
+ *
+ * Un genre ou une tranche d'âge null correspond à tous les patients. Les
+ * bornes du nombre de mots-clés sont incluses ; une borne maximale null
+ * signifie « sans limite ».
+ */
+public class RiskRule {
+
+	private final Gender gender;
+	private final AgeGroup ageGroup;
+	private final int minTriggers;
+	private final Integer maxTriggers;
+	private final DiabetesRiskLevel level;
+
+	@JsonCreator
+	public RiskRule(@JsonProperty("gender") Gender gender, @JsonProperty("ageGroup") AgeGroup ageGroup,
+			@JsonProperty("minTriggers") int minTriggers, @JsonProperty("maxTriggers") Integer maxTriggers,
+			@JsonProperty("level") DiabetesRiskLevel level) {
+		this.gender = gender;
+		this.ageGroup = ageGroup;
+		this.minTriggers = minTriggers;
+		this.maxTriggers = maxTriggers;
+		this.level = level;
+	}
+
+	public Gender getGender() {
+		return gender;
+	}
+
+	public AgeGroup getAgeGroup() {
+		return ageGroup;
+	}
+
+	public int getMinTriggers() {
+		return minTriggers;
+	}
+
+	public Integer getMaxTriggers() {
+		return maxTriggers;
+	}
+
+	public DiabetesRiskLevel getLevel() {
+		return level;
+	}
+
+	/**
+	 * @return true si la règle s'applique à ces critères
+	 */
+	public boolean matches(Gender gender, AgeGroup ageGroup, int triggers) {
+		return (this.gender == null || this.gender == gender) && (this.ageGroup == null || this.ageGroup == ageGroup)
+				&& triggers >= minTriggers && (maxTriggers == null || triggers <= maxTriggers);
+	}
+
+	@Override
+	public String toString() {
+		return "RiskRule[gender=" + gender + ", ageGroup=" + ageGroup + ", triggers=" + minTriggers + ".."
+				+ (maxTriggers == null ? "" : maxTriggers) + ", level=" + level + "]";
+	}
+}
@@ -0,0 +1,59 @@
+package com.openclassrooms.medilabo.risk_diabetes.model;
+
+import java.util.List;
+
+import com.openclassrooms.medilabo.risk_diabetes.enums.DiabetesRiskLevel;
+
+/**
+ * Contenu du fichier de règles de risque (risk-rules.json) : vocabulaire des
+ * mots-clés déclencheurs et règles de décision, identifiés par une version.
+ */
+public class RiskRulesDefinition {
+
+	private String version;
+	private int ageThreshold = 30;
+	private DiabetesRiskLevel fallback = DiabetesRiskLevel.NONE;
+	private List<String> triggerWords;
+	private List<RiskRule> rules;
+
+	public String getVersion() {
+		return version;
+	}
+
+	public void setVersion(String version) {
+		this.version = version;
+	}
+
+	public int getAgeThreshold() {
+		return ageThreshold;
+	}
+
+	public void setAgeThreshold(int ageThreshold) {
+		this.ageThreshold = ageThreshold;
+	}
+
+	public DiabetesRiskLevel getFallback() {
+		return fallback;
+	}
+
+	public void setFallback(DiabetesRiskLevel fallback) {
+		this.fallback = fallback;
+	}
+
+	public List<String> getTriggerWords() {
+		return triggerWords;
+	}
+
+	public void setTriggerWords(List<String> triggerWords) {
+		this.triggerWords = triggerWords;
+	}
+
+	public List<RiskRule> getRules() {
+		return rules;
+	}
+
+	public void setRules(List<RiskRule> rules) {
+		this.rules = rules;
+	}
+
+}
@@ -1,12 +1,18 @@
 package com.openclassrooms.medilabo.risk_diabetes.proxies;
 
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import com.openclassrooms.medilabo.risk_diabetes.beans.NoteBean;
+import com.openclassrooms.medilabo.risk_diabetes.beans.TriggerCountBean;
+
+import feign.Response;
 
 /**
  * Proxy Feign pour interagir avec le microservice de gestion des notes
@@ -30,4 +36,45 @@ public interface MicroserviceNotesProxy {
 	@GetMapping(value = "/notes/patient/{patientId}")
 	List<NoteBean> getNotesByPatientId(@PathVariable("patientId") String patientId);
 
+	/**
+	 * Récupère les notes d’un patient sous forme de flux NDJSON (une note par
+	 * ligne). La réponse n’est pas désérialisée par Feign : le corps doit être
+	 * lu puis fermé par l’appelant.
+	 *
+	 * @param patientId identifiant du patient
+	 * @return la réponse HTTP brute
+	 */
+	@GetMapping(value = "/notes/patient/{patientId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	Response streamNotesByPatientId(@PathVariable("patientId") String patientId);
+
+	/**
+	 * Récupère le nombre de mots-clés déclencheurs relevés dans les notes d’un
+	 * patient, sans transférer le contenu des notes.
+	 *
+	 * @param patientId identifiant du patient
+	 * @return un TriggerCountBean contenant le nombre de mots-clés
+	 */
+	@GetMapping(value = "/notes/patient/{patientId}/triggers")
+	TriggerCountBean getTriggerCountByPatientId(@PathVariable("patientId") String patientId);
+
+	/**
+	 * Récupère en une seule requête les notes de plusieurs patients.
+	 *
+	 * @param patientIds identifiants des patients
+	 * @return les notes regroupées par identifiant de patient
+	 */
+	@GetMapping(value = "/notes/patients")
+	Map<String, List<NoteBean>> getNotesByPatientIds(@RequestParam("ids") List<String> patientIds);
+
+	/**
+	 * Récupère en une seule requête les notes de plusieurs patients, réduites à
+	 * leur nombre de mots-clés déclencheurs : le contenu des notes n'est pas
+	 * transféré.
+	 *
+	 * @param patientIds identifiants des patients
+	 * @return les notes regroupées par identifiant de patient
+	 */
+	@GetMapping(value = "/notes/patients?fields=TRIGGERS")
+	Map<String, List<NoteBean>> getNoteTriggersByPatientIds(@RequestParam("ids") List<String> patientIds);
+
 }
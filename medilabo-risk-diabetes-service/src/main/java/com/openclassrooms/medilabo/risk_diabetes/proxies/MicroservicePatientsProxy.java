@@ -1,9 +1,14 @@
 package com.openclassrooms.medilabo.risk_diabetes.proxies;
 
+import java.util.List;
+
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBatchBean;
 import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean;
 
 /**
@@ -16,6 +21,14 @@ import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean;
 @FeignClient(name = "medilabo-patient-service")
 public interface MicroservicePatientsProxy {
 
+	/**
+	 * Récupère la liste de tous les patients.
+	 *
+	 * @return liste des PatientBean existants
+	 */
+	@GetMapping(value = "/patient/all")
+	List<PatientBean> getAllPatients();
+
 	/**
 	 * Récupère les informations d’un patient à partir de son identifiant unique.
 	 *
@@ -24,4 +37,15 @@ public interface MicroservicePatientsProxy {
 	 */
 	@GetMapping(value = "/patient/{id}")
 	PatientBean getPatientById(@PathVariable("id") Integer id);
+
+	/**
+	 * Récupère en une seule requête l'identifiant, la date de naissance et le
+	 * genre de plusieurs patients.
+	 *
+	 * @param ids identifiants des patients
+	 * @return les PatientBean trouvés, réduits à ces champs, et les identifiants
+	 *         inconnus
+	 */
+	@PostMapping(value = "/patient/lookup?fields=RISK")
+	PatientBatchBean getPatientsByIds(@RequestBody List<Integer> ids);
 }
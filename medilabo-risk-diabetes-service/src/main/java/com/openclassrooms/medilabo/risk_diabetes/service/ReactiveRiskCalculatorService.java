@@ -0,0 +1,151 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.openclassrooms.medilabo.risk_diabetes.beans.NoteBean;
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean;
+import com.openclassrooms.medilabo.risk_diabetes.beans.TriggerCountBean;
+import com.openclassrooms.medilabo.risk_diabetes.enums.TriggerSource;
+import com.openclassrooms.medilabo.risk_diabetes.exception.DownstreamServiceException;
+import com.openclassrooms.medilabo.risk_diabetes.model.PatientRiskLevel;
+import com.openclassrooms.medilabo.risk_diabetes.model.PatientRiskState;
+import com.openclassrooms.medilabo.risk_diabetes.service.RiskCalculatorService.TriggerCounter;
+
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+
+/**
+ * Version non bloquante du calcul du risque, utilisée par le mode réactif.
+ *
+ * Les appels aux services de notes et de patients passent par WebClient : aucun
+ * thread n'est occupé pendant l'attente des réponses. Le calcul lui-même
+ * (mots-clés et niveau de risque) est celui de RiskCalculatorService, ce qui
+ * garantit des résultats identiques au mode bloquant.
+ */
+@Service
+public class ReactiveRiskCalculatorService {
+
+	@Autowired
+	private RiskCalculatorService calculatorService;
+
+	@Autowired
+	private RiskStateService riskStateService;
+
+	@Autowired
+	private RiskRulesService rulesService;
+
+	@Autowired
+	private RiskMetrics metrics;
+
+	@Autowired
+	@Qualifier("notesWebClient")
+	private WebClient notesWebClient;
+
+	@Autowired
+	@Qualifier("patientsWebClient")
+	private WebClient patientsWebClient;
+
+	@Value("${risk.fetch.timeout-ms:2000}")
+	private long fetchTimeoutMs;
+
+	@Value("${risk.notes.trigger-source:PRECOMPUTED}")
+	private TriggerSource triggerSource;
+
+	/**
+	 * Calcule le niveau de risque d'un patient, à partir de la table
+	 * matérialisée si le patient y figure.
+	 *
+	 * @param patientId identifiant du patient
+	 * @return le niveau de risque, ou une DownstreamServiceException
+	 */
+	public Mono<PatientRiskLevel> calculatePatientRiskLevel(String patientId) {
+		return Mono.defer(() -> {
+			PatientRiskState state = riskStateService.findState(patientId);
+			if (state != null) {
+				return Mono.just(state);
+			}
+			return loadAndStore(patientId, 1);
+		}).map(calculatorService::toPatientRiskLevel);
+	}
+
+	/**
+	 * Charge l'état d'un patient et le place dans la table, en le rechargeant si
+	 * une notification est arrivée pendant le chargement (voir
+	 * RiskStateService.endLoad).
+	 */
+	private Mono<PatientRiskState> loadAndStore(String patientId, int attempt) {
+		return Mono.defer(() -> {
+			Integer id = Integer.valueOf(patientId);
+			long ticket = riskStateService.beginLoad(id);
+			AtomicBoolean ended = new AtomicBoolean();
+			return loadPatientState(patientId).flatMap(state -> {
+				if (!ended.compareAndSet(false, true)) {
+					return Mono.<PatientRiskState>empty();
+				}
+				boolean stored = riskStateService.endLoad(id, ticket, state);
+				return stored || attempt >= RiskStateService.MAX_LOAD_ATTEMPTS ? Mono.just(state)
+						: loadAndStore(patientId, attempt + 1);
+			}).doFinally(signal -> {
+				// Échec ou annulation : le chargement doit tout de même être terminé
+				if (ended.compareAndSet(false, true)) {
+					riskStateService.endLoad(id, ticket, null);
+				}
+			});
+		});
+	}
+
+	/**
+	 * Récupère en parallèle, sans bloquer, les données dont dépend le risque
+	 * d'un patient.
+	 *
+	 * @param patientId identifiant du patient
+	 * @return l'état du patient
+	 */
+	public Mono<PatientRiskState> loadPatientState(String patientId) {
+		Integer id = Integer.parseInt(patientId);
+		boolean precomputed = triggerSource == TriggerSource.PRECOMPUTED
+				&& rulesService.getCurrent().isDefaultVocabulary();
+		Mono<Integer> counter = precomputed
+				? notesWebClient.get().uri("/notes/patient/{patientId}/triggers", patientId).retrieve()
+						.bodyToMono(TriggerCountBean.class).map(TriggerCountBean::getTriggerCount)
+				: notesWebClient.get().uri("/notes/patient/{patientId}", patientId)
+						.accept(MediaType.APPLICATION_NDJSON).retrieve().bodyToFlux(NoteBean.class)
+						.reduceWith(calculatorService::newTriggerCounter, TriggerCounter::add)
+						.map(TriggerCounter::finish);
+		Mono<PatientBean> patient = patientsWebClient.get().uri("/patient/{id}", id).retrieve()
+				.bodyToMono(PatientBean.class)
+				.switchIfEmpty(Mono.error(() -> new DownstreamServiceException(HttpStatus.NOT_FOUND,
+						"Ressource introuvable sur le service " + RiskCalculatorService.PATIENT_SERVICE, null)));
+
+		return Mono
+				.zip(fetch(RiskCalculatorService.NOTE_SERVICE, metrics.notesFetch(), counter.defaultIfEmpty(0)),
+						fetch(RiskCalculatorService.PATIENT_SERVICE, metrics.patientFetch(), patient))
+				.map(result -> new PatientRiskState(id, result.getT1(), result.getT2().getBirthDate(),
+						result.getT2().getGender()));
+	}
+
+	/**
+	 * Applique à un appel le délai maximal, la traduction des erreurs et les
+	 * métriques du mode bloquant.
+	 */
+	private <T> Mono<T> fetch(String service, Timer stage, Mono<T> call) {
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			return call.timeout(Duration.ofMillis(fetchTimeoutMs))
+					.onErrorMap(ex -> RiskCalculatorService.toDownstreamException(service, ex))
+					.doOnSuccess(result -> metrics.recordDownstream(service, start, null))
+					.doOnError(DownstreamServiceException.class,
+							failure -> metrics.recordDownstream(service, start, failure))
+					.doFinally(signal -> stage.record(Duration.ofNanos(System.nanoTime() - start)));
+		});
+	}
+}
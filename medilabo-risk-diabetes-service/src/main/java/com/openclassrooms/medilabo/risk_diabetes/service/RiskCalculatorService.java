@@ -1,45 +1,130 @@
 package com.openclassrooms.medilabo.risk_diabetes.service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.Period;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.openclassrooms.medilabo.risk_diabetes.beans.NoteBean;
 import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean;
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean.Gender;
 import com.openclassrooms.medilabo.risk_diabetes.enums.DiabetesRiskLevel;
+import com.openclassrooms.medilabo.risk_diabetes.enums.TriggerSource;
+import com.openclassrooms.medilabo.risk_diabetes.exception.DownstreamServiceException;
 import com.openclassrooms.medilabo.risk_diabetes.model.PatientRiskLevel;
+import com.openclassrooms.medilabo.risk_diabetes.model.PatientRiskState;
 import com.openclassrooms.medilabo.risk_diabetes.proxies.MicroserviceNotesProxy;
 import com.openclassrooms.medilabo.risk_diabetes.proxies.MicroservicePatientsProxy;
 
+import feign.FeignException;
+import feign.Response;
+import io.micrometer.core.instrument.Timer;
+
 /**
  * Service responsable du calcul du risque de diabète pour un patient donné.
  * 
  * Il interagit avec les microservices suivants :
  * 
- * MicroserviceNotesProxy pour récupérer les notes du patient
+ * MicroserviceNotesProxy pour récupérer les notes du patient, ou directement
+ * le nombre de mots-clés relevés à l’enregistrement des notes
  * MicroservicePatientsProxy pour récupérer les informations du patient
  * 
  * 
  * Le calcul repose sur la détection de mots-clés dans les notes du patient,
  * ainsi que sur l’âge et le genre du patient.
+ * 
+ * Les deux appels sont lancés en parallèle sur un pool borné, chacun avec son
+ * propre délai maximal : la latence est celle de l’appel le plus lent et le
+ * premier échec interrompt le calcul.
+ * 
+ * Les résultats individuels sont mis en cache (cache "riskLevels") et
+ * invalidés par les notifications de modification reçues des services notes et
+ * patients.
  */
 @Service
 public class RiskCalculatorService {
 
+	/**
+	 * Nom du cache des niveaux de risque, indexé par identifiant de patient.
+	 */
+	public static final String RISK_LEVELS_CACHE = "riskLevels";
+
+	static final String NOTE_SERVICE = "medilabo-note-service";
+
+	static final String PATIENT_SERVICE = "medilabo-patient-service";
+
+	private static final Logger logger = LogManager.getLogger(RiskCalculatorService.class);
+
+	/**
+	 * Lecteur des notes reçues en NDJSON, une valeur JSON après l'autre.
+	 */
+	private static final ObjectReader NOTE_READER = JsonMapper.builder()
+			.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).build().readerFor(NoteBean.class);
+
 	@Autowired
 	private MicroserviceNotesProxy notesProxy;
 
 	@Autowired
 	private MicroservicePatientsProxy patientsProxy;
 
+	@Autowired
+	@Qualifier("riskFetchExecutor")
+	private Executor fetchExecutor;
+
+	@Value("${risk.fetch.timeout-ms:2000}")
+	private long fetchTimeoutMs;
+
+	@Value("${risk.batch.chunk-size:500}")
+	private int batchChunkSize;
+
+	@Value("${risk.notes.trigger-source:PRECOMPUTED}")
+	private TriggerSource triggerSource;
+
 	/**
-	 * Liste des mots-clés déclencheurs pour le calcul du risque.
+	 * Règles en service. Null lorsque le service est instancié hors de Spring :
+	 * les règles intégrées sont alors utilisées.
 	 */
-	private static final List<String> TRIGGER_WORDS = List.of("hémoglobine a1c", "microalbumine", "taille", "poids",
-			"fumeur", "fumeuse", "anormal", "cholestérol", "vertiges", "rechute", "réaction", "anticorps");
+	@Autowired
+	private RiskRulesService rulesService;
+
+	private final RiskMetrics metrics;
+
+	public RiskCalculatorService(RiskMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	private RiskRules rules() {
+		return rulesService == null ? RiskRules.DEFAULT : rulesService.getCurrent();
+	}
 
 	/**
 	 * Calcule le niveau de risque de diabète pour un patient à partir de son
@@ -49,73 +134,387 @@ public class RiskCalculatorService {
 	 * @return PatientRiskLevel contenant le risque calculé et le nombre de
 	 *         mots-clés détectés
 	 */
+	@Cacheable(cacheNames = RISK_LEVELS_CACHE, key = "#patientId")
 	public PatientRiskLevel calculatePatientRiskLevel(String patientId) {
-		List<NoteBean> notes = notesProxy.getNotesByPatientId(patientId);
-		PatientBean patient = patientsProxy.getPatientById(Integer.parseInt(patientId));
-		LocalDate birthdate = patient.getBirthDate();
-		int age = calculateAge(birthdate);
-		String gender = patient.getGender().name();
+		return toPatientRiskLevel(loadPatientState(patientId));
+	}
 
-		Integer counter = 0;
-		for (NoteBean note : notes) {
-			String content = note.getNote().toLowerCase();
-			for (String triggerWord : TRIGGER_WORDS) {
-				if (content.contains(triggerWord)) {
-					counter++;
-				}
+	/**
+	 * Récupère auprès des services de notes et de patients les données dont
+	 * dépend le risque d'un patient, sans passer par le cache.
+	 *
+	 * @param patientId identifiant du patient
+	 * @return PatientRiskState du patient
+	 */
+	public PatientRiskState loadPatientState(String patientId) {
+		Integer id = Integer.parseInt(patientId);
+		// Les comptes enregistrés par le service de notes reposent sur le vocabulaire
+		// par défaut
+		boolean precomputed = triggerSource == TriggerSource.PRECOMPUTED && rules().isDefaultVocabulary();
+		CompletableFuture<Integer> counterFuture = precomputed
+				? fetchAsync(NOTE_SERVICE, metrics.notesFetch(),
+						() -> notesProxy.getTriggerCountByPatientId(patientId).getTriggerCount())
+				: fetchAsync(NOTE_SERVICE, metrics.notesFetch(), () -> countStreamedTriggerWords(patientId));
+		CompletableFuture<PatientBean> patientFuture = fetchAsync(PATIENT_SERVICE, metrics.patientFetch(),
+				() -> patientsProxy.getPatientById(id));
+		awaitAll(counterFuture, patientFuture);
+
+		PatientBean patient = patientFuture.join();
+		return new PatientRiskState(id, counterFuture.join(), patient.getBirthDate(), patient.getGender());
+	}
+
+	/**
+	 * Vérifie qu'une liste d'identifiants peut être traitée par lots.
+	 *
+	 * @param patientIds identifiants des patients
+	 * @return true si la liste est renseignée et ne contient que des
+	 *         identifiants numériques
+	 */
+	public static boolean isValidPatientIds(List<String> patientIds) {
+		if (patientIds == null) {
+			return false;
+		}
+		for (String patientId : patientIds) {
+			try {
+				Integer.parseInt(patientId);
+			} catch (NumberFormatException e) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Calcule le niveau de risque de diabète de nombreux patients.
+	 *
+	 * Les patients inconnus du service patients sont ignorés. Lorsqu'un lot
+	 * échoue, chacun de ses patients est rapporté avec le statut et le message de
+	 * l'erreur, et le calcul se poursuit avec le lot suivant.
+	 *
+	 * @param patientIds identifiants des patients, validés au préalable
+	 * @param consumer   reçoit les résultats de chaque lot, dans l'ordre des
+	 *                   identifiants
+	 * @see #loadPatientStates(List, Consumer, BiConsumer)
+	 */
+	public void calculatePatientRiskLevels(List<String> patientIds, Consumer<List<PatientRiskLevel>> consumer) {
+		loadPatientStates(patientIds,
+				states -> consumer.accept(states.stream().map(this::toPatientRiskLevel).toList()),
+				(chunk, e) -> {
+					logger.warn("Échec du calcul du risque pour les patients {} : {}", chunk, e.getMessage());
+					consumer.accept(chunk.stream().map(patientId -> toFailure(patientId, e)).toList());
+				});
+	}
+
+	private static PatientRiskLevel toFailure(String patientId, DownstreamServiceException e) {
+		PatientRiskLevel failure = new PatientRiskLevel();
+		failure.setPatientId(patientId);
+		failure.setStatus(e.getStatus().value());
+		failure.setError(e.getMessage());
+		return failure;
+	}
+
+	/**
+	 * Récupère les données dont dépend le risque de nombreux patients ; le
+	 * premier lot en échec interrompt le traitement.
+	 *
+	 * @param patientIds identifiants des patients
+	 * @param consumer   reçoit les états de chaque lot, dans l'ordre des
+	 *                   identifiants
+	 * @see #loadPatientStates(List, Consumer, BiConsumer)
+	 */
+	public void loadPatientStates(List<String> patientIds, Consumer<List<PatientRiskState>> consumer) {
+		loadPatientStates(patientIds, consumer, (chunk, e) -> {
+			throw e;
+		});
+	}
+
+	/**
+	 * Récupère les données dont dépend le risque de nombreux patients.
+	 *
+	 * Les identifiants sont traités par lots : pour chaque lot, les patients et
+	 * leurs notes sont récupérés en deux requêtes groupées, puis le lot est
+	 * transmis au consommateur avant de passer au suivant. Comme pour un seul
+	 * patient, les notes sont réduites à leurs nombres de mots-clés
+	 * précalculés ; elles ne sont transférées et analysées en parallèle qu'en
+	 * mode SCAN ou avec un vocabulaire modifié. La mémoire utilisée ne dépend
+	 * donc que de la taille d'un lot.
+	 *
+	 * @param patientIds     identifiants des patients
+	 * @param consumer       reçoit les états de chaque lot, dans l'ordre des
+	 *                       identifiants
+	 * @param onChunkFailure reçoit les identifiants d'un lot dont un appel a
+	 *                       échoué, avec l'erreur correspondante
+	 */
+	public void loadPatientStates(List<String> patientIds, Consumer<List<PatientRiskState>> consumer,
+			BiConsumer<List<String>, DownstreamServiceException> onChunkFailure) {
+		for (int from = 0; from < patientIds.size(); from += batchChunkSize) {
+			List<String> chunk = patientIds.subList(from, Math.min(from + batchChunkSize, patientIds.size()));
+			List<PatientRiskState> states;
+			try {
+				states = loadChunk(chunk);
+			} catch (DownstreamServiceException e) {
+				onChunkFailure.accept(chunk, e);
+				continue;
 			}
+			consumer.accept(states);
 		}
-		DiabetesRiskLevel risk = riskLevel(counter, age, gender);
+	}
+
+	private List<PatientRiskState> loadChunk(List<String> chunk) {
+		List<Integer> ids = new ArrayList<>(chunk.size());
+		for (String patientId : chunk) {
+			ids.add(Integer.parseInt(patientId));
+		}
+
+		boolean precomputed = triggerSource == TriggerSource.PRECOMPUTED && rules().isDefaultVocabulary();
+		CompletableFuture<Map<String, List<NoteBean>>> notesFuture = fetchAsync(NOTE_SERVICE, metrics.notesFetch(),
+				precomputed ? () -> notesProxy.getNoteTriggersByPatientIds(chunk)
+						: () -> notesProxy.getNotesByPatientIds(chunk));
+		CompletableFuture<List<PatientBean>> patientsFuture = fetchAsync(PATIENT_SERVICE, metrics.patientFetch(),
+				() -> patientsProxy.getPatientsByIds(ids).getPatients());
+		awaitAll(notesFuture, patientsFuture);
+
+		Map<String, List<NoteBean>> notesByPatient = notesFuture.join();
+		Map<String, PatientBean> patients = patientsFuture.join().stream()
+				.collect(Collectors.toMap(patient -> String.valueOf(patient.getId()), Function.identity()));
+
+		return chunk.parallelStream().filter(patients::containsKey).map(patientId -> {
+			PatientBean patient = patients.get(patientId);
+			List<NoteBean> notes = notesByPatient.getOrDefault(patientId, List.of());
+			int counter = precomputed ? sumTriggerCounts(notes) : countTriggerWords(notes);
+			return new PatientRiskState(patient.getId(), counter, patient.getBirthDate(), patient.getGender());
+		}).toList();
+	}
+
+	/**
+	 * Additionne les nombres de mots-clés relevés par le service de notes.
+	 */
+	private static int sumTriggerCounts(List<NoteBean> notes) {
+		int counter = 0;
+		for (NoteBean note : notes) {
+			counter += note.getTriggerCount() == null ? 0 : note.getTriggerCount();
+		}
+		return counter;
+	}
+
+	/**
+	 * Calcule le niveau de risque correspondant à l'état d'un patient, l'âge étant
+	 * évalué à la date du jour.
+	 *
+	 * @param state données du patient
+	 * @return PatientRiskLevel contenant le risque calculé
+	 */
+	public PatientRiskLevel toPatientRiskLevel(PatientRiskState state) {
+		long start = System.nanoTime();
+		RiskRules rules = rules();
+		int age = calculateAge(state.getBirthDate());
+		int counter = state.getTriggerCount();
+
+		DiabetesRiskLevel risk = rules.getDecisionTable().level(state.getGender(), age, counter);
 		PatientRiskLevel patientRiskLevel = new PatientRiskLevel();
-		patientRiskLevel.setPatientId(patientId);
+		patientRiskLevel.setPatientId(String.valueOf(state.getPatientId()));
 		patientRiskLevel.setDiabetesRiskLevel(risk);
 		patientRiskLevel.setTriggerWordsCounter(counter);
+		patientRiskLevel.setRulesVersion(rules.getVersion());
+		metrics.scoring().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
 		return patientRiskLevel;
 	}
 
 	/**
-	 * Détermine le niveau de risque en fonction du nombre de mots-clés, de l'âge et
-	 * du genre.
+	 * Lance un appel à un microservice sur le pool dédié, borné par le délai
+	 * maximal configuré.
 	 *
-	 * @param counter nombre de mots-clés détectés
-	 * @param age     âge du patient
-	 * @param gender  genre du patient ("M" ou "F")
-	 * @return DiabetesRiskLevel correspondant au risque
+	 * La durée de l'appel, file d'attente comprise, est enregistrée dans le
+	 * compteur de l'étape et dans les métriques du microservice appelé.
+	 *
+	 * @param service  nom du microservice appelé (pour les messages d'erreur)
+	 * @param stage    compteur de l'étape du calcul
+	 * @param supplier appel à effectuer
+	 * @return le futur du résultat, en échec avec une DownstreamServiceException
 	 */
-	public DiabetesRiskLevel riskLevel(Integer counter, int age, String gender) {
-
-		if (gender.contains("M") && age < 30 && counter >= 5) {
-			return DiabetesRiskLevel.EARLYONSET;
+	private <T> CompletableFuture<T> fetchAsync(String service, Timer stage, Supplier<T> supplier) {
+		long start = System.nanoTime();
+		CompletableFuture<T> future;
+		try {
+			future = CompletableFuture.supplyAsync(supplier, fetchExecutor);
+		} catch (RejectedExecutionException e) {
+			DownstreamServiceException rejected = new DownstreamServiceException(HttpStatus.SERVICE_UNAVAILABLE,
+					"Trop de calculs de risque en cours, appel à " + service + " refusé", e);
+			metrics.recordDownstream(service, start, rejected);
+			throw rejected;
 		}
+		return future.orTimeout(fetchTimeoutMs, TimeUnit.MILLISECONDS).handle((result, ex) -> {
+			stage.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			if (ex != null) {
+				DownstreamServiceException failure = toDownstreamException(service, ex);
+				metrics.recordDownstream(service, start, failure);
+				throw failure;
+			}
+			metrics.recordDownstream(service, start, null);
+			return result;
+		});
+	}
 
-		else if (gender.contains("F") && age < 30 && counter >= 7) {
-			return DiabetesRiskLevel.EARLYONSET;
+	/**
+	 * Attend la fin de tous les appels, ou le premier échec sans attendre les
+	 * autres appels.
+	 *
+	 * @param futures appels en cours
+	 */
+	private void awaitAll(CompletableFuture<?>... futures) {
+		CompletableFuture<Void> firstFailure = new CompletableFuture<>();
+		for (CompletableFuture<?> future : futures) {
+			future.whenComplete((result, ex) -> {
+				if (ex != null) {
+					firstFailure.completeExceptionally(ex);
+				}
+			});
 		}
+		CompletableFuture.allOf(futures).thenRun(() -> firstFailure.complete(null));
+		try {
+			firstFailure.join();
+		} catch (CompletionException e) {
+			for (CompletableFuture<?> future : futures) {
+				future.cancel(true);
+			}
+			if (e.getCause() instanceof DownstreamServiceException downstream) {
+				throw downstream;
+			}
+			throw e;
+		}
+	}
 
-		else if (counter >= 8 && age >= 30) {
-			return DiabetesRiskLevel.EARLYONSET;
+	/**
+	 * Traduit l'échec d'un appel (Feign ou WebClient) en
+	 * DownstreamServiceException.
+	 *
+	 * @param service nom du microservice appelé
+	 * @param ex      exception de l'appel
+	 * @return exception portant le statut HTTP à renvoyer
+	 */
+	static DownstreamServiceException toDownstreamException(String service, Throwable ex) {
+		Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+		if (cause instanceof DownstreamServiceException downstream) {
+			return downstream;
+		}
+		if (cause instanceof TimeoutException) {
+			return new DownstreamServiceException(HttpStatus.GATEWAY_TIMEOUT,
+					"Le service " + service + " n'a pas répondu à temps", cause);
 		}
+		if ((cause instanceof FeignException feign && feign.status() == HttpStatus.NOT_FOUND.value())
+				|| cause instanceof WebClientResponseException.NotFound) {
+			return new DownstreamServiceException(HttpStatus.NOT_FOUND,
+					"Ressource introuvable sur le service " + service, cause);
+		}
+		return new DownstreamServiceException(HttpStatus.BAD_GATEWAY,
+				"Échec de l'appel au service " + service + " : " + cause.getMessage(), cause);
+	}
 
-		else if (gender.contains("M") && age < 30 && counter >= 3) {
-			return DiabetesRiskLevel.INDANGER;
+	/**
+	 * Compte les mots-clés déclencheurs présents dans les notes d'un patient.
+	 * Chaque mot-clé n'est compté qu'une fois par note.
+	 *
+	 * @param notes notes du patient
+	 * @return nombre total de mots-clés détectés
+	 */
+	public int countTriggerWords(List<NoteBean> notes) {
+		return countTriggerWords(notes.iterator());
+	}
+
+	/**
+	 * Compte les mots-clés déclencheurs d'un flux de notes, note par note :
+	 * chaque note peut être libérée dès qu'elle a été analysée.
+	 *
+	 * @param notes notes du patient
+	 * @return nombre total de mots-clés détectés
+	 */
+	public int countTriggerWords(Iterator<NoteBean> notes) {
+		TriggerCounter counter = newTriggerCounter();
+		while (notes.hasNext()) {
+			counter.add(notes.next());
 		}
+		return counter.finish();
+	}
 
-		else if (gender.contains("F") && age < 30 && counter >= 4) {
-			return DiabetesRiskLevel.INDANGER;
+	/**
+	 * @return un compteur de mots-clés utilisant les règles en service
+	 */
+	public TriggerCounter newTriggerCounter() {
+		return new TriggerCounter(rules().getMatcher());
+	}
+
+	/**
+	 * Lit le flux NDJSON des notes d'un patient et compte les mots-clés au fil de
+	 * la lecture : la mémoire utilisée ne dépend pas du nombre de notes.
+	 *
+	 * @param patientId identifiant du patient
+	 * @return nombre total de mots-clés détectés
+	 */
+	private int countStreamedTriggerWords(String patientId) {
+		try (Response response = notesProxy.streamNotesByPatientId(patientId)) {
+			if (response.status() >= HttpStatus.MULTIPLE_CHOICES.value()) {
+				throw FeignException.errorStatus("MicroserviceNotesProxy#streamNotesByPatientId", response);
+			}
+			if (response.body() == null) {
+				return 0;
+			}
+			try (MappingIterator<NoteBean> notes = NOTE_READER.readValues(response.body().asInputStream())) {
+				return countTriggerWords(notes);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
+	}
+
+	/**
+	 * Accumule les mots-clés de notes reçues une à une. Les métriques (durée de
+	 * détection, nombre et longueur des notes) sont enregistrées par finish().
+	 */
+	public final class TriggerCounter {
+
+		private final TriggerWordMatcher matcher;
+		private int counter;
+		private int notes;
+		private long matchingNanos;
 
-		else if (counter == 6 || counter == 7 && age >= 30) {
-			return DiabetesRiskLevel.INDANGER;
+		private TriggerCounter(TriggerWordMatcher matcher) {
+			this.matcher = matcher;
 		}
 
-		else if (counter >= 2 && counter <= 5 && age >= 30) {
-			return DiabetesRiskLevel.BORDERLINE;
+		/**
+		 * @param note note à analyser
+		 * @return ce compteur
+		 */
+		public TriggerCounter add(NoteBean note) {
+			long start = System.nanoTime();
+			counter += matcher.count(note.getNote());
+			matchingNanos += System.nanoTime() - start;
+			notes++;
+			metrics.recordNote(note);
+			return this;
 		}
 
-		else {
-			return DiabetesRiskLevel.NONE;
+		/**
+		 * @return nombre total de mots-clés détectés
+		 */
+		public int finish() {
+			metrics.matching().record(matchingNanos, TimeUnit.NANOSECONDS);
+			metrics.recordNotesPerPatient(notes);
+			return counter;
 		}
+	}
 
+	/**
+	 * Détermine le niveau de risque en fonction du nombre de mots-clés, de l'âge et
+	 * du genre, à partir de la table de décision.
+	 *
+	 * @param counter nombre de mots-clés détectés
+	 * @param age     âge du patient
+	 * @param gender  genre du patient ("M" ou "F")
+	 * @return DiabetesRiskLevel correspondant au risque
+	 */
+	public DiabetesRiskLevel riskLevel(Integer counter, int age, String gender) {
+		return rules().getDecisionTable().level(Gender.valueOf(gender), age, counter);
 	}
 
 	/**
@@ -0,0 +1,126 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import java.util.List;
+
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean.Gender;
+import com.openclassrooms.medilabo.risk_diabetes.enums.AgeGroup;
+import com.openclassrooms.medilabo.risk_diabetes.enums.DiabetesRiskLevel;
+import com.openclassrooms.medilabo.risk_diabetes.model.RiskRule;
+
+/**
+ * Table de décision du risque de diabète, compilée à partir d'une liste
+ * ordonnée de règles (la première règle applicable l'emporte).
+ *
+ * Toutes les combinaisons (genre, tranche d'âge, nombre de mots-clés) sont
+ * évaluées une seule fois à la construction. Au-delà de la plus grande borne
+ * citée par les règles, le résultat ne dépend plus du nombre de mots-clés : le
+ * compteur est donc borné, et une évaluation se résume à une lecture de
+ * tableau, sans conversion ni comparaison de chaînes.
+ *
+ * Les instances sont immuables et peuvent être partagées entre threads.
+ */
+public final class RiskDecisionTable {
+
+	/**
+	 * Âge à partir duquel un patient appartient à la tranche OLDER.
+	 */
+	public static final int DEFAULT_AGE_THRESHOLD = 30;
+
+	/**
+	 * Règles historiques de l'application, dans leur ordre d'évaluation.
+	 */
+	public static final List<RiskRule> DEFAULT_RULES = List.of(
+			new RiskRule(Gender.M, AgeGroup.YOUNGER, 5, null, DiabetesRiskLevel.EARLYONSET),
+			new RiskRule(Gender.F, AgeGroup.YOUNGER, 7, null, DiabetesRiskLevel.EARLYONSET),
+			new RiskRule(null, AgeGroup.OLDER, 8, null, DiabetesRiskLevel.EARLYONSET),
+			new RiskRule(Gender.M, AgeGroup.YOUNGER, 3, null, DiabetesRiskLevel.INDANGER),
+			new RiskRule(Gender.F, AgeGroup.YOUNGER, 4, null, DiabetesRiskLevel.INDANGER),
+			// counter == 6 || counter == 7 && age >= 30
+			new RiskRule(null, null, 6, 6, DiabetesRiskLevel.INDANGER),
+			new RiskRule(null, AgeGroup.OLDER, 7, 7, DiabetesRiskLevel.INDANGER),
+			new RiskRule(null, AgeGroup.OLDER, 2, 5, DiabetesRiskLevel.BORDERLINE));
+
+	private static final DiabetesRiskLevel[] LEVELS = DiabetesRiskLevel.values();
+
+	private static final int GENDERS = Gender.values().length;
+
+	private static final int AGE_GROUPS = AgeGroup.values().length;
+
+	private final int ageThreshold;
+
+	/**
+	 * Nombre de mots-clés à partir duquel le résultat ne change plus.
+	 */
+	private final int maxCounter;
+
+	/**
+	 * Niveau de risque (ordinal) : (gender * AGE_GROUPS + ageGroup) * (maxCounter
+	 * + 1) + counter.
+	 */
+	private final byte[] levels;
+
+	/**
+	 * Compile une liste de règles.
+	 *
+	 * @param rules        règles dans leur ordre d'évaluation
+	 * @param ageThreshold âge à partir duquel un patient est dans la tranche
+	 *                     OLDER
+	 * @param fallback     niveau retenu si aucune règle ne s'applique
+	 */
+	public RiskDecisionTable(List<RiskRule> rules, int ageThreshold, DiabetesRiskLevel fallback) {
+		this.ageThreshold = ageThreshold;
+		int bound = 0;
+		for (RiskRule rule : rules) {
+			bound = Math.max(bound, rule.getMinTriggers());
+			if (rule.getMaxTriggers() != null) {
+				bound = Math.max(bound, rule.getMaxTriggers() + 1);
+			}
+		}
+		this.maxCounter = bound;
+		this.levels = new byte[GENDERS * AGE_GROUPS * (maxCounter + 1)];
+
+		for (Gender gender : Gender.values()) {
+			for (AgeGroup ageGroup : AgeGroup.values()) {
+				for (int counter = 0; counter <= maxCounter; counter++) {
+					DiabetesRiskLevel level = fallback;
+					for (RiskRule rule : rules) {
+						if (rule.matches(gender, ageGroup, counter)) {
+							level = rule.getLevel();
+							break;
+						}
+					}
+					levels[index(gender.ordinal(), ageGroup.ordinal(), counter)] = (byte) level.ordinal();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return la table des règles historiques de l'application
+	 */
+	public static RiskDecisionTable defaultTable() {
+		return new RiskDecisionTable(DEFAULT_RULES, DEFAULT_AGE_THRESHOLD, DiabetesRiskLevel.NONE);
+	}
+
+	private int index(int gender, int ageGroup, int counter) {
+		return (gender * AGE_GROUPS + ageGroup) * (maxCounter + 1) + counter;
+	}
+
+	/**
+	 * Détermine le niveau de risque d'un patient.
+	 *
+	 * @param gender  genre du patient
+	 * @param age     âge du patient
+	 * @param counter nombre de mots-clés détectés
+	 * @return DiabetesRiskLevel correspondant au risque
+	 */
+	public DiabetesRiskLevel level(Gender gender, int age, int counter) {
+		int ageGroup = age < ageThreshold ? 0 : 1;
+		int clamped = counter < 0 ? 0 : Math.min(counter, maxCounter);
+		return LEVELS[levels[index(gender.ordinal(), ageGroup, clamped)]];
+	}
+
+	public int getAgeThreshold() {
+		return ageThreshold;
+	}
+}
@@ -0,0 +1,54 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.openclassrooms.medilabo.risk_diabetes.beans.NoteChangedEventBean;
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientChangedEventBean;
+import com.openclassrooms.medilabo.risk_diabetes.event.RiskRulesChangedEvent;
+
+/**
+ * Service traitant les notifications de modification envoyées par les
+ * microservices de notes et de patients.
+ *
+ * Chaque notification invalide le niveau de risque mis en cache pour le
+ * patient concerné et met à jour la table matérialisée des risques.
+ */
+@Service
+public class RiskEventService {
+
+	@Autowired
+	private RiskStateService riskStateService;
+
+	/**
+	 * Traite la création ou la modification d'une note.
+	 *
+	 * @param event notification du microservice de notes
+	 */
+	@CacheEvict(cacheNames = RiskCalculatorService.RISK_LEVELS_CACHE, key = "#event.patientId")
+	public void onNoteChanged(NoteChangedEventBean event) {
+		riskStateService.onNoteChanged(event);
+	}
+
+	/**
+	 * Traite la modification ou la suppression d'un patient.
+	 *
+	 * @param event notification du microservice de patients
+	 */
+	@CacheEvict(cacheNames = RiskCalculatorService.RISK_LEVELS_CACHE, key = "#event.patientId.toString()")
+	public void onPatientChanged(PatientChangedEventBean event) {
+		riskStateService.onPatientChanged(event);
+	}
+
+	/**
+	 * Vide le cache lorsqu'une nouvelle version des règles est chargée.
+	 *
+	 * @param event changement de version des règles
+	 */
+	@EventListener
+	@CacheEvict(cacheNames = RiskCalculatorService.RISK_LEVELS_CACHE, allEntries = true)
+	public void onRulesChanged(RiskRulesChangedEvent event) {
+	}
+}
@@ -0,0 +1,140 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.medilabo.risk_diabetes.beans.NoteBean;
+import com.openclassrooms.medilabo.risk_diabetes.exception.DownstreamServiceException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Métriques du calcul du risque, exposées par /actuator/prometheus.
+ *
+ * risk.stage : durée de chaque étape (récupération des notes, du patient,
+ * détection des mots-clés, calcul du niveau), avec histogramme.
+ * 
+ * risk.downstream et risk.downstream.errors : latence et échecs des appels aux
+ * microservices, tels que vus par le calcul (file d'attente et délai maximal
+ * compris).
+ * 
+ * risk.notes.per.patient et risk.note.length : volume des notes analysées.
+ *
+ * Les compteurs sont enregistrés une seule fois : sur le chemin du calcul, une
+ * mesure ne fait que lire un champ ou une table.
+ */
+@Component
+public class RiskMetrics {
+
+	public static final String STAGE_NOTES_FETCH = "notes.fetch";
+	public static final String STAGE_PATIENT_FETCH = "patient.fetch";
+	public static final String STAGE_MATCHING = "matching";
+	public static final String STAGE_SCORING = "scoring";
+
+	private final MeterRegistry registry;
+
+	private final Timer notesFetch;
+	private final Timer patientFetch;
+	private final Timer matching;
+	private final Timer scoring;
+
+	private final DistributionSummary notesPerPatient;
+	private final DistributionSummary noteLength;
+
+	private final Map<String, Timer> downstreamSuccess = new ConcurrentHashMap<>();
+	private final Map<String, Timer> downstreamError = new ConcurrentHashMap<>();
+
+	public RiskMetrics(MeterRegistry registry) {
+		this.registry = registry;
+		this.notesFetch = stageTimer(STAGE_NOTES_FETCH);
+		this.patientFetch = stageTimer(STAGE_PATIENT_FETCH);
+		this.matching = stageTimer(STAGE_MATCHING);
+		this.scoring = stageTimer(STAGE_SCORING);
+		this.notesPerPatient = DistributionSummary.builder("risk.notes.per.patient")
+				.description("Nombre de notes analysées par patient").publishPercentileHistogram()
+				.register(registry);
+		this.noteLength = DistributionSummary.builder("risk.note.length").baseUnit("characters")
+				.description("Longueur des notes analysées").publishPercentileHistogram().register(registry);
+	}
+
+	private Timer stageTimer(String stage) {
+		return Timer.builder("risk.stage").description("Durée des étapes du calcul du risque").tag("stage", stage)
+				.publishPercentileHistogram().register(registry);
+	}
+
+	public Timer notesFetch() {
+		return notesFetch;
+	}
+
+	public Timer patientFetch() {
+		return patientFetch;
+	}
+
+	public Timer matching() {
+		return matching;
+	}
+
+	public Timer scoring() {
+		return scoring;
+	}
+
+	/**
+	 * Enregistre le nombre et la longueur des notes d'un patient.
+	 *
+	 * @param notes notes analysées
+	 */
+	public void recordNotes(List<NoteBean> notes) {
+		recordNotesPerPatient(notes.size());
+		for (NoteBean note : notes) {
+			recordNote(note);
+		}
+	}
+
+	/**
+	 * @param note note analysée, dont la longueur est enregistrée
+	 */
+	public void recordNote(NoteBean note) {
+		noteLength.record(note.getNote() == null ? 0 : note.getNote().length());
+	}
+
+	/**
+	 * @param notes nombre de notes analysées pour un patient
+	 */
+	public void recordNotesPerPatient(int notes) {
+		notesPerPatient.record(notes);
+	}
+
+	/**
+	 * Enregistre le résultat d'un appel à un microservice.
+	 *
+	 * @param service    nom du microservice appelé
+	 * @param startNanos début de l'appel (System.nanoTime())
+	 * @param failure    exception de l'appel, null en cas de succès
+	 */
+	public void recordDownstream(String service, long startNanos, DownstreamServiceException failure) {
+		Map<String, Timer> timers = failure == null ? downstreamSuccess : downstreamError;
+		Timer timer = timers.get(service);
+		if (timer == null) {
+			timer = timers.computeIfAbsent(service,
+					target -> downstreamTimer(target, failure == null ? "success" : "error"));
+		}
+		timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+		if (failure != null) {
+			Counter.builder("risk.downstream.errors").description("Échecs des appels aux microservices")
+					.tags("target", service, "status", String.valueOf(failure.getStatus().value()))
+					.register(registry).increment();
+		}
+	}
+
+	private Timer downstreamTimer(String service, String outcome) {
+		return Timer.builder("risk.downstream").description("Latence des appels aux microservices")
+				.tags("target", service, "outcome", outcome).publishPercentileHistogram().register(registry);
+	}
+}
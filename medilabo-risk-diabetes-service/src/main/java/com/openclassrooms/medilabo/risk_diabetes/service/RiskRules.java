@@ -0,0 +1,104 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import java.util.List;
+import java.util.Locale;
+
+import com.openclassrooms.medilabo.risk_diabetes.model.RiskRule;
+import com.openclassrooms.medilabo.risk_diabetes.model.RiskRulesDefinition;
+
+/**
+ * Version compilée des règles de risque : automate des mots-clés et table de
+ * décision.
+ *
+ * Les instances sont immuables ; un changement de règles consiste à remplacer
+ * l'instance courante par une nouvelle, ce qui ne bloque jamais les calculs en
+ * cours.
+ */
+public final class RiskRules {
+
+	/**
+	 * Vocabulaire historique de l'application, également utilisé par le service
+	 * de notes pour relever les mots-clés à l'enregistrement.
+	 */
+	public static final List<String> DEFAULT_TRIGGER_WORDS = List.of("hémoglobine a1c", "microalbumine", "taille",
+			"poids", "fumeur", "fumeuse", "anormal", "cholestérol", "vertiges", "rechute", "réaction", "anticorps");
+
+	/**
+	 * Règles intégrées, utilisées quand aucun fichier n'est chargé.
+	 */
+	public static final RiskRules DEFAULT = new RiskRules("builtin", DEFAULT_TRIGGER_WORDS,
+			RiskDecisionTable.defaultTable());
+
+	private final String version;
+	private final TriggerWordMatcher matcher;
+	private final RiskDecisionTable decisionTable;
+	private final boolean defaultVocabulary;
+
+	private RiskRules(String version, List<String> triggerWords, RiskDecisionTable decisionTable) {
+		this.version = version;
+		this.matcher = new TriggerWordMatcher(triggerWords);
+		this.decisionTable = decisionTable;
+		this.defaultVocabulary = DEFAULT_TRIGGER_WORDS.equals(matcher.getWords());
+	}
+
+	/**
+	 * Valide et compile le contenu d'un fichier de règles.
+	 *
+	 * @param definition contenu du fichier
+	 * @return les règles compilées
+	 * @throws IllegalArgumentException si le fichier est incomplet ou incohérent
+	 */
+	public static RiskRules compile(RiskRulesDefinition definition) {
+		if (definition.getVersion() == null || definition.getVersion().isBlank()) {
+			throw new IllegalArgumentException("La version des règles est obligatoire");
+		}
+		if (definition.getTriggerWords() == null || definition.getTriggerWords().isEmpty()) {
+			throw new IllegalArgumentException("La liste des mots-clés est obligatoire");
+		}
+		if (definition.getRules() == null || definition.getRules().isEmpty()) {
+			throw new IllegalArgumentException("La liste des règles est obligatoire");
+		}
+		if (definition.getAgeThreshold() <= 0 || definition.getFallback() == null) {
+			throw new IllegalArgumentException("Âge seuil ou niveau par défaut invalide");
+		}
+		for (RiskRule rule : definition.getRules()) {
+			if (rule == null || rule.getLevel() == null || rule.getMinTriggers() < 0
+					|| (rule.getMaxTriggers() != null && rule.getMaxTriggers() < rule.getMinTriggers())) {
+				throw new IllegalArgumentException("Règle invalide : " + rule);
+			}
+		}
+		List<String> words = definition.getTriggerWords().stream().map(String::trim)
+				.map(word -> word.toLowerCase(Locale.ROOT)).toList();
+		RiskDecisionTable table = new RiskDecisionTable(definition.getRules(), definition.getAgeThreshold(),
+				definition.getFallback());
+		return new RiskRules(definition.getVersion(), words, table);
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	public TriggerWordMatcher getMatcher() {
+		return matcher;
+	}
+
+	public RiskDecisionTable getDecisionTable() {
+		return decisionTable;
+	}
+
+	/**
+	 * @return true si le vocabulaire est celui du service de notes, dont les
+	 *         comptes enregistrés peuvent alors être réutilisés
+	 */
+	public boolean isDefaultVocabulary() {
+		return defaultVocabulary;
+	}
+
+	/**
+	 * @param other règles à comparer
+	 * @return true si les deux versions ont le même vocabulaire
+	 */
+	public boolean sameVocabulary(RiskRules other) {
+		return matcher.getWords().equals(other.matcher.getWords());
+	}
+}
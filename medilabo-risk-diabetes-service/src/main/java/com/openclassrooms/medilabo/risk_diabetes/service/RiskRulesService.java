@@ -0,0 +1,131 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.medilabo.risk_diabetes.event.RiskRulesChangedEvent;
+import com.openclassrooms.medilabo.risk_diabetes.model.RiskRulesDefinition;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Service chargeant les règles de risque depuis un fichier versionné
+ * (propriété risk.rules.location) et les rechargeant lorsqu'il est modifié.
+ *
+ * Tant que ce fichier n'existe pas, les règles livrées dans le jar
+ * (risk.rules.fallback-location) sont utilisées ; le fichier est pris en compte
+ * dès qu'il apparaît. Une ressource classpath ne changeant jamais, le
+ * rechargement n'a d'effet que sur un fichier (préfixe file:).
+ *
+ * Un nouveau fichier est validé et compilé avant de remplacer les règles
+ * courantes en une seule écriture : les calculs en cours terminent avec la
+ * version qu'ils ont lue. Un fichier invalide est refusé et la version
+ * précédente reste en service.
+ */
+@Service
+public class RiskRulesService {
+
+	private static final Logger logger = LogManager.getLogger(RiskRulesService.class);
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Value("${risk.rules.location:file:config/risk-rules.json}")
+	private Resource location;
+
+	@Value("${risk.rules.fallback-location:classpath:risk-rules.json}")
+	private Resource fallbackLocation;
+
+	private volatile RiskRules current = RiskRules.DEFAULT;
+
+	private volatile long lastModified;
+
+	/**
+	 * Charge le fichier au démarrage, ou les règles livrées s'il n'existe pas
+	 * encore. Un fichier invalide empêche le démarrage.
+	 */
+	@PostConstruct
+	void init() throws IOException {
+		if (location.exists()) {
+			lastModified = lastModified();
+			current = load(location);
+		} else {
+			current = load(fallbackLocation);
+			logger.info("Fichier de règles {} absent, règles livrées utilisées", location);
+		}
+		logger.info("Règles de risque chargées, version={}", current.getVersion());
+	}
+
+	/**
+	 * @return les règles en service
+	 */
+	public RiskRules getCurrent() {
+		return current;
+	}
+
+	/**
+	 * Recharge le fichier si sa date de modification a changé, ou s'il vient
+	 * d'être créé.
+	 */
+	@Scheduled(fixedDelayString = "${risk.rules.reload-interval-ms:5000}")
+	public void reloadIfModified() {
+		if (!location.exists()) {
+			return;
+		}
+		long modified;
+		try {
+			modified = lastModified();
+		} catch (IOException e) {
+			logger.warn("Fichier de règles inaccessible : {}", e.getMessage());
+			return;
+		}
+		if (modified != lastModified) {
+			lastModified = modified;
+			reload();
+		}
+	}
+
+	/**
+	 * Recharge le fichier de règles.
+	 *
+	 * @return la version en service après le rechargement
+	 */
+	public synchronized String reload() {
+		RiskRules previous = current;
+		RiskRules loaded;
+		try {
+			loaded = load(location);
+		} catch (IOException | IllegalArgumentException e) {
+			logger.error("Fichier de règles refusé, la version {} reste en service : {}", previous.getVersion(),
+					e.getMessage());
+			return previous.getVersion();
+		}
+		current = loaded;
+		logger.info("Règles de risque remplacées : version {} -> {}", previous.getVersion(), loaded.getVersion());
+		eventPublisher.publishEvent(new RiskRulesChangedEvent(previous, loaded));
+		return loaded.getVersion();
+	}
+
+	private RiskRules load(Resource resource) throws IOException {
+		try (InputStream input = resource.getInputStream()) {
+			return RiskRules.compile(objectMapper.readValue(input, RiskRulesDefinition.class));
+		}
+	}
+
+	private long lastModified() throws IOException {
+		return location.lastModified();
+	}
+}
@@ -0,0 +1,359 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.openclassrooms.medilabo.risk_diabetes.beans.NoteChangedEventBean;
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean;
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientChangedEventBean;
+import com.openclassrooms.medilabo.risk_diabetes.event.RiskRulesChangedEvent;
+import com.openclassrooms.medilabo.risk_diabetes.model.PatientRiskLevel;
+import com.openclassrooms.medilabo.risk_diabetes.model.PatientRiskState;
+import com.openclassrooms.medilabo.risk_diabetes.proxies.MicroservicePatientsProxy;
+
+/**
+ * Table matérialisée des données dont dépend le risque de chaque patient.
+ *
+ * Le risque étant une fonction du nombre de mots-clés, de l'âge et du genre,
+ * cette table permet de répondre sans aucun appel aux autres microservices. Elle
+ * est alimentée :
+ * 
+ * à la première lecture d'un patient, par un calcul complet ;
+ * 
+ * puis de façon incrémentale par les notifications des services de notes et de
+ * patients.
+ * 
+ * Une notification reçue pendant le premier chargement d'un patient ne trouve
+ * pas encore d'état à modifier : les chargements en cours sont donc suivis par
+ * patient, et un état chargé n'est placé dans la table que si aucune
+ * notification n'est arrivée pendant son chargement. Sinon le patient est
+ * rechargé. De même, un chargement en cours lorsque la table est remplacée
+ * (reconstruction, changement de vocabulaire) n'y est pas placé.
+ * 
+ * Une reconstruction complète et une vérification par échantillonnage
+ * permettent de corriger une éventuelle dérive (notification perdue ou
+ * dupliquée).
+ */
+@Service
+public class RiskStateService {
+
+	private static final Logger logger = LogManager.getLogger(RiskStateService.class);
+
+	/**
+	 * Nombre maximal de chargements d'un patient lorsque des notifications
+	 * arrivent pendant son chargement. Le dernier état chargé est alors renvoyé
+	 * sans être placé dans la table.
+	 */
+	static final int MAX_LOAD_ATTEMPTS = 3;
+
+	@Autowired
+	private RiskCalculatorService calculatorService;
+
+	@Autowired
+	private MicroservicePatientsProxy patientsProxy;
+
+	@Autowired
+	private RiskRulesService rulesService;
+
+	@Value("${risk.state.enabled:true}")
+	private boolean enabled;
+
+	private volatile Map<Integer, PatientRiskState> states = new ConcurrentHashMap<>();
+
+	private volatile Instant lastRebuild;
+
+	/**
+	 * Nombre de remplacements de la table. Un jeton de chargement est la somme
+	 * de ce compteur et du nombre de notifications du patient : les deux ne
+	 * faisant que croître, un jeton inchangé signifie que ni l'un ni l'autre n'a
+	 * bougé pendant le chargement.
+	 */
+	private final AtomicLong generation = new AtomicLong();
+
+	/**
+	 * Chargements en cours, par patient. Les notifications et la fin d'un
+	 * chargement passent par loads.compute sur l'identifiant du patient : elles
+	 * sont donc ordonnées.
+	 */
+	private final Map<Integer, Load> loads = new ConcurrentHashMap<>();
+
+	/**
+	 * Nombre de chargements en cours d'un patient et nombre de notifications
+	 * reçues depuis le début du premier d'entre eux.
+	 */
+	private static final class Load {
+		private int loaders;
+		private long changes;
+	}
+
+	/**
+	 * Retourne le niveau de risque d'un patient à partir de la table, en la
+	 * complétant par un calcul complet si le patient n'y figure pas encore.
+	 *
+	 * Si la table est désactivée, le calcul est délégué à RiskCalculatorService.
+	 *
+	 * @param patientId identifiant du patient
+	 * @return PatientRiskLevel du patient
+	 */
+	public PatientRiskLevel getPatientRiskLevel(String patientId) {
+		if (!enabled) {
+			return calculatorService.calculatePatientRiskLevel(patientId);
+		}
+		Integer id = Integer.parseInt(patientId);
+		PatientRiskState state = states.get(id);
+		for (int attempt = 1; state == null; attempt++) {
+			long ticket = beginLoad(id);
+			PatientRiskState loaded = null;
+			try {
+				loaded = calculatorService.loadPatientState(patientId);
+			} finally {
+				if (endLoad(id, ticket, loaded) || attempt == MAX_LOAD_ATTEMPTS) {
+					state = loaded;
+				}
+			}
+		}
+		return calculatorService.toPatientRiskLevel(state);
+	}
+
+	/**
+	 * Signale le début du chargement complet d'un patient. Chaque appel doit
+	 * être suivi d'un appel à endLoad, y compris en cas d'échec.
+	 *
+	 * @param patientId identifiant du patient
+	 * @return le jeton à transmettre à endLoad
+	 */
+	public long beginLoad(Integer patientId) {
+		long[] ticket = new long[1];
+		loads.compute(patientId, (key, load) -> {
+			Load current = load == null ? new Load() : load;
+			current.loaders++;
+			ticket[0] = current.changes + generation.get();
+			return current;
+		});
+		return ticket[0];
+	}
+
+	/**
+	 * Termine le chargement d'un patient et place l'état chargé dans la table
+	 * si aucune notification n'est arrivée depuis beginLoad.
+	 *
+	 * @param patientId identifiant du patient
+	 * @param ticket    jeton renvoyé par beginLoad
+	 * @param state     état chargé, ou null si le chargement a échoué
+	 * @return false si une notification est arrivée pendant le chargement : l'état
+	 *         chargé est peut-être périmé et n'a pas été conservé
+	 */
+	public boolean endLoad(Integer patientId, long ticket, PatientRiskState state) {
+		return finishLoad(patientId, ticket, table -> {
+			if (state != null) {
+				table.putIfAbsent(patientId, state);
+			}
+		});
+	}
+
+	/**
+	 * Termine un chargement et, si le jeton est toujours valable, applique
+	 * l'écriture à la table sous le même verrou que les notifications.
+	 *
+	 * La table est lue avant le compteur de remplacements : si elle vient d'être
+	 * remplacée, le compteur a déjà été incrémenté et le jeton est refusé.
+	 */
+	private boolean finishLoad(Integer patientId, long ticket, Consumer<Map<Integer, PatientRiskState>> write) {
+		boolean[] unchanged = new boolean[1];
+		loads.compute(patientId, (key, load) -> {
+			Map<Integer, PatientRiskState> table = states;
+			unchanged[0] = load.changes + generation.get() == ticket;
+			if (unchanged[0] && enabled) {
+				write.accept(table);
+			}
+			return --load.loaders == 0 ? null : load;
+		});
+		return unchanged[0];
+	}
+
+	/**
+	 * Remplace la table. Le compteur est incrémenté avant le remplacement pour
+	 * que les chargements en cours ne puissent pas placer dans la nouvelle table
+	 * un état calculé avant celui-ci.
+	 */
+	private void replaceStates(Map<Integer, PatientRiskState> replacement) {
+		generation.incrementAndGet();
+		states = replacement;
+	}
+
+	/**
+	 * Applique une notification à la table et la signale aux chargements en
+	 * cours du patient.
+	 */
+	private void applyChange(Integer patientId, Runnable change) {
+		loads.compute(patientId, (key, load) -> {
+			if (load != null) {
+				load.changes++;
+			}
+			change.run();
+			return load;
+		});
+	}
+
+	/**
+	 * Retourne l'état d'un patient s'il figure dans la table, sans aucun appel
+	 * aux autres microservices.
+	 *
+	 * @param patientId identifiant du patient
+	 * @return l'état du patient, ou null s'il est absent ou si la table est
+	 *         désactivée
+	 */
+	public PatientRiskState findState(String patientId) {
+		return enabled ? states.get(Integer.parseInt(patientId)) : null;
+	}
+
+	/**
+	 * Applique la création ou la modification d'une note.
+	 *
+	 * Si la variation du nombre de mots-clés ne peut pas être déduite de la
+	 * notification, ou si les comptes du service de notes ne correspondent pas au
+	 * vocabulaire en service, l'état du patient est retiré et sera recalculé à la
+	 * prochaine lecture.
+	 *
+	 * @param event notification du service de notes
+	 */
+	public void onNoteChanged(NoteChangedEventBean event) {
+		Integer id = Integer.valueOf(event.getPatientId());
+		if (event.getTriggerCount() == null || (!event.isCreated() && event.getPreviousTriggerCount() == null)
+				|| !rulesService.getCurrent().isDefaultVocabulary()) {
+			applyChange(id, () -> states.remove(id));
+			return;
+		}
+		int previous = event.isCreated() ? 0 : event.getPreviousTriggerCount();
+		int delta = event.getTriggerCount() - previous;
+		applyChange(id, () -> states.computeIfPresent(id, (key, state) -> state.withTriggerDelta(delta)));
+	}
+
+	/**
+	 * Applique la modification ou la suppression d'un patient.
+	 *
+	 * @param event notification du service de patients
+	 */
+	public void onPatientChanged(PatientChangedEventBean event) {
+		Integer id = event.getPatientId();
+		if (event.isDeleted() || event.getBirthDate() == null || event.getGender() == null) {
+			applyChange(id, () -> states.remove(id));
+			return;
+		}
+		applyChange(id, () -> states.computeIfPresent(id,
+				(key, state) -> state.withPatient(event.getBirthDate(), event.getGender())));
+	}
+
+	/**
+	 * Vide la table lorsque le vocabulaire des mots-clés change : les comptes
+	 * qu'elle contient ne sont plus valables.
+	 *
+	 * @param event changement de version des règles
+	 */
+	@EventListener
+	public void onRulesChanged(RiskRulesChangedEvent event) {
+		if (event.isVocabularyChanged()) {
+			replaceStates(new ConcurrentHashMap<>());
+			logger.info("Table des risques vidée après le changement de vocabulaire (version {})",
+					event.getCurrent().getVersion());
+		}
+	}
+
+	/**
+	 * Reconstruit entièrement la table à partir des services de notes et de
+	 * patients. La nouvelle table remplace l'ancienne en une seule opération ;
+	 * les notifications reçues pendant la reconstruction sont ignorées, d'où
+	 * l'intérêt de la vérifier ensuite.
+	 *
+	 * @return nombre de patients chargés
+	 */
+	public int rebuild() {
+		List<String> patientIds = patientsProxy.getAllPatients().stream().map(PatientBean::getId)
+				.map(String::valueOf).toList();
+		Map<Integer, PatientRiskState> rebuilt = new ConcurrentHashMap<>(patientIds.size() * 4 / 3 + 1);
+		calculatorService.loadPatientStates(patientIds, chunk -> {
+			for (PatientRiskState state : chunk) {
+				rebuilt.put(state.getPatientId(), state);
+			}
+		});
+		replaceStates(rebuilt);
+		lastRebuild = Instant.now();
+		logger.info("Table des risques reconstruite, patients={}", rebuilt.size());
+		return rebuilt.size();
+	}
+
+	/**
+	 * Compare un échantillon aléatoire de la table avec un calcul complet et
+	 * corrige les écarts trouvés.
+	 *
+	 * Chaque calcul suit le protocole des chargements : un patient modifié par
+	 * une notification pendant son calcul n'est ni comparé ni corrigé. L'échec
+	 * du calcul d'un patient (patient supprimé, service indisponible) est compté
+	 * sans interrompre la vérification des autres.
+	 *
+	 * @param sampleSize nombre maximal de patients vérifiés
+	 * @return rapport contenant le nombre de patients vérifiés, les écarts et les
+	 *         échecs
+	 */
+	public Map<String, Object> checkConsistency(int sampleSize) {
+		List<Integer> ids = new ArrayList<>(states.keySet());
+		Collections.shuffle(ids);
+		List<Integer> sample = ids.subList(0, Math.min(sampleSize, ids.size()));
+
+		List<String> mismatches = new ArrayList<>();
+		int failures = 0;
+		for (Integer id : sample) {
+			long ticket = beginLoad(id);
+			PatientRiskState live = null;
+			try {
+				live = calculatorService.loadPatientState(String.valueOf(id));
+			} catch (RuntimeException e) {
+				failures++;
+				logger.warn("Vérification impossible pour le patient {} : {}", id, e.getMessage());
+			} finally {
+				PatientRiskState loaded = live;
+				finishLoad(id, ticket, table -> {
+					PatientRiskState stored = table.get(id);
+					if (loaded != null && stored != null && !loaded.sameAs(stored)) {
+						mismatches.add("stored=" + stored + ", live=" + loaded);
+						table.put(id, loaded);
+					}
+				});
+			}
+		}
+		if (!mismatches.isEmpty()) {
+			logger.warn("Table des risques incohérente pour {} patients sur {}", mismatches.size(), sample.size());
+		}
+
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("checked", sample.size());
+		report.put("mismatches", mismatches);
+		report.put("failures", failures);
+		return report;
+	}
+
+	/**
+	 * @return taille de la table et date de la dernière reconstruction
+	 */
+	public Map<String, Object> summary() {
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("enabled", enabled);
+		summary.put("size", states.size());
+		summary.put("lastRebuild", lastRebuild);
+		return summary;
+	}
+}
@@ -0,0 +1,223 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Détecteur de mots-clés déclencheurs basé sur un automate d’Aho-Corasick.
+ *
+ * L’automate est compilé une seule fois à partir du vocabulaire et parcourt
+ * chaque note en une seule passe, en normalisant la casse et les accents
+ * caractère par caractère : aucune copie de la note n’est allouée.
+ *
+ * Le résultat d’une analyse est un masque de bits (un bit par mot-clé), ce qui
+ * permet de ne compter chaque mot-clé qu’une seule fois par note.
+ *
+ * Les instances sont immuables et peuvent être partagées entre threads.
+ */
+public final class TriggerWordMatcher {
+
+	/**
+	 * Nombre maximal de mots-clés supportés (taille du masque).
+	 */
+	public static final int MAX_WORDS = Long.SIZE;
+
+	/**
+	 * Table de normalisation (minuscule, sans accent) pour les caractères latins
+	 * les plus courants. Les autres caractères sont seulement passés en
+	 * minuscule.
+	 */
+	private static final char[] FOLD = new char[0x250];
+
+	private static final char COMBINING_MARKS_START = '\u0300';
+
+	private static final char COMBINING_MARKS_END = '\u036F';
+
+	static {
+		for (char c = 0; c < FOLD.length; c++) {
+			String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+			FOLD[c] = Character.toLowerCase(decomposed.charAt(0));
+		}
+	}
+
+	private final List<String> words;
+
+	/**
+	 * Classe de chaque caractère normalisé présent dans le vocabulaire (0 pour
+	 * les caractères absents).
+	 */
+	private final int[] charClasses;
+
+	private final int alphabetSize;
+
+	/**
+	 * Fonction de transition complète : state * alphabetSize + charClass.
+	 */
+	private final int[] transitions;
+
+	/**
+	 * Mots-clés reconnus dans chaque état (liens de suffixe inclus).
+	 */
+	private final long[] outputs;
+
+	/**
+	 * Construit l’automate à partir de la liste de mots-clés.
+	 *
+	 * @param words mots-clés à détecter (au plus {@link #MAX_WORDS})
+	 */
+	public TriggerWordMatcher(List<String> words) {
+		if (words.isEmpty() || words.size() > MAX_WORDS) {
+			throw new IllegalArgumentException(
+					"Le vocabulaire doit contenir entre 1 et " + MAX_WORDS + " mots-clés : " + words.size());
+		}
+		this.words = List.copyOf(words);
+
+		List<String> folded = new ArrayList<>(words.size());
+		char maxChar = 0;
+		for (String word : words) {
+			String f = fold(word);
+			if (f.isEmpty()) {
+				throw new IllegalArgumentException("Mot-clé vide dans le vocabulaire");
+			}
+			folded.add(f);
+			for (int i = 0; i < f.length(); i++) {
+				maxChar = (char) Math.max(maxChar, f.charAt(i));
+			}
+		}
+
+		this.charClasses = new int[maxChar + 1];
+		int classes = 1;
+		for (String f : folded) {
+			for (int i = 0; i < f.length(); i++) {
+				char c = f.charAt(i);
+				if (charClasses[c] == 0) {
+					charClasses[c] = classes++;
+				}
+			}
+		}
+		this.alphabetSize = classes;
+
+		// Construction du trie
+		int maxStates = 1;
+		for (String f : folded) {
+			maxStates += f.length();
+		}
+		int[] trie = new int[maxStates * alphabetSize];
+		long[] out = new long[maxStates];
+		int states = 1;
+		for (int w = 0; w < folded.size(); w++) {
+			String f = folded.get(w);
+			int state = 0;
+			for (int i = 0; i < f.length(); i++) {
+				int index = state * alphabetSize + charClasses[f.charAt(i)];
+				if (trie[index] == 0) {
+					trie[index] = states++;
+				}
+				state = trie[index];
+			}
+			out[state] |= 1L << w;
+		}
+
+		// Liens d’échec en largeur, puis fonction de transition complète
+		int[] fail = new int[states];
+		Deque<Integer> queue = new ArrayDeque<>();
+		for (int c = 0; c < alphabetSize; c++) {
+			int next = trie[c];
+			if (next != 0) {
+				fail[next] = 0;
+				queue.add(next);
+			}
+		}
+		while (!queue.isEmpty()) {
+			int state = queue.poll();
+			out[state] |= out[fail[state]];
+			for (int c = 0; c < alphabetSize; c++) {
+				int index = state * alphabetSize + c;
+				int next = trie[index];
+				if (next != 0) {
+					fail[next] = trie[fail[state] * alphabetSize + c];
+					queue.add(next);
+				} else {
+					trie[index] = trie[fail[state] * alphabetSize + c];
+				}
+			}
+		}
+
+		this.transitions = Arrays.copyOf(trie, states * alphabetSize);
+		this.outputs = Arrays.copyOf(out, states);
+	}
+
+	/**
+	 * Analyse un texte et retourne le masque des mots-clés qu’il contient.
+	 *
+	 * @param text texte à analyser (peut être null)
+	 * @return masque de bits, le bit i correspondant au i-ème mot-clé
+	 */
+	public long match(CharSequence text) {
+		if (text == null) {
+			return 0L;
+		}
+		long found = 0L;
+		int state = 0;
+		for (int i = 0, n = text.length(); i < n; i++) {
+			char c = text.charAt(i);
+			if (c >= COMBINING_MARKS_START && c <= COMBINING_MARKS_END) {
+				// accent d’une forme décomposée : ignoré comme dans fold()
+				continue;
+			}
+			c = fold(c);
+			int charClass = c < charClasses.length ? charClasses[c] : 0;
+			state = transitions[state * alphabetSize + charClass];
+			found |= outputs[state];
+		}
+		return found;
+	}
+
+	/**
+	 * Compte le nombre de mots-clés distincts présents dans un texte.
+	 *
+	 * @param text texte à analyser
+	 * @return nombre de mots-clés trouvés, chacun compté une seule fois
+	 */
+	public int count(CharSequence text) {
+		return Long.bitCount(match(text));
+	}
+
+	/**
+	 * @return les mots-clés dans l’ordre des bits du masque
+	 */
+	public List<String> getWords() {
+		return words;
+	}
+
+	/**
+	 * Normalise un caractère : minuscule et sans accent.
+	 *
+	 * @param c caractère à normaliser
+	 * @return caractère normalisé
+	 */
+	public static char fold(char c) {
+		return c < FOLD.length ? FOLD[c] : Character.toLowerCase(c);
+	}
+
+	/**
+	 * Normalise une chaîne : minuscule et sans accent.
+	 *
+	 * @param text chaîne à normaliser
+	 * @return chaîne normalisée
+	 */
+	public static String fold(String text) {
+		StringBuilder builder = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c < COMBINING_MARKS_START || c > COMBINING_MARKS_END) {
+				builder.append(fold(c));
+			}
+		}
+		return builder.toString();
+	}
+}
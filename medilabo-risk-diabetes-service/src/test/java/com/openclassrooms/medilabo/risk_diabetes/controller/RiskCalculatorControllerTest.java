@@ -0,0 +1,109 @@
+package com.openclassrooms.medilabo.risk_diabetes.controller;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBatchBean;
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean;
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean.Gender;
+import com.openclassrooms.medilabo.risk_diabetes.enums.TriggerSource;
+import com.openclassrooms.medilabo.risk_diabetes.proxies.MicroserviceNotesProxy;
+import com.openclassrooms.medilabo.risk_diabetes.proxies.MicroservicePatientsProxy;
+import com.openclassrooms.medilabo.risk_diabetes.service.RiskCalculatorService;
+import com.openclassrooms.medilabo.risk_diabetes.service.RiskMetrics;
+import com.openclassrooms.medilabo.risk_diabetes.service.RiskStateService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class RiskCalculatorControllerTest {
+
+	private final MicroserviceNotesProxy notesProxy = mock(MicroserviceNotesProxy.class);
+	private final MicroservicePatientsProxy patientsProxy = mock(MicroservicePatientsProxy.class);
+
+	private ExecutorService executor;
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+		RiskCalculatorService calculatorService = new RiskCalculatorService(new RiskMetrics(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(calculatorService, "notesProxy", notesProxy);
+		ReflectionTestUtils.setField(calculatorService, "patientsProxy", patientsProxy);
+		ReflectionTestUtils.setField(calculatorService, "fetchExecutor", executor);
+		ReflectionTestUtils.setField(calculatorService, "fetchTimeoutMs", 2000L);
+		ReflectionTestUtils.setField(calculatorService, "batchChunkSize", 2);
+		ReflectionTestUtils.setField(calculatorService, "triggerSource", TriggerSource.PRECOMPUTED);
+		mockMvc = MockMvcBuilders.standaloneSetup(
+				new RiskCalculatorController(calculatorService, new RiskStateService(), new ObjectMapper()))
+				.build();
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private static PatientBean patient(Integer id) {
+		PatientBean patient = new PatientBean();
+		patient.setId(id);
+		patient.setBirthDate(LocalDate.now().minusYears(40));
+		patient.setGender(Gender.F);
+		return patient;
+	}
+
+	@Test
+	void testFailedChunkIsReportedInsideTheResponse() throws Exception {
+		when(notesProxy.getNoteTriggersByPatientIds(anyList())).thenReturn(Map.of());
+		when(patientsProxy.getPatientsByIds(List.of(1, 2)))
+				.thenReturn(new PatientBatchBean(List.of(patient(1), patient(2)), List.of()));
+		when(patientsProxy.getPatientsByIds(List.of(3))).thenThrow(new IllegalStateException("Service indisponible"));
+
+		MvcResult result = mockMvc
+				.perform(post("/calculateRisk/batch").contentType(MediaType.APPLICATION_JSON)
+						.content("[\"1\",\"2\",\"3\"]"))
+				.andExpect(request().asyncStarted()).andReturn();
+
+		mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(3))
+				.andExpect(jsonPath("$[0].patientId").value("1"))
+				.andExpect(jsonPath("$[0].diabetesRiskLevel").value("NONE"))
+				.andExpect(jsonPath("$[0].status").doesNotExist())
+				.andExpect(jsonPath("$[2].patientId").value("3"))
+				.andExpect(jsonPath("$[2].status").value(502))
+				.andExpect(jsonPath("$[2].error").exists())
+				.andExpect(jsonPath("$[2].diabetesRiskLevel").doesNotExist());
+	}
+
+	@Test
+	void testInvalidIdIsRejectedBeforeAnyCall() throws Exception {
+		mockMvc.perform(post("/calculateRisk/batch").contentType(MediaType.APPLICATION_JSON)
+				.content("[\"1\",\"abc\"]")).andExpect(status().isBadRequest());
+
+		verify(patientsProxy, never()).getPatientsByIds(anyList());
+		verify(notesProxy, never()).getNoteTriggersByPatientIds(anyList());
+	}
+}
@@ -5,9 +5,12 @@ import org.junit.jupiter.api.Test;
 
 import com.openclassrooms.medilabo.risk_diabetes.enums.DiabetesRiskLevel;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 public class DiabetesServiceTest {
 
-    private final RiskCalculatorService calculatorService = new RiskCalculatorService();
+    private final RiskCalculatorService calculatorService = new RiskCalculatorService(
+            new RiskMetrics(new SimpleMeterRegistry()));
 
     @Test
     void testMaleUnder30_EarlyOnset() {
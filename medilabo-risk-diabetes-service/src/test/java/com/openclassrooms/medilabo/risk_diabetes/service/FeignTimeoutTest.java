@@ -0,0 +1,89 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.openclassrooms.medilabo.risk_diabetes.exception.DownstreamServiceException;
+
+/**
+ * Vérifie qu'un microservice qui accepte la connexion sans jamais répondre ne
+ * retient pas les threads du pool au-delà du délai configuré.
+ */
+@SpringBootTest(properties = { "eureka.client.enabled=false", "risk.state.enabled=false",
+		"risk.fetch.timeout-ms=300", "risk.fetch.pool-size=2" })
+public class FeignTimeoutTest {
+
+	private static final ServerSocket hungServer = openHungServer();
+	private static final List<Socket> connections = new CopyOnWriteArrayList<>();
+
+	@Autowired
+	private RiskCalculatorService calculatorService;
+
+	@Autowired
+	@Qualifier("riskFetchExecutor")
+	private ThreadPoolTaskExecutor fetchExecutor;
+
+	private static ServerSocket openHungServer() {
+		try {
+			ServerSocket server = new ServerSocket(0);
+			Thread acceptor = new Thread(() -> {
+				while (!server.isClosed()) {
+					try {
+						connections.add(server.accept());
+					} catch (IOException e) {
+						return;
+					}
+				}
+			});
+			acceptor.setDaemon(true);
+			acceptor.start();
+			return server;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@DynamicPropertySource
+	static void hungServices(DynamicPropertyRegistry registry) {
+		String url = "http://localhost:" + hungServer.getLocalPort();
+		registry.add("spring.cloud.openfeign.client.config.medilabo-note-service.url", () -> url);
+		registry.add("spring.cloud.openfeign.client.config.medilabo-patient-service.url", () -> url);
+	}
+
+	@AfterAll
+	static void closeHungServer() throws IOException {
+		hungServer.close();
+		for (Socket connection : connections) {
+			connection.close();
+		}
+	}
+
+	@Test
+	void testHungDownstreamReleasesPoolThreads() throws InterruptedException {
+		DownstreamServiceException ex = assertThrows(DownstreamServiceException.class,
+				() -> calculatorService.loadPatientState("1"));
+		assertTrue(ex.getStatus().is5xxServerError());
+		assertFalse(connections.isEmpty(), "les appels doivent atteindre le serveur");
+
+		// sans délai de lecture Feign, les threads resteraient bloqués 60 s
+		long deadline = System.currentTimeMillis() + 2000;
+		while (fetchExecutor.getActiveCount() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertEquals(0, fetchExecutor.getActiveCount());
+	}
+}
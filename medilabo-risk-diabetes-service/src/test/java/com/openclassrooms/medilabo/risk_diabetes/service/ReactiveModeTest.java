@@ -0,0 +1,56 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.openclassrooms.medilabo.risk_diabetes.controller.RiskCalculatorController;
+import com.openclassrooms.medilabo.risk_diabetes.enums.DiabetesRiskLevel;
+import com.openclassrooms.medilabo.risk_diabetes.exception.DownstreamServiceException;
+import com.openclassrooms.medilabo.risk_diabetes.model.PatientRiskLevel;
+
+import reactor.core.publisher.Mono;
+
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+public class ReactiveModeTest {
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Autowired
+	private ApplicationContext context;
+
+	@MockitoBean
+	private ReactiveRiskCalculatorService reactiveCalculatorService;
+
+	@Test
+	void testReactiveControllerReplacesServletController() {
+		assertTrue(context.getBeansOfType(RiskCalculatorController.class).isEmpty());
+
+		PatientRiskLevel patientRiskLevel = new PatientRiskLevel();
+		patientRiskLevel.setPatientId("1");
+		patientRiskLevel.setDiabetesRiskLevel(DiabetesRiskLevel.INDANGER);
+		patientRiskLevel.setTriggerWordsCounter(3);
+		when(reactiveCalculatorService.calculatePatientRiskLevel("1")).thenReturn(Mono.just(patientRiskLevel));
+
+		webTestClient.get().uri("/calculateRisk/1").exchange().expectStatus().isOk().expectBody()
+				.jsonPath("$.diabetesRiskLevel").isEqualTo("INDANGER").jsonPath("$.triggerWordsCounter").isEqualTo(3);
+	}
+
+	@Test
+	void testDownstreamErrorsKeepTheirStatus() {
+		when(reactiveCalculatorService.calculatePatientRiskLevel("2")).thenReturn(Mono.error(
+				new DownstreamServiceException(HttpStatus.GATEWAY_TIMEOUT, "Le service n'a pas répondu", null)));
+
+		webTestClient.get().uri("/calculateRisk/2").exchange().expectStatus().isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+	}
+}
@@ -0,0 +1,254 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean.Gender;
+import com.openclassrooms.medilabo.risk_diabetes.enums.TriggerSource;
+import com.openclassrooms.medilabo.risk_diabetes.exception.DownstreamServiceException;
+import com.openclassrooms.medilabo.risk_diabetes.model.PatientRiskLevel;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class ReactiveRiskCalculatorServiceTest {
+
+	private static final int PATIENTS = 100;
+
+	private static final long LATENCY_MS = 50;
+
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+	private final RiskCalculatorService calculatorService = new RiskCalculatorService(
+			new RiskMetrics(new SimpleMeterRegistry()));
+
+	private final ReactiveRiskCalculatorService reactiveService = new ReactiveRiskCalculatorService();
+
+	private final StubNotesProxy notes = new StubNotesProxy(0);
+
+	private final StubPatientsProxy patients = new StubPatientsProxy(0);
+
+	private ExecutorService fetchExecutor;
+
+	private Scheduler reactiveScheduler;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	private final Set<String> responseThreads = ConcurrentHashMap.newKeySet();
+
+	@BeforeEach
+	void setUp() {
+		notes.withNotes("1", "Fumeur, cholestérol anormal").withNotes("2", "Poids", "Taille, vertiges")
+				.withNotes("3", "Hémoglobine A1C, microalbumine, rechute, réaction, anticorps, fumeuse, poids");
+		patients.withPatient(1, 25, Gender.M).withPatient(2, 45, Gender.F).withPatient(3, 60, Gender.M);
+		for (int i = 10; i < 10 + PATIENTS; i++) {
+			notes.withNotes(String.valueOf(i), "Fumeur", "Cholestérol anormal");
+			patients.withPatient(i, 20 + i % 50, i % 2 == 0 ? Gender.M : Gender.F);
+		}
+
+		fetchExecutor = Executors.newFixedThreadPool(8);
+		ReflectionTestUtils.setField(calculatorService, "fetchExecutor", fetchExecutor);
+		ReflectionTestUtils.setField(calculatorService, "fetchTimeoutMs", 2000L);
+		ReflectionTestUtils.setField(calculatorService, "triggerSource", TriggerSource.SCAN);
+
+		RiskStateService riskStateService = new RiskStateService();
+		ReflectionTestUtils.setField(riskStateService, "enabled", false);
+		reactiveScheduler = Schedulers.newParallel("reactive-test", 2);
+		ReflectionTestUtils.setField(reactiveService, "calculatorService", calculatorService);
+		ReflectionTestUtils.setField(reactiveService, "riskStateService", riskStateService);
+		ReflectionTestUtils.setField(reactiveService, "rulesService", new RiskRulesService());
+		ReflectionTestUtils.setField(reactiveService, "metrics", new RiskMetrics(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(reactiveService, "fetchTimeoutMs", 2000L);
+		ReflectionTestUtils.setField(reactiveService, "triggerSource", TriggerSource.SCAN);
+		useLatency(0);
+	}
+
+	@AfterEach
+	void tearDown() {
+		fetchExecutor.shutdownNow();
+		reactiveScheduler.dispose();
+	}
+
+	/**
+	 * Remplace les deux WebClient par des réponses simulées, servies après un
+	 * délai non bloquant.
+	 */
+	private void useLatency(long latencyMs) {
+		useDelay(() -> Mono.delay(Duration.ofMillis(latencyMs), reactiveScheduler));
+	}
+
+	private void useDelay(Supplier<Mono<Long>> delay) {
+		ReflectionTestUtils.setField(reactiveService, "notesWebClient", webClient(delay, path -> {
+			String patientId = path.split("/")[3];
+			return path.endsWith("/triggers") ? notes.getTriggerCountByPatientId(patientId)
+					: notes.getNotesByPatientId(patientId);
+		}));
+		ReflectionTestUtils.setField(reactiveService, "patientsWebClient",
+				webClient(delay, path -> patients.getPatientById(Integer.valueOf(path.split("/")[2]))));
+	}
+
+	/**
+	 * Les appels en cours et les threads qui reçoivent les réponses sont
+	 * relevés.
+	 */
+	private WebClient webClient(Supplier<Mono<Long>> delay, Function<String, Object> route) {
+		// Réponses sérialisées une seule fois : seul le coût côté client est mesuré
+		Map<String, Optional<String>> bodies = new ConcurrentHashMap<>();
+		ExchangeFunction exchange = request -> Mono.defer(() -> {
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			return delay.get();
+		}).map(tick -> {
+			responseThreads.add(Thread.currentThread().getName());
+			return bodies.computeIfAbsent(request.url().getPath(), path -> toJson(route.apply(path)))
+					.map(body -> ClientResponse.create(HttpStatus.OK)
+							.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).body(body).build())
+					.orElseGet(() -> ClientResponse.create(HttpStatus.NOT_FOUND).build());
+		}).doFinally(signal -> inFlight.decrementAndGet());
+		return WebClient.builder().exchangeFunction(exchange).build();
+	}
+
+	private Optional<String> toJson(Object body) {
+		try {
+			return body == null ? Optional.empty() : Optional.of(objectMapper.writeValueAsString(body));
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void assertSameResult(PatientRiskLevel expected, PatientRiskLevel actual) {
+		assertEquals(expected.getPatientId(), actual.getPatientId());
+		assertEquals(expected.getDiabetesRiskLevel(), actual.getDiabetesRiskLevel());
+		assertEquals(expected.getTriggerWordsCounter(), actual.getTriggerWordsCounter());
+		assertEquals(expected.getRulesVersion(), actual.getRulesVersion());
+	}
+
+	@Test
+	void testMatchesBlockingModeInBothTriggerSources() {
+		ReflectionTestUtils.setField(calculatorService, "notesProxy", notes);
+		ReflectionTestUtils.setField(calculatorService, "patientsProxy", patients);
+		for (TriggerSource source : TriggerSource.values()) {
+			ReflectionTestUtils.setField(calculatorService, "triggerSource", source);
+			ReflectionTestUtils.setField(reactiveService, "triggerSource", source);
+			for (String patientId : List.of("1", "2", "3", "10", "11")) {
+				assertSameResult(calculatorService.calculatePatientRiskLevel(patientId),
+						reactiveService.calculatePatientRiskLevel(patientId).block());
+			}
+		}
+	}
+
+	@Test
+	void testMapsErrorsLikeBlockingMode() {
+		DownstreamServiceException notFound = assertThrows(DownstreamServiceException.class,
+				() -> reactiveService.calculatePatientRiskLevel("999").block());
+		assertEquals(HttpStatus.NOT_FOUND, notFound.getStatus());
+
+		ReflectionTestUtils.setField(reactiveService, "fetchTimeoutMs", 50L);
+		useLatency(500);
+		DownstreamServiceException timeout = assertThrows(DownstreamServiceException.class,
+				() -> reactiveService.calculatePatientRiskLevel("1").block());
+		assertEquals(HttpStatus.GATEWAY_TIMEOUT, timeout.getStatus());
+	}
+
+	/**
+	 * Comparaison de charge : PATIENTS requêtes simultanées, chaque requête
+	 * faisant deux appels descendants.
+	 *
+	 * Mode bloquant : 8 threads de requête (Tomcat) et 8 threads d'appel ; au
+	 * plus 8 appels sont en cours à un instant donné.
+	 * 
+	 * Mode réactif : les réponses simulées ne sont servies qu'une fois tous les
+	 * appels lancés, ce qui n'arrive que si les PATIENTS requêtes sont en vol en
+	 * même temps ; elles sont reçues par les 2 threads du scheduler.
+	 */
+	@Test
+	void testReactiveModeSustainsMoreConcurrentRequestsWithFewerThreads() throws Exception {
+		StubNotesProxy slowNotes = new StubNotesProxy(LATENCY_MS);
+		StubPatientsProxy slowPatients = new StubPatientsProxy(LATENCY_MS);
+		for (int i = 10; i < 10 + PATIENTS; i++) {
+			slowNotes.withNotes(String.valueOf(i), "Fumeur", "Cholestérol anormal");
+			slowPatients.withPatient(i, 20 + i % 50, i % 2 == 0 ? Gender.M : Gender.F);
+		}
+		ReflectionTestUtils.setField(calculatorService, "notesProxy", slowNotes);
+		ReflectionTestUtils.setField(calculatorService, "patientsProxy", slowPatients);
+		AtomicInteger fetchesInFlight = new AtomicInteger();
+		AtomicInteger maxFetchesInFlight = new AtomicInteger();
+		Executor countingExecutor = task -> fetchExecutor.execute(() -> {
+			maxFetchesInFlight.accumulateAndGet(fetchesInFlight.incrementAndGet(), Math::max);
+			try {
+				task.run();
+			} finally {
+				fetchesInFlight.decrementAndGet();
+			}
+		});
+		ReflectionTestUtils.setField(calculatorService, "fetchExecutor", countingExecutor);
+		List<String> patientIds = IntStream.range(10, 10 + PATIENTS).mapToObj(String::valueOf).toList();
+
+		ExecutorService requestThreads = Executors.newFixedThreadPool(8);
+		List<Future<PatientRiskLevel>> futures = new ArrayList<>();
+		for (String patientId : patientIds) {
+			futures.add(requestThreads.submit(() -> calculatorService.calculatePatientRiskLevel(patientId)));
+		}
+		List<PatientRiskLevel> blocking = new ArrayList<>();
+		for (Future<PatientRiskLevel> future : futures) {
+			blocking.add(future.get());
+		}
+		requestThreads.shutdown();
+
+		// Réponses retenues jusqu'à ce que tous les appels soient lancés, ou au
+		// plus 2 s
+		Sinks.Empty<Void> allInFlight = Sinks.empty();
+		useDelay(() -> {
+			if (inFlight.get() == 2 * PATIENTS) {
+				allInFlight.tryEmitEmpty();
+			}
+			return Mono.firstWithSignal(allInFlight.asMono().thenReturn(0L),
+					Mono.delay(Duration.ofSeconds(2), reactiveScheduler)).publishOn(reactiveScheduler);
+		});
+		List<PatientRiskLevel> reactive = Flux.fromIterable(patientIds)
+				.flatMapSequential(reactiveService::calculatePatientRiskLevel, PATIENTS).collectList().block();
+
+		assertEquals(PATIENTS, reactive.size());
+		for (int i = 0; i < PATIENTS; i++) {
+			assertSameResult(blocking.get(i), reactive.get(i));
+		}
+		assertTrue(maxFetchesInFlight.get() <= 8, "appels bloquants simultanés : " + maxFetchesInFlight);
+		assertEquals(2 * PATIENTS, maxInFlight.get(), "appels réactifs simultanés");
+		assertTrue(responseThreads.size() <= 2, "threads : " + responseThreads);
+		assertTrue(responseThreads.stream().allMatch(name -> name.startsWith("reactive-test")),
+				"threads : " + responseThreads);
+	}
+}
@@ -0,0 +1,213 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean.Gender;
+import com.openclassrooms.medilabo.risk_diabetes.enums.DiabetesRiskLevel;
+import com.openclassrooms.medilabo.risk_diabetes.enums.TriggerSource;
+import com.openclassrooms.medilabo.risk_diabetes.exception.DownstreamServiceException;
+import com.openclassrooms.medilabo.risk_diabetes.model.PatientRiskLevel;
+
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class RiskCalculatorServiceTest {
+
+	private static final long NOTES_DELAY_MS = 300;
+	private static final long PATIENT_DELAY_MS = 400;
+
+	private final RiskCalculatorService calculatorService = new RiskCalculatorService(
+			new RiskMetrics(new SimpleMeterRegistry()));
+
+	private ExecutorService executor;
+
+	@BeforeEach
+	void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+		ReflectionTestUtils.setField(calculatorService, "fetchExecutor", executor);
+		ReflectionTestUtils.setField(calculatorService, "fetchTimeoutMs", 2000L);
+		ReflectionTestUtils.setField(calculatorService, "batchChunkSize", 2);
+		ReflectionTestUtils.setField(calculatorService, "triggerSource", TriggerSource.PRECOMPUTED);
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private void useProxies(StubNotesProxy notesProxy, StubPatientsProxy patientsProxy) {
+		ReflectionTestUtils.setField(calculatorService, "notesProxy", notesProxy);
+		ReflectionTestUtils.setField(calculatorService, "patientsProxy", patientsProxy);
+	}
+
+	@Test
+	void testFetchesNotesAndPatientConcurrently() {
+		useProxies(new StubNotesProxy(NOTES_DELAY_MS).withNotes("1", "Fumeur, cholestérol anormal"),
+				new StubPatientsProxy(PATIENT_DELAY_MS).withPatient(1, 25, Gender.M));
+
+		long start = System.nanoTime();
+		PatientRiskLevel riskLevel = calculatorService.calculatePatientRiskLevel("1");
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+		assertEquals(DiabetesRiskLevel.INDANGER, riskLevel.getDiabetesRiskLevel());
+		assertEquals(3, riskLevel.getTriggerWordsCounter());
+		// max(a, b) = 400 ms, a + b = 700 ms
+		assertTrue(elapsedMs >= PATIENT_DELAY_MS, "elapsed=" + elapsedMs);
+		assertTrue(elapsedMs < NOTES_DELAY_MS + PATIENT_DELAY_MS - 100, "elapsed=" + elapsedMs);
+	}
+
+	@Test
+	void testScanModeMatchesPrecomputedMode() {
+		StubNotesProxy notesProxy = new StubNotesProxy(0).withNotes("1", "Fumeur, cholestérol anormal", "Fumeur");
+		useProxies(notesProxy, new StubPatientsProxy(0).withPatient(1, 25, Gender.M));
+		PatientRiskLevel precomputed = calculatorService.calculatePatientRiskLevel("1");
+
+		ReflectionTestUtils.setField(calculatorService, "triggerSource", TriggerSource.SCAN);
+		PatientRiskLevel scanned = calculatorService.calculatePatientRiskLevel("1");
+
+		assertEquals(4, scanned.getTriggerWordsCounter());
+		assertEquals(precomputed.getTriggerWordsCounter(), scanned.getTriggerWordsCounter());
+		assertEquals(precomputed.getDiabetesRiskLevel(), scanned.getDiabetesRiskLevel());
+	}
+
+	@Test
+	void testScanModeReadsNoteStreamIncrementally() {
+		int noteCount = 200_000;
+		StubNotesProxy notesProxy = new StubNotesProxy(0) {
+			@Override
+			public Response streamNotesByPatientId(String patientId) {
+				// Historique généré à la demande : aucune liste de notes n'est construite
+				Enumeration<InputStream> lines = new Enumeration<>() {
+					private int produced;
+
+					@Override
+					public boolean hasMoreElements() {
+						return produced < noteCount;
+					}
+
+					@Override
+					public InputStream nextElement() {
+						String line = "{\"id\":\"n" + produced++ + "\",\"patientId\":\"" + patientId
+								+ "\",\"note\":\"Fumeur, tension normale\",\"triggerCount\":1}\n";
+						return new ByteArrayInputStream(line.getBytes(StandardCharsets.UTF_8));
+					}
+				};
+				Request request = Request.create(Request.HttpMethod.GET, "/notes/patient/" + patientId, Map.of(),
+						null, StandardCharsets.UTF_8, null);
+				return Response.builder().status(200).request(request).headers(Map.of())
+						.body(new SequenceInputStream(lines), null).build();
+			}
+		};
+		useProxies(notesProxy, new StubPatientsProxy(0).withPatient(1, 25, Gender.M));
+		ReflectionTestUtils.setField(calculatorService, "triggerSource", TriggerSource.SCAN);
+
+		PatientRiskLevel riskLevel = calculatorService.calculatePatientRiskLevel("1");
+
+		assertEquals(noteCount, riskLevel.getTriggerWordsCounter());
+		assertEquals(DiabetesRiskLevel.EARLYONSET, riskLevel.getDiabetesRiskLevel());
+	}
+
+	@Test
+	void testScanModeMapsStreamErrorStatus() {
+		StubNotesProxy notesProxy = new StubNotesProxy(0) {
+			@Override
+			public Response streamNotesByPatientId(String patientId) {
+				return StubNotesProxy.ndjsonResponse(patientId, new byte[0]).toBuilder().status(404).build();
+			}
+		};
+		useProxies(notesProxy, new StubPatientsProxy(0).withPatient(1, 25, Gender.M));
+		ReflectionTestUtils.setField(calculatorService, "triggerSource", TriggerSource.SCAN);
+
+		DownstreamServiceException ex = assertThrows(DownstreamServiceException.class,
+				() -> calculatorService.calculatePatientRiskLevel("1"));
+
+		assertEquals(HttpStatus.NOT_FOUND, ex.getStatus());
+	}
+
+	@Test
+	void testFailsFastWhenOneCallFails() {
+		useProxies(new StubNotesProxy(1500),
+				new StubPatientsProxy(0).failingWith(new IllegalStateException("patient service down")));
+
+		long start = System.nanoTime();
+		DownstreamServiceException ex = assertThrows(DownstreamServiceException.class,
+				() -> calculatorService.calculatePatientRiskLevel("1"));
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+		assertEquals(HttpStatus.BAD_GATEWAY, ex.getStatus());
+		assertTrue(ex.getMessage().contains("medilabo-patient-service"));
+		assertTrue(elapsedMs < 1000, "elapsed=" + elapsedMs);
+	}
+
+	@Test
+	void testTimesOutSlowCall() {
+		ReflectionTestUtils.setField(calculatorService, "fetchTimeoutMs", 200L);
+		useProxies(new StubNotesProxy(1500), new StubPatientsProxy(0).withPatient(1, 25, Gender.M));
+
+		long start = System.nanoTime();
+		DownstreamServiceException ex = assertThrows(DownstreamServiceException.class,
+				() -> calculatorService.calculatePatientRiskLevel("1"));
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+		assertEquals(HttpStatus.GATEWAY_TIMEOUT, ex.getStatus());
+		assertTrue(ex.getMessage().contains("medilabo-note-service"));
+		assertTrue(elapsedMs < 1000, "elapsed=" + elapsedMs);
+	}
+
+	@Test
+	void testBatchUsesBulkLookupsPerChunkAndKeepsOrder() {
+		StubNotesProxy notesProxy = new StubNotesProxy(0).withNotes("1", "Fumeur, cholestérol anormal")
+				.withNotes("3", "Taille, poids", "Vertiges");
+		StubPatientsProxy patientsProxy = new StubPatientsProxy(0).withPatient(1, 25, Gender.M)
+				.withPatient(2, 40, Gender.F).withPatient(3, 50, Gender.F);
+		useProxies(notesProxy, patientsProxy);
+
+		List<List<PatientRiskLevel>> chunks = new ArrayList<>();
+		calculatorService.calculatePatientRiskLevels(List.of("3", "1", "2", "99"), chunks::add);
+
+		// 4 identifiants, lots de 2 : deux appels groupés par service
+		assertEquals(2, notesProxy.calls.get());
+		assertEquals(2, patientsProxy.calls.get());
+		assertEquals(2, chunks.size());
+
+		List<PatientRiskLevel> results = chunks.stream().flatMap(List::stream).toList();
+		assertEquals(List.of("3", "1", "2"), results.stream().map(PatientRiskLevel::getPatientId).toList());
+		assertEquals(DiabetesRiskLevel.BORDERLINE, results.get(0).getDiabetesRiskLevel());
+		assertEquals(DiabetesRiskLevel.INDANGER, results.get(1).getDiabetesRiskLevel());
+		assertEquals(DiabetesRiskLevel.NONE, results.get(2).getDiabetesRiskLevel());
+		assertEquals(0, results.get(2).getTriggerWordsCounter());
+		// nombres précalculés : le contenu des notes n'est pas transféré
+		assertEquals(0, notesProxy.bodyCalls.get());
+	}
+
+	@Test
+	void testBatchScansNoteBodiesOnlyInScanMode() {
+		ReflectionTestUtils.setField(calculatorService, "triggerSource", TriggerSource.SCAN);
+		StubNotesProxy notesProxy = new StubNotesProxy(0).withNotes("1", "Fumeur, cholestérol anormal");
+		useProxies(notesProxy, new StubPatientsProxy(0).withPatient(1, 25, Gender.M));
+
+		List<List<PatientRiskLevel>> chunks = new ArrayList<>();
+		calculatorService.calculatePatientRiskLevels(List.of("1"), chunks::add);
+
+		assertEquals(3, chunks.get(0).get(0).getTriggerWordsCounter());
+		assertEquals(1, notesProxy.bodyCalls.get());
+	}
+}
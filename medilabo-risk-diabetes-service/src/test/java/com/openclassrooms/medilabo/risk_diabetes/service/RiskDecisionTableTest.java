@@ -0,0 +1,66 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean.Gender;
+import com.openclassrooms.medilabo.risk_diabetes.enums.AgeGroup;
+import com.openclassrooms.medilabo.risk_diabetes.enums.DiabetesRiskLevel;
+import com.openclassrooms.medilabo.risk_diabetes.model.RiskRule;
+
+public class RiskDecisionTableTest {
+
+	private final RiskDecisionTable table = RiskDecisionTable.defaultTable();
+
+	/**
+	 * Ancien algorithme : suite de tests sur le genre, l'âge et le compteur.
+	 */
+	private static DiabetesRiskLevel legacyRiskLevel(Integer counter, int age, String gender) {
+		if (gender.contains("M") && age < 30 && counter >= 5) {
+			return DiabetesRiskLevel.EARLYONSET;
+		} else if (gender.contains("F") && age < 30 && counter >= 7) {
+			return DiabetesRiskLevel.EARLYONSET;
+		} else if (counter >= 8 && age >= 30) {
+			return DiabetesRiskLevel.EARLYONSET;
+		} else if (gender.contains("M") && age < 30 && counter >= 3) {
+			return DiabetesRiskLevel.INDANGER;
+		} else if (gender.contains("F") && age < 30 && counter >= 4) {
+			return DiabetesRiskLevel.INDANGER;
+		} else if (counter == 6 || counter == 7 && age >= 30) {
+			return DiabetesRiskLevel.INDANGER;
+		} else if (counter >= 2 && counter <= 5 && age >= 30) {
+			return DiabetesRiskLevel.BORDERLINE;
+		} else {
+			return DiabetesRiskLevel.NONE;
+		}
+	}
+
+	@Test
+	void testMatchesLegacyAlgorithmExhaustively() {
+		for (Gender gender : Gender.values()) {
+			for (int age = 0; age <= 120; age++) {
+				for (int counter = 0; counter <= 64; counter++) {
+					assertEquals(legacyRiskLevel(counter, age, gender.name()), table.level(gender, age, counter),
+							"gender=" + gender + ", age=" + age + ", counter=" + counter);
+				}
+			}
+		}
+	}
+
+	@Test
+	void testFirstMatchingRuleWins() {
+		RiskDecisionTable custom = new RiskDecisionTable(
+				List.of(new RiskRule(Gender.F, AgeGroup.OLDER, 1, 2, DiabetesRiskLevel.INDANGER),
+						new RiskRule(null, null, 1, null, DiabetesRiskLevel.BORDERLINE)),
+				50, DiabetesRiskLevel.NONE);
+
+		assertEquals(DiabetesRiskLevel.NONE, custom.level(Gender.F, 60, 0));
+		assertEquals(DiabetesRiskLevel.INDANGER, custom.level(Gender.F, 50, 2));
+		assertEquals(DiabetesRiskLevel.BORDERLINE, custom.level(Gender.F, 49, 2));
+		assertEquals(DiabetesRiskLevel.BORDERLINE, custom.level(Gender.F, 60, 3));
+		assertEquals(DiabetesRiskLevel.BORDERLINE, custom.level(Gender.M, 60, 1000));
+	}
+}
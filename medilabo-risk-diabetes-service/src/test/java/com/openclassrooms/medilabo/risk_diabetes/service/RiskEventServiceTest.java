@@ -0,0 +1,108 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean.Gender;
+import com.openclassrooms.medilabo.risk_diabetes.proxies.MicroserviceNotesProxy;
+import com.openclassrooms.medilabo.risk_diabetes.proxies.MicroservicePatientsProxy;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class RiskEventServiceTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockitoBean
+	private MicroserviceNotesProxy notesProxy;
+
+	@MockitoBean
+	private MicroservicePatientsProxy patientsProxy;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private RiskStateService riskStateService;
+
+	private final StubNotesProxy stubNotesProxy = new StubNotesProxy(0).withNotes("1", "Fumeur, cholestérol anormal");
+
+	private final StubPatientsProxy stubPatientsProxy = new StubPatientsProxy(0).withPatient(1, 25, Gender.M);
+
+	@BeforeEach
+	void setUp() {
+		cacheManager.getCache(RiskCalculatorService.RISK_LEVELS_CACHE).clear();
+		ReflectionTestUtils.setField(riskStateService, "states", new ConcurrentHashMap<>());
+		when(notesProxy.getTriggerCountByPatientId("1"))
+				.thenAnswer(invocation -> stubNotesProxy.getTriggerCountByPatientId("1"));
+		when(patientsProxy.getPatientById(1)).thenAnswer(invocation -> stubPatientsProxy.getPatientById(1));
+	}
+
+	@Test
+	void testRiskLevelIsCachedUntilNoteChanges() throws Exception {
+		mockMvc.perform(get("/calculateRisk/1")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.diabetesRiskLevel").value("INDANGER"))
+				.andExpect(jsonPath("$.rulesVersion").value("2025.1"));
+		mockMvc.perform(get("/calculateRisk/1")).andExpect(status().isOk());
+		verify(notesProxy, times(1)).getTriggerCountByPatientId("1");
+
+		mockMvc.perform(post("/events/notes").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"noteId\":\"n1\",\"patientId\":\"1\"}")).andExpect(status().isAccepted());
+		mockMvc.perform(get("/calculateRisk/1")).andExpect(status().isOk());
+		verify(notesProxy, times(2)).getTriggerCountByPatientId("1");
+	}
+
+	@Test
+	void testPatientChangeInvalidatesCache() throws Exception {
+		mockMvc.perform(get("/calculateRisk/1")).andExpect(status().isOk());
+		mockMvc.perform(post("/events/patients").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"patientId\":1}")).andExpect(status().isAccepted());
+		mockMvc.perform(get("/calculateRisk/1")).andExpect(status().isOk());
+		verify(notesProxy, times(2)).getTriggerCountByPatientId("1");
+	}
+
+	@Test
+	void testNoteEventWithCountsUpdatesStateWithoutDownstreamCall() throws Exception {
+		mockMvc.perform(get("/calculateRisk/1")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.triggerWordsCounter").value(3));
+		mockMvc.perform(post("/events/notes").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"noteId\":\"n2\",\"patientId\":\"1\",\"triggerCount\":2,\"created\":true}"))
+				.andExpect(status().isAccepted());
+		mockMvc.perform(get("/calculateRisk/1")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.triggerWordsCounter").value(5));
+		verify(notesProxy, times(1)).getTriggerCountByPatientId("1");
+		verify(patientsProxy, times(1)).getPatientById(1);
+	}
+
+	@Test
+	void testRiskStateEndpointIsExposed() throws Exception {
+		mockMvc.perform(get("/actuator/riskstate")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.size").isNumber());
+	}
+
+	@Test
+	void testCacheStatisticsAreExposed() throws Exception {
+		mockMvc.perform(get("/actuator/riskcache")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.hits").isNumber()).andExpect(jsonPath("$.misses").isNumber())
+				.andExpect(jsonPath("$.evictions").isNumber()).andExpect(jsonPath("$.size").isNumber());
+	}
+}
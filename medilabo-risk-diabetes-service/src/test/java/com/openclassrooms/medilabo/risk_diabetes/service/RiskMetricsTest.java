@@ -0,0 +1,102 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean.Gender;
+import com.openclassrooms.medilabo.risk_diabetes.config.FeignMetricsCapability;
+import com.openclassrooms.medilabo.risk_diabetes.proxies.MicroserviceNotesProxy;
+import com.openclassrooms.medilabo.risk_diabetes.proxies.MicroservicePatientsProxy;
+
+import feign.Client;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import feign.Target;
+import feign.codec.Decoder;
+
+@SpringBootTest(properties = { "risk.notes.trigger-source=SCAN", "risk.state.enabled=false" })
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+public class RiskMetricsTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private FeignMetricsCapability feignMetricsCapability;
+
+	@MockitoBean
+	private MicroserviceNotesProxy notesProxy;
+
+	@MockitoBean
+	private MicroservicePatientsProxy patientsProxy;
+
+	private final StubNotesProxy stubNotesProxy = new StubNotesProxy(0).withNotes("7", "Fumeur", "Poids, taille");
+
+	private final StubPatientsProxy stubPatientsProxy = new StubPatientsProxy(0).withPatient(7, 40, Gender.F);
+
+	@Test
+	void testStageAndNoteMetricsArePublished() throws Exception {
+		when(notesProxy.streamNotesByPatientId("7")).thenAnswer(invocation -> stubNotesProxy.streamNotesByPatientId("7"));
+		when(patientsProxy.getPatientById(7)).thenAnswer(invocation -> stubPatientsProxy.getPatientById(7));
+
+		mockMvc.perform(get("/calculateRisk/7")).andExpect(status().isOk());
+
+		mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isOk())
+				.andExpect(content().string(containsString("risk_stage_seconds_bucket{stage=\"notes.fetch\"")))
+				.andExpect(content().string(containsString("risk_stage_seconds_count{stage=\"patient.fetch\"}")))
+				.andExpect(content().string(containsString("risk_stage_seconds_count{stage=\"matching\"}")))
+				.andExpect(content().string(containsString("risk_stage_seconds_count{stage=\"scoring\"}")))
+				.andExpect(content().string(containsString("risk_notes_per_patient_count")))
+				.andExpect(content().string(containsString("risk_note_length_characters_sum")))
+				.andExpect(content().string(containsString(
+						"risk_downstream_seconds_count{outcome=\"success\",target=\"medilabo-note-service\"}")));
+	}
+
+	@Test
+	void testDownstreamErrorsAreCounted() throws Exception {
+		when(notesProxy.streamNotesByPatientId("8")).thenAnswer(invocation -> stubNotesProxy.streamNotesByPatientId("8"));
+		when(patientsProxy.getPatientById(8)).thenThrow(new IllegalStateException("patient service down"));
+
+		mockMvc.perform(get("/calculateRisk/8")).andExpect(status().isBadGateway());
+
+		mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isOk()).andExpect(content().string(
+				containsString("risk_downstream_errors_total{status=\"502\",target=\"medilabo-patient-service\"}")));
+	}
+
+	@Test
+	void testFeignExchangesAreTimedPerTarget() throws Exception {
+		RequestTemplate template = new RequestTemplate();
+		template.feignTarget(new Target.HardCodedTarget<>(Object.class, "medilabo-note-service", "http://notes"));
+		Request request = Request.create(Request.HttpMethod.GET, "http://notes/notes/patient/1", Map.of(), null,
+				StandardCharsets.UTF_8, template);
+		Client client = feignMetricsCapability
+				.enrich((Client) (req, options) -> Response.builder().status(200).request(req).headers(Map.of())
+						.body("[]", StandardCharsets.UTF_8).build());
+		Decoder decoder = feignMetricsCapability.enrich((Decoder) (response, type) -> "decoded");
+
+		Response response = client.execute(request, new Request.Options());
+		decoder.decode(response, String.class);
+
+		mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isOk())
+				.andExpect(content().string(containsString(
+						"risk_feign_requests_seconds_count{status=\"200\",target=\"medilabo-note-service\"}")))
+				.andExpect(content().string(
+						containsString("risk_feign_decode_seconds_count{target=\"medilabo-note-service\"}")));
+	}
+}
@@ -0,0 +1,142 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean.Gender;
+import com.openclassrooms.medilabo.risk_diabetes.event.RiskRulesChangedEvent;
+
+public class RiskRulesServiceTest {
+
+	private static final String RULES = """
+			{
+				"version": "%s",
+				"triggerWords": [%s],
+				"rules": [ { "minTriggers": %d, "level": "EARLYONSET" } ]
+			}
+			""";
+
+	@TempDir
+	Path directory;
+
+	private final RiskRulesService rulesService = new RiskRulesService();
+
+	private final List<Object> events = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(rulesService, "objectMapper", new ObjectMapper());
+		ReflectionTestUtils.setField(rulesService, "eventPublisher",
+				(ApplicationEventPublisher) events::add);
+	}
+
+	private Path writeRules(Path file, String content, long modified) throws Exception {
+		Files.writeString(file, content);
+		Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+		return file;
+	}
+
+	@Test
+	void testBundledRulesMatchBuiltinRules() throws Exception {
+		ReflectionTestUtils.setField(rulesService, "location", new ClassPathResource("risk-rules.json"));
+		rulesService.init();
+		RiskRules bundled = rulesService.getCurrent();
+
+		assertTrue(bundled.isDefaultVocabulary());
+		for (Gender gender : Gender.values()) {
+			for (int age = 0; age <= 120; age++) {
+				for (int counter = 0; counter <= 64; counter++) {
+					assertEquals(RiskRules.DEFAULT.getDecisionTable().level(gender, age, counter),
+							bundled.getDecisionTable().level(gender, age, counter));
+				}
+			}
+		}
+	}
+
+	@Test
+	void testReloadsModifiedFile() throws Exception {
+		Path file = writeRules(directory.resolve("rules.json"), RULES.formatted("v1", "\"fumeur\"", 1), 1_000_000);
+		ReflectionTestUtils.setField(rulesService, "location", new FileSystemResource(file));
+		rulesService.init();
+		RiskRules v1 = rulesService.getCurrent();
+		assertEquals("v1", v1.getVersion());
+
+		rulesService.reloadIfModified();
+		assertSame(v1, rulesService.getCurrent());
+		assertTrue(events.isEmpty());
+
+		writeRules(file, RULES.formatted("v2", "\"fumeur\", \"poids\"", 2), 2_000_000);
+		rulesService.reloadIfModified();
+
+		RiskRules v2 = rulesService.getCurrent();
+		assertEquals("v2", v2.getVersion());
+		assertEquals(2, v2.getMatcher().count("Fumeur, poids"));
+		assertEquals(1, events.size());
+		assertTrue(((RiskRulesChangedEvent) events.get(0)).isVocabularyChanged());
+	}
+
+	@Test
+	void testKeepsPreviousRulesWhenFileIsInvalid() throws Exception {
+		Path file = writeRules(directory.resolve("rules.json"), RULES.formatted("v1", "\"fumeur\"", 1), 1_000_000);
+		ReflectionTestUtils.setField(rulesService, "location", new FileSystemResource(file));
+		rulesService.init();
+
+		writeRules(file, RULES.formatted("v2", "", 1), 2_000_000);
+		rulesService.reloadIfModified();
+		assertEquals("v1", rulesService.getCurrent().getVersion());
+
+		writeRules(file, RULES.formatted("v3", "\"fumeur\"", -1), 3_000_000);
+		rulesService.reloadIfModified();
+		assertEquals("v1", rulesService.getCurrent().getVersion());
+		assertTrue(events.isEmpty());
+	}
+
+	@Test
+	void testFallsBackToBundledRulesUntilFileExists() throws Exception {
+		Path file = directory.resolve("rules.json");
+		ReflectionTestUtils.setField(rulesService, "location", new FileSystemResource(file));
+		ReflectionTestUtils.setField(rulesService, "fallbackLocation", new ClassPathResource("risk-rules.json"));
+		rulesService.init();
+		RiskRules bundled = rulesService.getCurrent();
+		assertTrue(bundled.isDefaultVocabulary());
+
+		rulesService.reloadIfModified();
+		assertSame(bundled, rulesService.getCurrent());
+
+		writeRules(file, RULES.formatted("v1", "\"fumeur\"", 1), 1_000_000);
+		rulesService.reloadIfModified();
+		assertEquals("v1", rulesService.getCurrent().getVersion());
+		assertEquals(1, events.size());
+	}
+
+	@Test
+	void testTriggerWordsAreLowerCasedIndependentlyOfLocale() throws Exception {
+		Locale defaultLocale = Locale.getDefault();
+		Locale.setDefault(Locale.forLanguageTag("tr"));
+		try {
+			Path file = writeRules(directory.resolve("rules.json"),
+					RULES.formatted("v1", "\"VERTIGES\", \"FUMEUR\"", 1), 1_000_000);
+			ReflectionTestUtils.setField(rulesService, "location", new FileSystemResource(file));
+			rulesService.init();
+
+			assertEquals(List.of("vertiges", "fumeur"), rulesService.getCurrent().getMatcher().getWords());
+		} finally {
+			Locale.setDefault(defaultLocale);
+		}
+	}
+}
@@ -0,0 +1,257 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.openclassrooms.medilabo.risk_diabetes.beans.NoteChangedEventBean;
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean.Gender;
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientChangedEventBean;
+import com.openclassrooms.medilabo.risk_diabetes.enums.DiabetesRiskLevel;
+import com.openclassrooms.medilabo.risk_diabetes.enums.TriggerSource;
+import com.openclassrooms.medilabo.risk_diabetes.event.RiskRulesChangedEvent;
+import com.openclassrooms.medilabo.risk_diabetes.exception.DownstreamServiceException;
+import com.openclassrooms.medilabo.risk_diabetes.model.PatientRiskLevel;
+import com.openclassrooms.medilabo.risk_diabetes.model.PatientRiskState;
+import com.openclassrooms.medilabo.risk_diabetes.model.RiskRule;
+import com.openclassrooms.medilabo.risk_diabetes.model.RiskRulesDefinition;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class RiskStateServiceTest {
+
+	/**
+	 * Nombre de chargements pendant lesquels simuler l'arrivée d'une nouvelle
+	 * note, entre la lecture des services et l'écriture dans la table.
+	 */
+	private int racingNotes;
+
+	/**
+	 * Patient dont le chargement échoue, comme un patient supprimé.
+	 */
+	private String failingPatient;
+
+	/**
+	 * Action exécutée pendant le prochain chargement, avant son écriture dans la
+	 * table.
+	 */
+	private Runnable duringLoad;
+
+	private final RiskCalculatorService calculatorService = new RiskCalculatorService(
+			new RiskMetrics(new SimpleMeterRegistry())) {
+		@Override
+		public PatientRiskState loadPatientState(String patientId) {
+			if (patientId.equals(failingPatient)) {
+				throw new DownstreamServiceException(HttpStatus.NOT_FOUND, "Patient introuvable : " + patientId, null);
+			}
+			PatientRiskState state = super.loadPatientState(patientId);
+			if (duringLoad != null) {
+				Runnable action = duringLoad;
+				duringLoad = null;
+				action.run();
+			}
+			if (racingNotes > 0) {
+				racingNotes--;
+				notesProxy.withNotes(patientId, "Vertiges");
+				riskStateService.onNoteChanged(noteEvent(patientId, 1, null, true));
+			}
+			return state;
+		}
+	};
+
+	private final RiskStateService riskStateService = new RiskStateService();
+
+	private StubNotesProxy notesProxy;
+
+	private StubPatientsProxy patientsProxy;
+
+	private ExecutorService executor;
+
+	@BeforeEach
+	void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+		notesProxy = new StubNotesProxy(0).withNotes("1", "Fumeur, cholestérol anormal").withNotes("2", "Poids");
+		patientsProxy = new StubPatientsProxy(0).withPatient(1, 25, Gender.M).withPatient(2, 40, Gender.F);
+
+		ReflectionTestUtils.setField(calculatorService, "notesProxy", notesProxy);
+		ReflectionTestUtils.setField(calculatorService, "patientsProxy", patientsProxy);
+		ReflectionTestUtils.setField(calculatorService, "fetchExecutor", executor);
+		ReflectionTestUtils.setField(calculatorService, "fetchTimeoutMs", 2000L);
+		ReflectionTestUtils.setField(calculatorService, "batchChunkSize", 500);
+		ReflectionTestUtils.setField(calculatorService, "triggerSource", TriggerSource.PRECOMPUTED);
+
+		ReflectionTestUtils.setField(riskStateService, "calculatorService", calculatorService);
+		ReflectionTestUtils.setField(riskStateService, "patientsProxy", patientsProxy);
+		ReflectionTestUtils.setField(riskStateService, "rulesService", new RiskRulesService());
+		ReflectionTestUtils.setField(riskStateService, "enabled", true);
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private NoteChangedEventBean noteEvent(String patientId, Integer triggerCount, Integer previous, boolean created) {
+		NoteChangedEventBean event = new NoteChangedEventBean();
+		event.setPatientId(patientId);
+		event.setTriggerCount(triggerCount);
+		event.setPreviousTriggerCount(previous);
+		event.setCreated(created);
+		return event;
+	}
+
+	@Test
+	void testReadsFromStateAfterFirstLoad() {
+		assertEquals(DiabetesRiskLevel.INDANGER, riskStateService.getPatientRiskLevel("1").getDiabetesRiskLevel());
+		riskStateService.getPatientRiskLevel("1");
+		riskStateService.getPatientRiskLevel("1");
+
+		assertEquals(1, notesProxy.calls.get());
+		assertEquals(1, patientsProxy.calls.get());
+	}
+
+	@Test
+	void testAppliesNoteDeltas() {
+		riskStateService.getPatientRiskLevel("1");
+
+		riskStateService.onNoteChanged(noteEvent("1", 2, null, true));
+		assertEquals(5, riskStateService.getPatientRiskLevel("1").getTriggerWordsCounter());
+
+		riskStateService.onNoteChanged(noteEvent("1", 0, 2, false));
+		PatientRiskLevel riskLevel = riskStateService.getPatientRiskLevel("1");
+		assertEquals(3, riskLevel.getTriggerWordsCounter());
+		assertEquals(DiabetesRiskLevel.INDANGER, riskLevel.getDiabetesRiskLevel());
+		assertEquals(1, notesProxy.calls.get());
+	}
+
+	@Test
+	void testNoteEventDuringFirstLoadTriggersReload() {
+		racingNotes = 1;
+
+		assertEquals(4, riskStateService.getPatientRiskLevel("1").getTriggerWordsCounter());
+		// l'état lu avant la note n'a pas été conservé : second chargement
+		assertEquals(2, notesProxy.calls.get());
+		assertEquals(4, riskStateService.findState("1").getTriggerCount());
+
+		riskStateService.getPatientRiskLevel("1");
+		assertEquals(2, notesProxy.calls.get());
+	}
+
+	@Test
+	void testStateIsNotStoredWhileEventsKeepRacingTheLoad() {
+		racingNotes = RiskStateService.MAX_LOAD_ATTEMPTS;
+
+		riskStateService.getPatientRiskLevel("1");
+
+		assertEquals(RiskStateService.MAX_LOAD_ATTEMPTS, notesProxy.calls.get());
+		assertNull(riskStateService.findState("1"));
+		assertEquals(6, riskStateService.getPatientRiskLevel("1").getTriggerWordsCounter());
+	}
+
+	@Test
+	void testDropsStateWhenDeltaIsUnknown() {
+		riskStateService.getPatientRiskLevel("1");
+		riskStateService.onNoteChanged(noteEvent("1", 1, null, false));
+		riskStateService.getPatientRiskLevel("1");
+
+		assertEquals(2, notesProxy.calls.get());
+	}
+
+	@Test
+	void testAppliesPatientChanges() {
+		riskStateService.getPatientRiskLevel("1");
+
+		PatientChangedEventBean event = new PatientChangedEventBean();
+		event.setPatientId(1);
+		event.setBirthDate(LocalDate.now().minusYears(45));
+		event.setGender(Gender.M);
+		riskStateService.onPatientChanged(event);
+		assertEquals(DiabetesRiskLevel.BORDERLINE, riskStateService.getPatientRiskLevel("1").getDiabetesRiskLevel());
+		assertEquals(1, patientsProxy.calls.get());
+
+		event.setDeleted(true);
+		riskStateService.onPatientChanged(event);
+		assertEquals(0, riskStateService.summary().get("size"));
+	}
+
+	@Test
+	void testRebuildAndCheckRepairDrift() {
+		assertEquals(2, riskStateService.rebuild());
+
+		// notification perdue : la table n'a pas vu cette note
+		notesProxy.withNotes("2", "Vertiges, rechute");
+		Map<String, Object> report = riskStateService.checkConsistency(10);
+
+		assertEquals(2, report.get("checked"));
+		assertEquals(1, ((List<?>) report.get("mismatches")).size());
+		assertEquals(3, riskStateService.getPatientRiskLevel("2").getTriggerWordsCounter());
+		assertTrue(((List<?>) riskStateService.checkConsistency(10).get("mismatches")).isEmpty());
+	}
+
+	@Test
+	void testCheckCountsFailuresAndChecksOtherPatients() {
+		riskStateService.rebuild();
+		notesProxy.withNotes("2", "Vertiges, rechute");
+		failingPatient = "1";
+
+		Map<String, Object> report = riskStateService.checkConsistency(10);
+
+		assertEquals(2, report.get("checked"));
+		assertEquals(1, report.get("failures"));
+		assertEquals(1, ((List<?>) report.get("mismatches")).size());
+		assertEquals(3, riskStateService.findState("2").getTriggerCount());
+	}
+
+	@Test
+	void testCheckDoesNotOverwriteNoteReceivedDuringCheck() {
+		riskStateService.rebuild();
+		// notifications perdues pour les deux patients
+		notesProxy.withNotes("1", "Rechute").withNotes("2", "Rechute");
+		racingNotes = 1;
+
+		// le premier patient calculé reçoit une note pendant son calcul : il n'est
+		// pas corrigé avec un calcul qui ignore cette note
+		assertEquals(1, ((List<?>) riskStateService.checkConsistency(10).get("mismatches")).size());
+		assertEquals(1, ((List<?>) riskStateService.checkConsistency(10).get("mismatches")).size());
+		assertTrue(((List<?>) riskStateService.checkConsistency(10).get("mismatches")).isEmpty());
+	}
+
+	@Test
+	void testLoadDuringRulesChangeIsNotStored() {
+		RiskRulesDefinition definition = new RiskRulesDefinition();
+		definition.setVersion("v2");
+		definition.setTriggerWords(List.of("fumeur"));
+		definition.setRules(List.of(new RiskRule(null, null, 1, null, DiabetesRiskLevel.EARLYONSET)));
+		RiskRulesChangedEvent event = new RiskRulesChangedEvent(RiskRules.DEFAULT, RiskRules.compile(definition));
+		duringLoad = () -> riskStateService.onRulesChanged(event);
+
+		assertEquals(3, riskStateService.getPatientRiskLevel("1").getTriggerWordsCounter());
+		// l'état chargé avant le remplacement de la table a été écarté
+		assertEquals(2, notesProxy.calls.get());
+		assertEquals(3, riskStateService.findState("1").getTriggerCount());
+	}
+
+	@Test
+	void testLoadDuringRebuildIsNotStored() {
+		duringLoad = () -> {
+			// suppression dont la notification est perdue, vue par la reconstruction
+			patientsProxy.withoutPatient(1);
+			riskStateService.rebuild();
+			failingPatient = "1";
+		};
+
+		assertThrows(DownstreamServiceException.class, () -> riskStateService.getPatientRiskLevel("1"));
+		assertNull(riskStateService.findState("1"));
+		assertEquals(1, riskStateService.summary().get("size"));
+	}
+}
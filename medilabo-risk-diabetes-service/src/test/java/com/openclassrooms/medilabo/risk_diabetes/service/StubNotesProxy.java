@@ -0,0 +1,127 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.medilabo.risk_diabetes.beans.NoteBean;
+import com.openclassrooms.medilabo.risk_diabetes.beans.TriggerCountBean;
+import com.openclassrooms.medilabo.risk_diabetes.proxies.MicroserviceNotesProxy;
+
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Faux proxy de notes en mémoire, avec un délai de réponse simulé.
+ */
+class StubNotesProxy implements MicroserviceNotesProxy {
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+
+	private final RiskCalculatorService calculator = new RiskCalculatorService(
+			new RiskMetrics(new SimpleMeterRegistry()));
+
+	private final Map<String, List<NoteBean>> notes = new HashMap<>();
+	private final long delayMs;
+	final AtomicInteger calls = new AtomicInteger();
+	final AtomicInteger bodyCalls = new AtomicInteger();
+
+	StubNotesProxy(long delayMs) {
+		this.delayMs = delayMs;
+	}
+
+	StubNotesProxy withNotes(String patientId, String... contents) {
+		List<NoteBean> patientNotes = notes.computeIfAbsent(patientId, id -> new ArrayList<>());
+		for (String content : contents) {
+			NoteBean note = new NoteBean();
+			note.setId(patientId + "-" + patientNotes.size());
+			note.setPatientId(patientId);
+			note.setNote(content);
+			patientNotes.add(note);
+		}
+		return this;
+	}
+
+	static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public List<NoteBean> getNotesByPatientId(String patientId) {
+		calls.incrementAndGet();
+		sleep(delayMs);
+		return notes.getOrDefault(patientId, List.of());
+	}
+
+	@Override
+	public Response streamNotesByPatientId(String patientId) {
+		StringBuilder body = new StringBuilder();
+		try {
+			for (NoteBean note : getNotesByPatientId(patientId)) {
+				body.append(JSON.writeValueAsString(note)).append('\n');
+			}
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+		return ndjsonResponse(patientId, body.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	static Response ndjsonResponse(String patientId, byte[] body) {
+		Request request = Request.create(Request.HttpMethod.GET, "/notes/patient/" + patientId, Map.of(), null,
+				StandardCharsets.UTF_8, null);
+		return Response.builder().status(200).request(request).headers(Map.of()).body(body).build();
+	}
+
+	@Override
+	public TriggerCountBean getTriggerCountByPatientId(String patientId) {
+		calls.incrementAndGet();
+		sleep(delayMs);
+		TriggerCountBean triggerCount = new TriggerCountBean();
+		triggerCount.setPatientId(patientId);
+		triggerCount.setTriggerCount(
+				calculator.countTriggerWords(notes.getOrDefault(patientId, List.of())));
+		return triggerCount;
+	}
+
+	@Override
+	public Map<String, List<NoteBean>> getNotesByPatientIds(List<String> patientIds) {
+		calls.incrementAndGet();
+		bodyCalls.incrementAndGet();
+		sleep(delayMs);
+		Map<String, List<NoteBean>> result = new LinkedHashMap<>();
+		for (String patientId : patientIds) {
+			if (notes.containsKey(patientId)) {
+				result.put(patientId, notes.get(patientId));
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, List<NoteBean>> getNoteTriggersByPatientIds(List<String> patientIds) {
+		calls.incrementAndGet();
+		sleep(delayMs);
+		Map<String, List<NoteBean>> result = new LinkedHashMap<>();
+		for (String patientId : patientIds) {
+			for (NoteBean note : notes.getOrDefault(patientId, List.of())) {
+				NoteBean triggers = new NoteBean();
+				triggers.setId(note.getId());
+				triggers.setPatientId(patientId);
+				triggers.setTriggerCount(calculator.countTriggerWords(List.of(note)));
+				result.computeIfAbsent(patientId, id -> new ArrayList<>()).add(triggers);
+			}
+		}
+		return result;
+	}
+}
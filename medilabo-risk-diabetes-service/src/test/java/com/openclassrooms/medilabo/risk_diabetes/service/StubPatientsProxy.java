@@ -0,0 +1,81 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBatchBean;
+import com.openclassrooms.medilabo.risk_diabetes.beans.PatientBean;
+import com.openclassrooms.medilabo.risk_diabetes.proxies.MicroservicePatientsProxy;
+
+/**
+ * Faux proxy de patients en mémoire, avec un délai de réponse simulé.
+ */
+class StubPatientsProxy implements MicroservicePatientsProxy {
+
+	private final Map<Integer, PatientBean> patients = new HashMap<>();
+	private final long delayMs;
+	private RuntimeException failure;
+	final AtomicInteger calls = new AtomicInteger();
+
+	StubPatientsProxy(long delayMs) {
+		this.delayMs = delayMs;
+	}
+
+	StubPatientsProxy withPatient(Integer id, int age, PatientBean.Gender gender) {
+		PatientBean patient = new PatientBean();
+		patient.setId(id);
+		patient.setBirthDate(LocalDate.now().minusYears(age));
+		patient.setGender(gender);
+		patients.put(id, patient);
+		return this;
+	}
+
+	StubPatientsProxy withoutPatient(Integer id) {
+		patients.remove(id);
+		return this;
+	}
+
+	StubPatientsProxy failingWith(RuntimeException failure) {
+		this.failure = failure;
+		return this;
+	}
+
+	private void respond() {
+		calls.incrementAndGet();
+		if (failure != null) {
+			throw failure;
+		}
+		StubNotesProxy.sleep(delayMs);
+	}
+
+	@Override
+	public List<PatientBean> getAllPatients() {
+		respond();
+		return new ArrayList<>(patients.values());
+	}
+
+	@Override
+	public PatientBean getPatientById(Integer id) {
+		respond();
+		return patients.get(id);
+	}
+
+	@Override
+	public PatientBatchBean getPatientsByIds(List<Integer> ids) {
+		respond();
+		List<PatientBean> result = new ArrayList<>();
+		List<Integer> missing = new ArrayList<>();
+		for (Integer id : ids) {
+			if (patients.containsKey(id)) {
+				result.add(patients.get(id));
+			} else {
+				missing.add(id);
+			}
+		}
+		return new PatientBatchBean(result, missing);
+	}
+}
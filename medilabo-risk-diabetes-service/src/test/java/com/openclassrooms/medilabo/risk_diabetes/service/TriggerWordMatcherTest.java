@@ -0,0 +1,127 @@
+package com.openclassrooms.medilabo.risk_diabetes.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class TriggerWordMatcherTest {
+
+	private static final List<String> TRIGGER_WORDS = List.of("hémoglobine a1c", "microalbumine", "taille", "poids",
+			"fumeur", "fumeuse", "anormal", "cholestérol", "vertiges", "rechute", "réaction", "anticorps");
+
+	private static final List<String> FILLER_WORDS = List.of("le", "patient", "déclare", "qu'il", "se", "sent",
+			"bien", "test", "de", "laboratoire", "indiquant", "une", "hémoglobine", "a1c", "élevée", "fume", "taill",
+			"fumeu", "anor", "réac", "tion", "vertige", "chol", "et", "la", "sa", "suite", "au", "rendez-vous");
+
+	private static final List<String> UNACCENTED_FILLER_WORDS = FILLER_WORDS.stream()
+			.filter(word -> stripAccents(word).equals(word)).toList();
+
+	private final TriggerWordMatcher matcher = new TriggerWordMatcher(TRIGGER_WORDS);
+
+	/**
+	 * Ancien algorithme : une recherche contains() par mot-clé sur la note en
+	 * minuscules.
+	 */
+	private static int legacyCount(String note) {
+		String content = note.toLowerCase();
+		int counter = 0;
+		for (String triggerWord : TRIGGER_WORDS) {
+			if (content.contains(triggerWord)) {
+				counter++;
+			}
+		}
+		return counter;
+	}
+
+	private static String stripAccents(String text) {
+		return Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+	}
+
+	private static String randomNote(Random random, boolean withAccentVariants) {
+		StringBuilder note = new StringBuilder();
+		int words = random.nextInt(60);
+		for (int i = 0; i < words; i++) {
+			String word;
+			if (random.nextInt(4) == 0) {
+				word = TRIGGER_WORDS.get(random.nextInt(TRIGGER_WORDS.size()));
+			} else if (withAccentVariants) {
+				word = FILLER_WORDS.get(random.nextInt(FILLER_WORDS.size()));
+			} else {
+				// Sans accent, un fragment comme "taill" + "élevée" serait reconnu par
+				// l'automate mais pas par l'ancien algorithme.
+				word = UNACCENTED_FILLER_WORDS.get(random.nextInt(UNACCENTED_FILLER_WORDS.size()));
+			}
+			if (withAccentVariants && random.nextBoolean()) {
+				word = stripAccents(word);
+			}
+			if (random.nextBoolean()) {
+				word = word.toUpperCase();
+			}
+			note.append(word);
+			// Séparateur parfois absent pour créer des chevauchements
+			note.append(random.nextInt(5) == 0 ? "" : random.nextBoolean() ? " " : ", ");
+		}
+		return note.toString();
+	}
+
+	@Test
+	void testMatchesLegacyAlgorithmOnRandomCorpus() {
+		Random random = new Random(42);
+		for (int i = 0; i < 20_000; i++) {
+			String note = randomNote(random, false);
+			assertEquals(legacyCount(note), matcher.count(note), note);
+		}
+	}
+
+	@Test
+	void testMatchesAccentInsensitiveLegacyAlgorithmOnRandomCorpus() {
+		Random random = new Random(7);
+		for (int i = 0; i < 20_000; i++) {
+			String note = randomNote(random, true);
+			assertEquals(legacyCountFolded(note), matcher.count(note), note);
+		}
+	}
+
+	private static int legacyCountFolded(String note) {
+		String content = stripAccents(note).toLowerCase();
+		int counter = 0;
+		for (String triggerWord : TRIGGER_WORDS) {
+			if (content.contains(stripAccents(triggerWord))) {
+				counter++;
+			}
+		}
+		return counter;
+	}
+
+	@Test
+	void testFoldsCaseAndAccents() {
+		assertEquals(1, matcher.count("CHOLESTEROL élevé"));
+		assertEquals(1, matcher.count("Cholestérol"));
+		assertEquals(1, matcher.count("cholestérol"));
+		assertEquals(1, matcher.count("Hemoglobine A1C"));
+		assertEquals(1, matcher.count("RÉACTION"));
+	}
+
+	@Test
+	void testEachTriggerCountsOncePerNote() {
+		assertEquals(1, matcher.count("Fumeur, fumeur, toujours fumeur"));
+		assertEquals(2, matcher.count("Fumeuse et fumeur"));
+		assertEquals(0, matcher.count(""));
+		assertEquals(0, matcher.count(null));
+	}
+
+	@Test
+	void testMaskFollowsVocabularyOrder() {
+		assertEquals(1L << 2 | 1L << 3, matcher.match("Taille et poids"));
+	}
+
+	@Test
+	void testRejectsInvalidVocabulary() {
+		assertThrows(IllegalArgumentException.class, () -> new TriggerWordMatcher(List.of()));
+		assertThrows(IllegalArgumentException.class, () -> new TriggerWordMatcher(List.of("")));
+	}
+}